@@ -0,0 +1,31 @@
+package Benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so every result reports its allocation rate alongside its throughput. Every
+ * fork is started with the jdk.incubator.vector module, as the application is, so grazers are scored as they are there.
+ * <p>
+ * Usage: {@code BenchmarkRunner [benchmark regex] [param=value ...]}, e.g. {@code BenchmarkRunner CycleBenchmark size=600 range=1}.
+ * With no arguments every benchmark is run with every parameter, which takes several hours.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        optionsBuilder.include(args.length > 0 ? args[0] : "Benchmarks\\..*");
+        for (int i = 1; i < args.length; i++) {
+            String[] param = args[i].split("=", 2);
+            optionsBuilder.param(param[0], param[1].split(","));
+        }
+        Options options = optionsBuilder.addProfiler(GCProfiler.class).jvmArgsAppend("--add-modules=jdk.incubator.vector").build();
+        new Runner(options).run();
+    }
+}
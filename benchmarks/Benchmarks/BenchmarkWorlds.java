@@ -0,0 +1,71 @@
+package Benchmarks;
+
+import Simulation.Agent.AgentConcreteComponents.CreatorMotivation;
+import Simulation.Agent.AgentConcreteComponents.GrazerMotivation;
+import Simulation.Agent.AgentConcreteComponents.MutatingAttributes;
+import Simulation.Agent.AgentConcreteComponents.PredatorMotivation;
+import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Agent.AgentStructs.ColorModel;
+import Simulation.Agent.AgentUtility.AgentEditor;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.Simulation;
+
+import java.awt.*;
+import java.util.ArrayList;
+
+/**
+ * Builds the simulations the benchmarks are run against, so every benchmark describes its world with the same parameters.
+ * <p>
+ * Every simulation uses the default environment settings and a fixed seed, so each fork starts from the same world.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public final class BenchmarkWorlds {
+
+    // The seed every benchmark simulation is given
+    public static final long SEED = 408;
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * Returns a new simulation with the default environment settings and the agent editor set up for the input range and
+     * species mix.
+     * @param size the length of the environments sides
+     * @param range the range given to every agent
+     * @param speciesMix the species to set up
+     */
+    public static Simulation newSimulation(int size, int range, SpeciesMix speciesMix) {
+        Simulation simulation = new Simulation(size, 8, 0, 8, 1.5, 8);
+        simulation.setSeed(SEED);
+        simulation.setDiagnosticsVerbosity(0);
+        AgentEditor agentEditor = simulation.getAgentEditor();
+        for (int i = 0; i < 8; i++) {
+            boolean predator = speciesMix.isPredator(i);
+            ArrayList<Motivation> motivations = new ArrayList<>();
+            if (speciesMix.isCreating()) {
+                motivations.add(new CreatorMotivation(20, 1));
+            }
+            if (speciesMix.isGrazer(i)) {
+                motivations.add(new GrazerMotivation(10, 1));
+            }
+            if (predator) {
+                motivations.add(new PredatorMotivation(10, 1));
+            }
+            agentEditor.setAgentSettings(new AgentSettings(new MutatingAttributes(100, "Agent " + (i+1), i, Color.blue, ColorModel.STATIC, 5, 0, range, predator ? 5 : 3, 4), motivations), i);
+        }
+        simulation.updateAgentNames();
+        return simulation;
+    }
+
+    /**
+     * Returns a new simulation set up by newSimulation() and populated at the input density.
+     * @param density how densely the environment is populated with agents
+     */
+    public static Simulation newPopulatedSimulation(int size, double density, int range, SpeciesMix speciesMix) {
+        Simulation simulation = newSimulation(size, range, speciesMix);
+        simulation.populate(density);
+        return simulation;
+    }
+}
@@ -0,0 +1,64 @@
+package Benchmarks;
+
+import Simulation.Agent.AgentConcreteComponents.BasicAgent;
+import Simulation.Agent.AgentInterfaces.Agent;
+import Simulation.Environment.Environment;
+import Simulation.Environment.Location;
+import Simulation.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures BasicAgent.create() for two mates in the middle of an otherwise empty environment.
+ * <p>
+ * The children aren't placed, so every invocation finds the same free space. The parents energy and creation counter
+ * are reset before each call.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateBenchmark {
+
+    @Param({"1", "4", "8"})
+    private int creationSize;
+    @Param({"0", "50"})
+    private int mutationChance;
+
+    private Environment environment;
+    private BasicAgent parentA;
+    private Location parentBLocation;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Simulation simulation = BenchmarkWorlds.newSimulation(50, 1, SpeciesMix.GRAZERS);
+        environment = simulation.getEnvironment();
+        Agent editorAgent = simulation.getAgentEditor().getAgent(0);
+        editorAgent.getAttributes().setCreationSize(creationSize);
+        editorAgent.getAttributes().setMutationChance(mutationChance);
+        editorAgent.getAttributes().calculateAttributes();
+        parentA = (BasicAgent) editorAgent.copy();
+        parentA.setLocation(new Location(25, 25));
+        BasicAgent parentB = (BasicAgent) editorAgent.copy();
+        parentBLocation = new Location(26, 25);
+        parentB.setLocation(parentBLocation);
+        environment.setOccupant(parentA);
+        environment.setOccupant(parentB);
+        random = new SplittableRandom(BenchmarkWorlds.SEED);
+    }
+
+    @Benchmark
+    public ArrayList<Agent> create() {
+        parentA.getScores().setEnergy(parentA.getAttributes().getEnergyCapacity());
+        return parentA.create(parentBLocation, environment, random);
+    }
+}
@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import Simulation.Simulation;
+import Simulation.SimulationUtility.CycleMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Simulation.cycle(), which includes every agents decision and the environments energy regeneration.
+ * <p>
+ * The world is populated once per iteration, so each iteration measures the population as it changes over its first
+ * cycles. The range parameter sets how many tiles each agent looks at when deciding, so it's the parameter to vary when
+ * measuring the decision path.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CycleBenchmark {
+
+    @Param({"100", "300", "600"})
+    private int size;
+    @Param({"5", "25", "60"})
+    private double density;
+    @Param({"1", "3", "5"})
+    private int range;
+    @Param({"GRAZERS", "MIXED"})
+    private SpeciesMix speciesMix;
+    @Param({"SEQUENTIAL", "TWO_PHASE", "STRIPED"})
+    private String cycleMode;
+    @Param({"false", "true"})
+    private boolean useAgentStore;
+
+    private Simulation simulation;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        simulation = BenchmarkWorlds.newSimulation(size, range, speciesMix);
+        simulation.setUseAgentStore(useAgentStore);
+        simulation.setCycleMode(CycleMode.valueOf(cycleMode));
+        simulation.populate(density);
+    }
+
+    @Benchmark
+    public Simulation cycle() {
+        simulation.cycle();
+        return simulation;
+    }
+}
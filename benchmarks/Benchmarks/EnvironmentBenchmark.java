@@ -0,0 +1,84 @@
+package Benchmarks;
+
+import Simulation.Environment.Environment;
+import Simulation.Environment.EnvironmentRaster;
+import Simulation.Environment.EnvironmentRenderer;
+import Simulation.Environment.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Environment.freeSpace(), Environment.toBufferedImage(), a full EnvironmentRenderer redraw and
+ * EnvironmentRaster.render() on a populated environment.
+ * <p>
+ * freeSpace() is measured at a fixed sequence of random locations, one location per invocation. The images use the same
+ * scale the MainController uses for the environments size.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvironmentBenchmark {
+
+    @Param({"100", "300", "600"})
+    private int size;
+    @Param({"5", "25", "60"})
+    private double density;
+
+    private Environment environment;
+    // The locations freeSpace() is called at
+    private int[] locations;
+    // The index of the next location to use
+    private int nextLocation;
+    // The raster and the pixels it writes to, one per tile
+    private EnvironmentRaster raster;
+    private int[] pixels;
+    // The generator freeSpace() shuffles with
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkWorlds.newPopulatedSimulation(size, density, 1, SpeciesMix.GRAZERS).getEnvironment();
+        random = new SplittableRandom(BenchmarkWorlds.SEED);
+        locations = new int[4096];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = random.nextInt(size * size);
+        }
+        raster = new EnvironmentRaster();
+        pixels = new int[size * size];
+    }
+
+    @Benchmark
+    public ArrayList<Location> freeSpace() {
+        int location = locations[nextLocation++ & (locations.length - 1)];
+        return environment.freeSpace(location % size, location / size, 3, random);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BufferedImage toBufferedImage() {
+        return environment.toBufferedImage(600 / size);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BufferedImage renderAll() {
+        return new EnvironmentRenderer().render(environment, 600 / size);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] rasterise() {
+        raster.render(environment, pixels);
+        return pixels;
+    }
+}
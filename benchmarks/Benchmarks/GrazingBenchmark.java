@@ -0,0 +1,56 @@
+package Benchmarks;
+
+import Simulation.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decisions of agents whose only motivation is grazing, scored a tile at a time, a row at a time with scalar
+ * loops and a row at a time with the Vector API, for each range.
+ * <p>
+ * Every invocation runs CYCLES cycles of a freshly populated world, so every way of scoring is measured on the same
+ * populations, which makes the same decisions whichever way. The gain from batching is the ratio of the PER_TILE and
+ * SCALAR times at each range, and the gain from the Vector API the ratio of the SCALAR and VECTOR times. The fork is
+ * started with the jdk.incubator.vector module so VECTOR can run.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GrazingBenchmark {
+
+    // How many cycles each invocation runs
+    private static final int CYCLES = 5;
+
+    @Param({"300"})
+    private int size;
+    @Param({"25"})
+    private double density;
+    @Param({"1", "2", "3", "4", "5", "6"})
+    private int range;
+    @Param({"PER_TILE", "SCALAR", "VECTOR"})
+    private GrazingScoring scoring;
+
+    private Simulation simulation;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        simulation = BenchmarkWorlds.newSimulation(size, range, SpeciesMix.LONE_GRAZERS);
+        scoring.apply(simulation);
+        simulation.populate(density);
+    }
+
+    @Benchmark
+    public Simulation cycles() {
+        for (int i = 0; i < CYCLES; i++) {
+            simulation.cycle();
+        }
+        return simulation;
+    }
+}
@@ -0,0 +1,30 @@
+package Benchmarks;
+
+import Simulation.Simulation;
+
+/** This enum contains the ways GrazingBenchmark can have grazers score their vision window.
+ * PER_TILE = every tile is filled into an AgentVision and run through the decision kernel
+ * SCALAR = the window is scored a row at a time with scalar loops
+ * VECTOR = the window is scored a row at a time with the Vector API
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public enum GrazingScoring {
+    PER_TILE,
+    SCALAR,
+    VECTOR;
+
+    /**
+     * Sets the input simulation to score grazers this way.
+     * @param simulation the simulation to set
+     * @throws IllegalStateException if this is VECTOR and the JVM wasn't started with the jdk.incubator.vector module
+     */
+    public void apply(Simulation simulation) {
+        simulation.setBatchedGrazing(this != PER_TILE);
+        simulation.setVectorGrazing(this == VECTOR);
+        if (simulation.isVectorGrazing() != (this == VECTOR)) {
+            throw new IllegalStateException("The Vector API is unavailable, run with --add-modules jdk.incubator.vector");
+        }
+    }
+}
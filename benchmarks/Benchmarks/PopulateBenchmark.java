@@ -0,0 +1,49 @@
+package Benchmarks;
+
+import Simulation.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Simulation.populate() on an empty environment.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopulateBenchmark {
+
+    @Param({"100", "300", "600"})
+    private int size;
+    @Param({"5", "25", "60"})
+    private double density;
+    @Param({"GRAZERS", "MIXED"})
+    private SpeciesMix speciesMix;
+    @Param({"false", "true"})
+    private boolean useAgentStore;
+
+    private Simulation simulation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulation = BenchmarkWorlds.newSimulation(size, 1, speciesMix);
+        simulation.setUseAgentStore(useAgentStore);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearAgents() {
+        simulation.clearAgents();
+    }
+
+    @Benchmark
+    public Simulation populate() {
+        simulation.populate(density);
+        return simulation;
+    }
+}
@@ -0,0 +1,40 @@
+package Benchmarks;
+
+/** This enum contains the mixes of species BenchmarkWorlds can populate a simulation with. Every mix has 8 species.
+ * GRAZERS = every species creates and grazes
+ * MIXED = even species create and predate and are larger, odd species create and graze
+ * OMNIVORES = every species creates, grazes and predates, and is larger
+ * LONE_GRAZERS = every species only grazes, so never creates
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public enum SpeciesMix {
+    GRAZERS,
+    MIXED,
+    OMNIVORES,
+    LONE_GRAZERS;
+
+    /**
+     * Returns true if the species at the input index predates.
+     * @param species the species index, 0 to 7
+     */
+    public boolean isPredator(int species) {
+        return this == OMNIVORES || (this == MIXED && species % 2 == 0);
+    }
+
+    /**
+     * Returns true if the species at the input index grazes.
+     * @param species the species index, 0 to 7
+     */
+    public boolean isGrazer(int species) {
+        return this != MIXED || !isPredator(species);
+    }
+
+    /**
+     * Returns true if every species creates children.
+     */
+    public boolean isCreating() {
+        return this != LONE_GRAZERS;
+    }
+}
@@ -0,0 +1,52 @@
+package Benchmarks;
+
+import Simulation.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the TerrainGenerators cave generators with its default terrain settings. The terrain is cleared before
+ * each call.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TerrainBenchmark {
+
+    @Param({"100", "300", "600"})
+    private int size;
+
+    private Simulation.TerrainGenerator terrainGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        terrainGenerator = BenchmarkWorlds.newSimulation(size, 1, SpeciesMix.GRAZERS).getTerrainGenerator();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTerrain() {
+        terrainGenerator.clearTerrain();
+    }
+
+    @Benchmark
+    public void generateCave() {
+        terrainGenerator.generateCave();
+    }
+
+    @Benchmark
+    public void generateVariableCave() {
+        terrainGenerator.generateVariableCave();
+    }
+
+    @Benchmark
+    public void generateGraphCave() {
+        terrainGenerator.generateGraphCave();
+    }
+}
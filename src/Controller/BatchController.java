@@ -0,0 +1,132 @@
+package Controller;
+
+import Simulation.Environment.EnvironmentSettings;
+import Simulation.Simulation;
+import Simulation.SimulationUtility.CycleMode;
+import Simulation.SimulationUtility.SimulationPreset;
+import Simulation.SimulationUtility.SimulationSettings;
+
+import java.io.*;
+
+/**
+ * Runs the {@code Simulation} without a {@code UserInterface}, so it can be run on machines without a display.
+ * <p>
+ * Loads a {@code SimulationSettings} file the same way presets are loaded, populates the environment and runs a number of
+ * steps as fast as possible. The diagnostics statistics of every step are written to a csv file, and the number of steps
+ * run per second is printed at the end. Nothing is rendered.
+ * <p>
+ * Usage: {@code BatchController <settings.dat> <density> <steps> <output.csv> [seed] [cycle mode]}
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class BatchController {
+
+    // The batch controllers instance of the simulation
+    final private Simulation simulation;
+    // Where the statistics of each step are written
+    final private File outputFile;
+
+    public BatchController(SimulationSettings simulationSettings, File outputFile) {
+        EnvironmentSettings environmentSettings = simulationSettings.getEnvironmentSettings();
+        this.simulation = new Simulation(
+                environmentSettings.getSize(),
+                environmentSettings.getMaxEnergyLevel(),
+                environmentSettings.getMinEnergyLevel(),
+                environmentSettings.getMaxEnergyLevel(),
+                environmentSettings.getEnergyRegenChance(),
+                environmentSettings.getEnergyRegenAmount());
+        this.simulation.setSimulationSettings(simulationSettings);
+        this.simulation.updateAgentNames();
+        this.simulation.setDiagnosticsVerbosity(0);
+        this.outputFile = outputFile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: BatchController <settings.dat> <density> <steps> <output.csv> [seed] [cycle mode]");
+            return;
+        }
+        BatchController batchController = new BatchController(readSimulationSettings(new File(args[0])), new File(args[3]));
+        if (args.length > 4) {
+            batchController.getSimulation().setSeed(Long.parseLong(args[4]));
+        }
+        if (args.length > 5) {
+            batchController.getSimulation().setCycleMode(CycleMode.valueOf(args[5]));
+        }
+        batchController.run(Double.parseDouble(args[1]), Integer.parseInt(args[2]));
+    }
+
+    /**
+     * Populates the environment and runs the simulation for the input number of steps.
+     * <p>
+     * Writes a header row, then one row of statistics for every step. Log messages, such as extinctions, are printed as
+     * they happen. Only the time spent cycling the simulation is counted towards the steps per second.
+     * @param density how densely the environment should be populated with agents
+     * @param steps how many steps to run
+     */
+    public void run(double density, int steps) throws IOException {
+        simulation.populate(density);
+        simulation.getDiagnostics().setExtinctFlags(0);
+        long cycleTime = 0;
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(outputFile)))) {
+            writeHeader(writer);
+            for (int i = 0; i < steps; i++) {
+                long start = System.nanoTime();
+                simulation.cycle();
+                cycleTime += System.nanoTime() - start;
+                simulation.getDiagnostics().iterateStep();
+                writeStep(writer);
+                if (simulation.getDiagnostics().logMessagesInQueue()) {
+                    System.out.println(simulation.getDiagnostics().printLogQueue());
+                }
+            }
+        }
+        System.out.println("[SIMULATION]: Simulation ran for " + steps + " steps at "
+                + Math.round(steps / (cycleTime / 1e9) * 100) / 100.0 + " steps/sec.");
+    }
+
+    /**
+     * Writes the name of each column, which are the step, the environments energy, then each agents statistics.
+     * @param writer the writer to write to
+     */
+    private void writeHeader(PrintWriter writer) {
+        String[] statNames = new String[]{"population", "energy", "lifespan", "born", "size", "creation size", "range"};
+        StringBuilder header = new StringBuilder("step,environment energy");
+        Object[] agentNames = simulation.getDiagnostics().getAgentStats()[0];
+        for (Object agentName : agentNames) {
+            for (String statName : statNames) {
+                header.append(",").append(agentName).append(" ").append(statName);
+            }
+        }
+        writer.println(header);
+    }
+
+    /**
+     * Writes the current steps statistics as one row.
+     * @param writer the writer to write to
+     */
+    private void writeStep(PrintWriter writer) {
+        Object[][] agentStats = simulation.getDiagnostics().getAgentStats();
+        StringBuilder row = new StringBuilder();
+        row.append(simulation.getDiagnostics().getStep()).append(",").append(simulation.getDiagnostics().getCurrentEnvironmentEnergy());
+        for (int i = 0; i < agentStats[0].length; i++) {
+            for (int j = 1; j < agentStats.length; j++) {
+                row.append(",").append(agentStats[j][i]);
+            }
+        }
+        writer.println(row);
+    }
+
+    /**
+     * Reads a SimulationSettings object from the input file.
+     * @param file a .dat file written by the MainController
+     */
+    public static SimulationSettings readSimulationSettings(File file) throws IOException {
+        return SimulationPreset.read(file);
+    }
+
+    public Simulation getSimulation() {
+        return simulation;
+    }
+}
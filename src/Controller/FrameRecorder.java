@@ -0,0 +1,291 @@
+package Controller;
+
+import javax.imageio.*;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records the frames of a running {@code Simulation} to disk, as numbered PNG images or a single animated GIF, without
+ * the simulation thread ever waiting on disk or compression.
+ * <p>
+ * After each step the simulation thread offers the rendered environment. Every Nth step is copied into one of a fixed
+ * pool of frame images and handed to a bounded queue, which a pool of encoder threads takes from and writes with
+ * {@code ImageIO}. There are only ever as many frame images as the queue can hold plus the number of encoders, so when the
+ * encoders fall behind and no frame image is free the step is dropped, and counted, rather than growing the heap.
+ * <p>
+ * PNG images are written by as many encoders as there are spare processors, each named after the step it was taken at.
+ * GIF frames have to be written in order to a single stream, so they're written by one encoder.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class FrameRecorder {
+
+    /**
+     * The formats frames can be recorded in.
+     */
+    public enum Format {
+        // A numbered PNG image per frame, written to a directory
+        PNG,
+        // A single animated GIF
+        GIF
+    }
+
+    // How many frames can wait in the queue for an encoder
+    private static final int QUEUE_CAPACITY = 8;
+    // How long each GIF frame is shown for, in hundredths of a second
+    private static final int GIF_FRAME_DELAY = 4;
+
+    // The format frames are written in
+    private final Format format;
+    // The directory PNG images are written to, or the GIF file
+    private final File output;
+    // Only every stepInterval-th step is recorded
+    private final int stepInterval;
+    // Runs the encoders, taking frames from a bounded queue
+    private final ThreadPoolExecutor encoders;
+    // One permit per frame image, a frame is dropped if none are free
+    private final Semaphore freeFrames;
+    // Frame images which have been written and can be reused
+    private final ConcurrentLinkedQueue<BufferedImage> spareImages = new ConcurrentLinkedQueue<>();
+    // Reports the recordings progress and errors
+    private final Consumer<String> log;
+    // How many frames have been written, dropped and failed to write
+    private final AtomicLong writtenFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong failedFrames = new AtomicLong();
+    // The GIF writer and the stream it writes to, null when recording PNG images, only used by the encoder
+    private ImageWriter gifWriter;
+    private ImageOutputStream gifStream;
+    // Set once stop() has been called
+    private volatile boolean stopped;
+    // Waits for the encoders to finish after stop() is called
+    private volatile Thread finisher;
+
+    /**
+     * @param format the format frames are written in
+     * @param output the directory PNG images are written to, which is created if needed, or the GIF file
+     * @param stepInterval only steps which are a multiple of this are recorded, values below 1 are treated as 1
+     * @param log reports the recordings progress and errors, called from the encoder threads
+     */
+    public FrameRecorder(Format format, File output, int stepInterval, Consumer<String> log) throws IOException {
+        this.format = format;
+        this.output = output;
+        this.stepInterval = Math.max(stepInterval, 1);
+        this.log = log;
+        int encoderCount = format == Format.GIF ? 1 : Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+        this.freeFrames = new Semaphore(QUEUE_CAPACITY + encoderCount);
+        this.encoders = new ThreadPoolExecutor(encoderCount, encoderCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "Frame Encoder");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        if (format == Format.PNG) {
+            if (!output.isDirectory() && !output.mkdirs()) {
+                throw new IOException("Unable to create directory " + output);
+            }
+        }
+        else {
+            gifWriter = ImageIO.getImageWritersByFormatName("gif").next();
+            gifStream = ImageIO.createImageOutputStream(output);
+            if (gifStream == null) {
+                throw new IOException("Unable to write to " + output);
+            }
+            gifWriter.setOutput(gifStream);
+            gifWriter.prepareWriteSequence(null);
+        }
+    }
+
+    /**
+     * Offers the image rendered after a step, called from the simulation thread.
+     * <p>
+     * If the step is one being recorded and a frame image is free, the image is copied and queued to be written,
+     * otherwise this returns straight away. The input image can be drawn into again as soon as this returns.
+     * @param step the step the image was rendered after
+     * @param image the rendered environment
+     */
+    public void offerFrame(long step, BufferedImage image) {
+        if (!isRecordedStep(step)) {
+            return;
+        }
+        if (!freeFrames.tryAcquire()) {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        BufferedImage frame = copyImage(image);
+        try {
+            encoders.execute(() -> writeFrame(step, frame));
+        } catch (RejectedExecutionException e) {
+            // Stopped while the frame was being copied
+            freeFrames.release();
+        }
+    }
+
+    /**
+     * Returns true if the input step would be recorded, so the caller can skip rendering steps which won't be.
+     * @param step the step
+     */
+    public boolean isRecordedStep(long step) {
+        return !stopped && step % stepInterval == 0;
+    }
+
+    /**
+     * Stops recording. Frames already queued are still written, after which the GIF, if there is one, is finished and a
+     * summary is logged. Returns straight away.
+     */
+    public void stop() {
+        stopped = true;
+        encoders.shutdown();
+        finisher = new Thread(() -> {
+            try {
+                encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                if (gifWriter != null) {
+                    gifWriter.endWriteSequence();
+                    gifStream.close();
+                    gifWriter.dispose();
+                }
+            } catch (InterruptedException | IOException e) {
+                log.accept("[RECORDING]: Unable to finish writing " + output + ".");
+            }
+            log.accept("[RECORDING]: Recording stopped, " + writtenFrames.get() + " frames written to " + output + ", "
+                    + droppedFrames.get() + " dropped" + (failedFrames.get() > 0 ? ", " + failedFrames.get() + " failed." : "."));
+        }, "Frame Recorder Finisher");
+        finisher.start();
+    }
+
+    /**
+     * Waits until every queued frame has been written and the recording finished, so nothing is lost when the
+     * application exits. Returns straight away if stop() hasn't been called.
+     */
+    public void awaitFinished() throws InterruptedException {
+        Thread finisher = this.finisher;
+        if (finisher != null) {
+            finisher.join();
+        }
+    }
+
+    /**
+     * Returns how many frames have been dropped because the encoders fell behind.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Returns how many frames have been written.
+     */
+    public long getWrittenFrames() {
+        return writtenFrames.get();
+    }
+
+    /**
+     * Copies the input image into a spare frame image, making a new one if there are none with the same size and color
+     * model.
+     * @param source the rendered environment
+     */
+    private BufferedImage copyImage(BufferedImage source) {
+        BufferedImage image = spareImages.poll();
+        if (image == null || image.getColorModel() != source.getColorModel()
+                || image.getWidth() != source.getWidth() || image.getHeight() != source.getHeight()) {
+            image = new BufferedImage(source.getColorModel(), source.getRaster().createCompatibleWritableRaster(), false, null);
+        }
+        DataBuffer sourceBuffer = source.getRaster().getDataBuffer();
+        DataBuffer imageBuffer = image.getRaster().getDataBuffer();
+        if (sourceBuffer instanceof DataBufferUShort sourceIndexes) {
+            System.arraycopy(sourceIndexes.getData(), 0, ((DataBufferUShort) imageBuffer).getData(), 0, sourceIndexes.getSize());
+        }
+        else {
+            System.arraycopy(((DataBufferInt) sourceBuffer).getData(), 0, ((DataBufferInt) imageBuffer).getData(), 0, sourceBuffer.getSize());
+        }
+        return image;
+    }
+
+    /**
+     * Writes a frame, then frees its image for reuse. Called on an encoder thread.
+     * @param step the step the frame was taken after
+     * @param frame the frame image
+     */
+    private void writeFrame(long step, BufferedImage frame) {
+        try {
+            BufferedImage image = toEncodableImage(frame);
+            if (format == Format.PNG) {
+                ImageIO.write(image, "png", new File(output, String.format("frame_%010d.png", step)));
+            }
+            else {
+                gifWriter.writeToSequence(new IIOImage(image, null, getGifMetadata(image)), null);
+            }
+            writtenFrames.incrementAndGet();
+        } catch (IOException e) {
+            if (failedFrames.getAndIncrement() == 0) {
+                log.accept("[RECORDING]: Unable to write a frame to " + output + ".");
+            }
+        } finally {
+            spareImages.offer(frame);
+            freeFrames.release();
+        }
+    }
+
+    /**
+     * Returns the input image if ImageIO can encode it directly, otherwise an RGB copy. Indexed images with 16 bit pixels
+     * can't be written as PNG or GIF palettes, so they're converted.
+     * @param frame the frame image
+     */
+    private BufferedImage toEncodableImage(BufferedImage frame) {
+        if (frame.getType() == BufferedImage.TYPE_INT_RGB) {
+            return frame;
+        }
+        BufferedImage image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+        image.getGraphics().drawImage(frame, 0, 0, null);
+        return image;
+    }
+
+    /**
+     * Returns GIF metadata giving the frame its delay, and making the first frame loop the animation forever.
+     * @param image the frame being written
+     */
+    private IIOMetadata getGifMetadata(BufferedImage image) throws IOException {
+        IIOMetadata metadata = gifWriter.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+        String formatName = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+        IIOMetadataNode control = getChild(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(GIF_FRAME_DELAY));
+        control.setAttribute("transparentColorIndex", "0");
+        if (writtenFrames.get() == 0) {
+            IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+            extension.setAttribute("applicationID", "NETSCAPE");
+            extension.setAttribute("authenticationCode", "2.0");
+            extension.setUserObject(new byte[] {1, 0, 0});
+            getChild(root, "ApplicationExtensions").appendChild(extension);
+        }
+        metadata.setFromTree(formatName, root);
+        return metadata;
+    }
+
+    /**
+     * Returns the child of the input metadata node with the input name, adding it if there isn't one.
+     * @param root the metadata node
+     * @param name the name of the child
+     */
+    private static IIOMetadataNode getChild(IIOMetadataNode root, String name) {
+        for (int i = 0; i < root.getLength(); i++) {
+            if (root.item(i).getNodeName().equalsIgnoreCase(name)) {
+                return (IIOMetadataNode) root.item(i);
+            }
+        }
+        IIOMetadataNode child = new IIOMetadataNode(name);
+        root.appendChild(child);
+        return child;
+    }
+}
@@ -1,14 +1,22 @@
 package Controller;
 import Simulation.Agent.AgentUtility.AgentSettings;
 import Simulation.Agent.AgentUtility.ActiveAgentsSettings;
+import Simulation.Environment.EnvironmentRecorder;
+import Simulation.Environment.EnvironmentRenderer;
 import Simulation.Environment.EnvironmentSettings;
+import Simulation.Environment.ViewportRenderer;
 import Simulation.Simulation;
+import Simulation.SimulationUtility.RewindBuffer;
+import Simulation.SimulationUtility.SimulationCheckpoint;
+import Simulation.SimulationUtility.SimulationPreset;
 import Simulation.SimulationUtility.SimulationSettings;
 import View.UserInterface;
 import org.apache.commons.io.FilenameUtils;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
@@ -31,6 +39,30 @@ public class MainController {
 
     final private SimulationController simulationController;
     final private ViewController viewController;
+    // Keeps the environment image between steps, redrawing only the tiles which changed
+    final private EnvironmentRenderer environmentRenderer = new EnvironmentRenderer();
+    // The length of the simulation panels sides
+    private static final int PANEL_SIZE = 600;
+    // How much each notch of the mouse wheel zooms the view by
+    private static final double ZOOM_STEP = 1.25;
+    // Renders the visible part of the environment when it's bigger than the panel or the view is zoomed in
+    final private ViewportRenderer viewportRenderer = new ViewportRenderer(PANEL_SIZE, PANEL_SIZE);
+    // How many frames are painted per second while the simulation is running
+    private static final int FRAMES_PER_SECOND = 30;
+    // Paints frames published by the running simulation on the event dispatch thread
+    final private RenderLoop renderLoop;
+    // The diagnostics verbosity selected in the diagnostics panel, read on the event dispatch thread for the simulation thread
+    private volatile int diagnosticsVerbosity;
+    // Records frames to disk while set, read by the simulation thread
+    private volatile FrameRecorder frameRecorder;
+    // How many recorded steps apart world state recordings write keyframes
+    private static final int RECORDING_KEYFRAME_INTERVAL = 1000;
+    // Records the world state to disk every step while set
+    private volatile EnvironmentRecorder environmentRecorder;
+    // The most memory the rewind buffers snapshots can take up
+    private static final long REWIND_BYTE_BUDGET = 256L * 1024 * 1024;
+    // Keeps snapshots of recent steps to rewind to while set, offered every step by the simulation thread
+    private volatile RewindBuffer rewindBuffer;
 
     // If the simulation is in the process of being cycled, this flag is true, otherwise it is false.
     private boolean runFlag;
@@ -50,11 +82,13 @@ public class MainController {
         this.view = new UserInterface();
         this.simulation = new Simulation(size, starting_food_level, minFoodLevel, maxFoodLevel, energyRegenChance, energyRegenAmount);
         this.simulationController = new SimulationController();
+        this.renderLoop = new RenderLoop(FRAMES_PER_SECOND, frame -> viewController.paintFrame(frame));
         simulationController.initDiagnostics();
         initController();
         loadOnOpen();
         viewController.initView();
         viewController.deleteLoadingDialog();
+        renderLoop.start();
         this.runFlag = false;
         this.cycleFlag = false;
         this.runningNSteps = false;
@@ -95,6 +129,8 @@ public class MainController {
         view.getLoadEnvironmentSettingsMenuButton().addActionListener(e -> loadEnvironment());
         view.getSaveSettingsMenuButton().addActionListener(e -> saveSettings());
         view.getLoadSettingsMenuButton().addActionListener(e -> loadSettings());
+        view.getSaveCheckpointMenuButton().addActionListener(e -> saveCheckpoint());
+        view.getLoadCheckpointMenuButton().addActionListener(e -> loadCheckpoint());
         view.getToggleControlsButton().addActionListener(e -> viewController.toggleControls());
         view.getTerrainSettings().addActionListener(e -> viewController.openTerrainSettings());
         view.getClearTerrain().addActionListener(e -> simulationController.clearTerrain());
@@ -110,10 +146,41 @@ public class MainController {
         view.getPreset4Button().addActionListener(e -> loadPreset(3));
         view.getPreset5Button().addActionListener(e -> loadPreset(4));
         view.getPreset6Button().addActionListener(e -> loadPreset(5));
+        view.getRecordPngButton().addActionListener(e -> startRecording(FrameRecorder.Format.PNG));
+        view.getRecordGifButton().addActionListener(e -> startRecording(FrameRecorder.Format.GIF));
+        view.getRecordWorldButton().addActionListener(e -> startWorldRecording());
+        view.getStopRecordingButton().addActionListener(e -> stopRecording());
+        view.getRewindToggleButton().addActionListener(e -> toggleRewind());
+        view.getRewindButton().addActionListener(e -> rewind());
+
+        // Add mouse listeners to the simulation panel, the mouse wheel zooms and dragging pans
+        view.getWorldPanel().addMouseWheelListener(e -> viewController.zoomView(e.getWheelRotation(), e.getX(), e.getY()));
+        MouseAdapter panListener = new MouseAdapter() {
+            private Point lastPoint;
+            @Override
+            public void mousePressed(MouseEvent e) {
+                lastPoint = e.getPoint();
+            }
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                viewController.panView(e.getX() - lastPoint.x, e.getY() - lastPoint.y);
+                lastPoint = e.getPoint();
+            }
+        };
+        view.getWorldPanel().addMouseListener(panListener);
+        view.getWorldPanel().addMouseMotionListener(panListener);
 
         // Add window listener to mainView
         view.addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
+                FrameRecorder recorder = frameRecorder;
+                stopRecording();
+                if (recorder != null) {
+                    try {
+                        recorder.awaitFinished();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
                 saveOnClose();
             }
         });
@@ -159,14 +226,16 @@ public class MainController {
 
         // Runs the simulation until the run flag is set to false
         public void runSimulation() {
+            diagnosticsVerbosity = view.getDiagnosticsPanel().getDiagnosticsVerbosity();
             SwingWorker<Void, BufferedImage> swingWorker = new SwingWorker<Void, BufferedImage>() {
                 @Override
                 protected Void doInBackground() throws Exception {
                     while (runFlag) {
                         cycleFlag = true;
-                        runStep();
+                        runBackgroundStep();
                         cycleFlag = false;
                     }
+                    publishLastStep();
                     return null;
                 }
             };
@@ -175,22 +244,24 @@ public class MainController {
 
         // Runs the simulation for a set number of steps or until the toggleSimulation() method is called
         public void runSimulation(int stepsToRun) {
+            diagnosticsVerbosity = view.getDiagnosticsPanel().getDiagnosticsVerbosity();
             SwingWorker<Void, BufferedImage> swingWorker = new SwingWorker<Void, BufferedImage>() {
                 @Override
                 protected Void doInBackground() throws Exception {
                     runningNSteps = true;
-                    viewController.toggleSimulationControls(true);
+                    SwingUtilities.invokeLater(() -> viewController.toggleSimulationControls(true));
                     for (int i = 0; i < stepsToRun; i++) {
                         if (!runningNSteps) {
-                            viewController.toggleSimulationControls(false);
-                            viewController.logMsg("[SIMULATION]: Simulation ran for " + i + " steps.");
+                            int stepsRan = i;
+                            SwingUtilities.invokeLater(() -> viewController.logMsg("[SIMULATION]: Simulation ran for " + stepsRan + " steps."));
                             break;
                         }
                         cycleFlag = true;
-                        runStep();
+                        runBackgroundStep();
                         cycleFlag = false;
                     }
-                    viewController.toggleSimulationControls(false);
+                    publishLastStep();
+                    SwingUtilities.invokeLater(() -> viewController.toggleSimulationControls(false));
                     runningNSteps = false;
                     return null;
                 }
@@ -203,6 +274,7 @@ public class MainController {
             simulation.setDiagnosticsVerbosity(view.getDiagnosticsPanel().getDiagnosticsVerbosity());
             simulation.cycle();
             simulation.getDiagnostics().iterateStep();
+            recordStep();
             viewController.updateDiagnosticsPanel();
             viewController.updateSimulationView();
             if (simulation.getDiagnostics().logMessagesInQueue()) {
@@ -210,6 +282,57 @@ public class MainController {
             }
         }
 
+        // Runs the simulation for one step on the simulation thread, then offers a frame to the render loop, which drops it if
+        // the last frame hasn't been painted yet, and to the frame recorder if recording. The environment is rendered at most
+        // once and shared between them
+        private void runBackgroundStep() {
+            simulation.setDiagnosticsVerbosity(diagnosticsVerbosity);
+            simulation.cycle();
+            simulation.getDiagnostics().iterateStep();
+            BufferedImage recordedImage = recordStep();
+            renderLoop.offerFrame(simulation.getDiagnostics(), () -> recordedImage != null ? recordedImage : viewController.renderEnvironment());
+        }
+
+        // Records the world state if recording it, offers the step to the rewind buffer if rewinding is enabled, then renders the environment and offers it to the frame recorder if this
+        // step is being recorded, returning the rendered image, or null if it wasn't rendered
+        private BufferedImage recordStep() {
+            long step = simulation.getDiagnostics().getStep();
+            EnvironmentRecorder worldRecorder = environmentRecorder;
+            if (worldRecorder != null) {
+                try {
+                    worldRecorder.recordStep(step, simulation.getEnvironment());
+                } catch (IOException e) {
+                    SwingUtilities.invokeLater(() -> {
+                        viewController.logMsg("[RECORDING]: Something has gone wrong, the world state recording has stopped.");
+                        stopRecording();
+                    });
+                }
+            }
+            RewindBuffer rewind = rewindBuffer;
+            if (rewind != null) {
+                try {
+                    rewind.offerStep(simulation);
+                } catch (IOException e) {
+                    SwingUtilities.invokeLater(() -> {
+                        viewController.logMsg("[REWIND]: Something has gone wrong, rewinding has been disabled.");
+                        toggleRewind();
+                    });
+                }
+            }
+            FrameRecorder recorder = frameRecorder;
+            if (recorder == null || !recorder.isRecordedStep(step)) {
+                return null;
+            }
+            BufferedImage image = viewController.renderEnvironment();
+            recorder.offerFrame(step, image);
+            return image;
+        }
+
+        // Publishes a frame of the last step run, so it's always painted once the simulation stops
+        private void publishLastStep() {
+            renderLoop.publishFrame(simulation.getDiagnostics(), () -> viewController.renderEnvironment());
+        }
+
         // Calls the runStep method once if the simulation is not currently running
         public void runOneStep() {
             if (!cycleFlag) {
@@ -336,9 +459,58 @@ public class MainController {
             updateAgentEditorPanel();
         }
 
-        // Updates the environment image to reflect the environment in the model
+        // Updates the environment image to reflect the environment in the model. While the simulation is running the image is
+        // painted from the render loops frames instead
         public void updateSimulationView() {
-            view.updateSimulationPanel(simulation.getEnvironment().toBufferedImage(scale));
+            if (runFlag || runningNSteps) {
+                return;
+            }
+            view.updateSimulationPanel(renderEnvironment());
+        }
+
+        // Renders the environment, with the viewport renderer if the environment is bigger than the panel or the view is zoomed
+        // in, otherwise with the environment renderer which only redraws the tiles that changed
+        public BufferedImage renderEnvironment() {
+            int size = simulation.getEnvironment().getSize();
+            if (size > PANEL_SIZE || viewportRenderer.isZoomedIn(size)) {
+                return viewportRenderer.render(simulation.getEnvironment());
+            }
+            return environmentRenderer.render(simulation.getEnvironment(), scale);
+        }
+
+        // Zooms the view in or out around the mouse by the number of mouse wheel notches turned
+        public void zoomView(int notches, int x, int y) {
+            viewportRenderer.setWorldSize(simulation.getEnvironment().getSize());
+            viewportRenderer.zoom(Math.pow(ZOOM_STEP, -notches), x - getImageOffset(), y - getImageOffset());
+            updateSimulationView();
+        }
+
+        // Moves the view by the input number of pixels
+        public void panView(int x, int y) {
+            viewportRenderer.setWorldSize(simulation.getEnvironment().getSize());
+            viewportRenderer.pan(x, y);
+            updateSimulationView();
+        }
+
+        // Returns how far the environment image is drawn from the panels edges, as smaller images are centered
+        private int getImageOffset() {
+            int size = simulation.getEnvironment().getSize();
+            if (size > PANEL_SIZE || viewportRenderer.isZoomedIn(size)) {
+                return 0;
+            }
+            return (PANEL_SIZE - size * Math.max(scale, 1)) / 2;
+        }
+
+        // Paints a frame published by the running simulation, then picks up the diagnostics verbosity for the next steps
+        public void paintFrame(RenderLoop.Frame frame) {
+            view.updateSimulationPanel(frame.image());
+            view.getDiagnosticsPanel().setAgentStats(frame.agentStats());
+            view.getDiagnosticsPanel().setStepLabel(frame.step());
+            view.getDiagnosticsPanel().setEnvironmentStats(frame.environmentStats());
+            if (frame.logMessages() != null) {
+                logMsg(frame.logMessages());
+            }
+            diagnosticsVerbosity = view.getDiagnosticsPanel().getDiagnosticsVerbosity();
         }
 
         // Add a log message to the diagnostics panels text log
@@ -429,41 +601,159 @@ public class MainController {
         try {
             File file = new File("data\\settings.dat");
             if (file.exists()) {
-                FileInputStream fileInputStream = new FileInputStream(file);
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
-                ObjectInputStream objectInputStream = new ObjectInputStream(bufferedInputStream);
-
-                SimulationSettings simulationSettings = (SimulationSettings) objectInputStream.readObject();
+                SimulationSettings simulationSettings = SimulationPreset.read(file);
                 scale = 600 / simulationSettings.getEnvironmentSettings().getSize();
                 simulationController.setSimulationSettings(simulationSettings);
                 viewController.updateView();
 
-                objectInputStream.close();
-
                 viewController.logMsg("[SYSTEM]: Settings Loaded.");
             }
             else {
                 viewController.logMsg("[SYSTEM]: No settings found.");
             }
 
-        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        } catch (IOException e) {
             viewController.logMsg("[SYSTEM]: Something went wrong and the file could not be read.");
             System.out.println(e);
         }
     }
 
-    public void saveOnClose() {
+    // Asks for where to record to and which steps to record, then starts recording frames in the input format
+    public void startRecording(FrameRecorder.Format format) {
+        String interval = JOptionPane.showInputDialog(view, "Record every Nth step, N:", 1);
+        if (interval == null) {
+            return;
+        }
+        int stepInterval;
         try {
-            File file = new File("src\\data\\settings.dat");
-            FileOutputStream fileOutputStream = new FileOutputStream(file);
-            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(bufferedOutputStream);
+            stepInterval = Integer.parseInt(interval.trim());
+        } catch (NumberFormatException e) {
+            viewController.logMsg("[RECORDING]: The step interval must be a whole number.");
+            return;
+        }
+        if (view.getFileChooser().showSaveDialog(view) == JFileChooser.APPROVE_OPTION) { // User has provided a path
+            File file = view.getFileChooser().getSelectedFile();
+            if (format == FrameRecorder.Format.GIF && !FilenameUtils.getExtension(file.getPath()).equals("gif")) {
+                viewController.logMsg("[RECORDING]: File type must be .gif.");
+                return;
+            }
+            try {
+                frameRecorder = new FrameRecorder(format, file, stepInterval, msg -> SwingUtilities.invokeLater(() -> viewController.logMsg(msg)));
+                view.setRecording(true);
+                viewController.logMsg("[RECORDING]: Recording every " + Math.max(stepInterval, 1) + " steps to " + file + ".");
+            } catch (IOException e) {
+                viewController.logMsg("[RECORDING]: Something has gone wrong, unable to record to " + file + ".");
+            }
+        }
+    }
+
+    // Asks for a file, then records the world state to it every step
+    public void startWorldRecording() {
+        if (view.getFileChooser().showSaveDialog(view) == JFileChooser.APPROVE_OPTION) { // User has provided a path
+            File file = view.getFileChooser().getSelectedFile();
+            try {
+                environmentRecorder = new EnvironmentRecorder(file, RECORDING_KEYFRAME_INTERVAL);
+                view.setRecording(true);
+                viewController.logMsg("[RECORDING]: Recording the world state to " + file + ".");
+            } catch (IOException e) {
+                viewController.logMsg("[RECORDING]: Something has gone wrong, unable to record to " + file + ".");
+            }
+        }
+    }
+
+    // Stops recording, the frames already queued are finished in the background
+    public void stopRecording() {
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            frameRecorder = null;
+            recorder.stop();
+        }
+        EnvironmentRecorder worldRecorder = environmentRecorder;
+        if (worldRecorder != null) {
+            environmentRecorder = null;
+            try {
+                worldRecorder.close();
+                viewController.logMsg("[RECORDING]: Recording stopped, " + worldRecorder.getRecordCount() + " steps recorded in "
+                        + worldRecorder.getBytesWritten() / 1024 + " KB.");
+            } catch (IOException e) {
+                viewController.logMsg("[RECORDING]: Something has gone wrong, unable to finish the world state recording.");
+            }
+        }
+        view.setRecording(false);
+    }
 
-            SimulationSettings simulationSettings = simulationController.getSimulationSettings();
+    // Asks how often to take snapshots, then keeps snapshots to rewind to, or stops keeping them if already enabled
+    public void toggleRewind() {
+        if (rewindBuffer != null) {
+            rewindBuffer = null;
+            view.setRewinding(false);
+            viewController.logMsg("[REWIND]: Rewinding disabled.");
+            return;
+        }
+        String interval = JOptionPane.showInputDialog(view, "Take a snapshot every Nth step, N:", 50);
+        if (interval == null) {
+            return;
+        }
+        int stepInterval;
+        try {
+            stepInterval = Integer.parseInt(interval.trim());
+        } catch (NumberFormatException e) {
+            viewController.logMsg("[REWIND]: The step interval must be a whole number.");
+            return;
+        }
+        rewindBuffer = new RewindBuffer(REWIND_BYTE_BUDGET, stepInterval);
+        view.setRewinding(true);
+        viewController.logMsg("[REWIND]: Taking a snapshot every " + Math.max(stepInterval, 1) + " steps, up to "
+                + REWIND_BYTE_BUDGET / (1024 * 1024) + " MB.");
+    }
 
-            objectOutputStream.writeObject(simulationSettings);
-            objectOutputStream.close();
+    // Asks for a step, then restores the simulation to the newest snapshot at or before it. Recordings are stopped, as the
+    // steps they'd record next have already been recorded
+    public void rewind() {
+        RewindBuffer rewind = rewindBuffer;
+        if (rewind == null) {
+            return;
+        }
+        if (cycleFlag || runFlag || runningNSteps) {
+            viewController.logMsg("[REWIND]: Stop the simulation before rewinding.");
+            return;
+        }
+        if (rewind.getSnapshotCount() == 0) {
+            viewController.logMsg("[REWIND]: No snapshots have been taken yet.");
+            return;
+        }
+        String target = JOptionPane.showInputDialog(view, "Rewind to step (oldest " + rewind.getOldestStep() + "):", rewind.getOldestStep());
+        if (target == null) {
+            return;
+        }
+        long step;
+        try {
+            step = Long.parseLong(target.trim());
+        } catch (NumberFormatException e) {
+            viewController.logMsg("[REWIND]: The step must be a whole number.");
+            return;
+        }
+        try {
+            long restoredStep = rewind.rewind(simulation, step);
+            if (restoredStep < 0) {
+                viewController.logMsg("[REWIND]: No snapshot is that old, the oldest is step " + rewind.getOldestStep() + ".");
+                return;
+            }
+            stopRecording();
+            scale = 600 / simulation.getEnvironment().getSize();
+            viewController.updateEnvironmentSettingsPanel();
+            viewController.updateDiagnosticsPanel();
+            viewController.updateSimulationView();
+            viewController.logMsg("[REWIND]: Rewound to step " + restoredStep + ".");
+        } catch (IOException e) {
+            viewController.logMsg("[REWIND]: Something has gone wrong, unable to rewind.");
+        }
+    }
 
+    public void saveOnClose() {
+        try {
+            File file = new File("src\\data\\settings.dat");
+            SimulationPreset.write(simulationController.getSimulationSettings(), file);
 
         } catch (IOException e) {
             System.out.println("eh");
@@ -476,14 +766,7 @@ public class MainController {
             File file = view.getFileChooser().getSelectedFile();
             if (FilenameUtils.getExtension(file.getPath()).equals("dat")) {
                 try {
-                    FileOutputStream fileOutputStream = new FileOutputStream(file);
-                    BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);
-                    ObjectOutputStream objectOutputStream = new ObjectOutputStream(bufferedOutputStream);
-
-                    SimulationSettings simulationSettings = simulationController.getSimulationSettings();
-
-                    objectOutputStream.writeObject(simulationSettings);
-                    objectOutputStream.close();
+                    SimulationPreset.write(simulationController.getSimulationSettings(), file);
 
                     viewController.logMsg("[SYSTEM]: Settings Saved.");
 
@@ -502,19 +785,13 @@ public class MainController {
             File file = view.getFileChooser().getSelectedFile();
             if (FilenameUtils.getExtension(file.getPath()).equals("dat")) {
                 try {
-                    FileInputStream fileInputStream = new FileInputStream(file);
-                    BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
-                    ObjectInputStream objectInputStream = new ObjectInputStream(bufferedInputStream);
-
-                    SimulationSettings simulationSettings = (SimulationSettings) objectInputStream.readObject();
+                    SimulationSettings simulationSettings = SimulationPreset.read(file);
                     scale = 600 / simulationSettings.getEnvironmentSettings().getSize();
                     simulationController.setSimulationSettings(simulationSettings);
                     viewController.updateView();
 
-                    objectInputStream.close();
-
                     viewController.logMsg("[SYSTEM]: Settings Loaded.");
-                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                } catch (IOException e) {
                     viewController.logMsg("[SYSTEM]: Something went wrong and the file could not be read.");
                 }
             }
@@ -632,28 +909,80 @@ public class MainController {
         }
     }
 
+    // Saves the full state of the simulation, its agents, environment and diagnostics, to a checkpoint file
+    public void saveCheckpoint() {
+        if (cycleFlag || runFlag || runningNSteps) {
+            viewController.logMsg("[SYSTEM]: Stop the simulation before saving a checkpoint.");
+            return;
+        }
+        if (view.getFileChooser().showSaveDialog(view) == JFileChooser.APPROVE_OPTION) { // User has provided a path
+            File file = view.getFileChooser().getSelectedFile();
+            if (FilenameUtils.getExtension(file.getPath()).equals("ckpt")) {
+                int compress = JOptionPane.showConfirmDialog(view, "Compress the checkpoint? Compressed checkpoints are far smaller but slower to save.",
+                        "Save Checkpoint", JOptionPane.YES_NO_CANCEL_OPTION);
+                if (compress == JOptionPane.CANCEL_OPTION || compress == JOptionPane.CLOSED_OPTION) {
+                    return;
+                }
+                try {
+                    long bytes = SimulationCheckpoint.write(simulation, file, compress == JOptionPane.YES_OPTION);
+                    viewController.logMsg("[SYSTEM]: Checkpoint of step " + simulation.getDiagnostics().getStep() + " saved, " + bytes / 1024 + " KB.");
+                } catch (IOException e) {
+                    viewController.logMsg("[SYSTEM]: Something has gone wrong, unable to save file.");
+                }
+            }
+            else {
+                viewController.logMsg("[SYSTEM]: File type must be .ckpt.");
+            }
+        }
+    }
+
+    // Restores the simulation from a checkpoint file. Recordings are stopped, as the checkpoint belongs to a different run
+    public void loadCheckpoint() {
+        if (cycleFlag || runFlag || runningNSteps) {
+            viewController.logMsg("[SYSTEM]: Stop the simulation before loading a checkpoint.");
+            return;
+        }
+        if (view.getFileChooser().showOpenDialog(view) == JFileChooser.APPROVE_OPTION) { // User has provided a path
+            File file = view.getFileChooser().getSelectedFile();
+            if (FilenameUtils.getExtension(file.getPath()).equals("ckpt")) {
+                try {
+                    long step = SimulationCheckpoint.read(simulation, file);
+                    stopRecording();
+                    scale = 600 / simulation.getEnvironment().getSize();
+                    viewController.updateEnvironmentSettingsPanel();
+                    viewController.updateDiagnosticsPanel();
+                    viewController.updateSimulationView();
+                    viewController.logMsg("[SYSTEM]: Checkpoint of step " + step + " loaded.");
+                } catch (IOException e) {
+                    viewController.logMsg("[SYSTEM]: Something went wrong and the file could not be read.");
+                }
+            }
+            else {
+                viewController.logMsg("[SYSTEM]: File type must be .ckpt.");
+            }
+        }
+    }
+
     public void loadPreset(int index) {
         try {
             File file = new File("src\\data\\presets\\" + index + ".dat");
             if (file.exists()) {
-                FileInputStream fileInputStream = new FileInputStream(file);
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
-                ObjectInputStream objectInputStream = new ObjectInputStream(bufferedInputStream);
-
-                SimulationSettings simulationSettings = (SimulationSettings) objectInputStream.readObject();
+                // Presets saved with Java serialization are converted the first time they're loaded
+                if (SimulationPreset.convert(file)) {
+                    viewController.logMsg("[SYSTEM]: Preset converted to the new format.");
+                }
+                SimulationSettings simulationSettings = SimulationPreset.read(file);
                 scale = 600 / simulationSettings.getEnvironmentSettings().getSize();
                 simulationController.setSimulationSettings(simulationSettings);
                 viewController.updateView();
 
-                objectInputStream.close();
-
                 viewController.logMsg("[SYSTEM]: Settings Loaded.");
             }
             else {
                 viewController.logMsg("[SYSTEM]: No settings found.");
             }
 
-        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        } catch (IOException e) {
             viewController.logMsg("[SYSTEM]: Something went wrong and the file could not be read.");
             System.out.println(e);
         }
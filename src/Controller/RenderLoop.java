@@ -0,0 +1,167 @@
+package Controller;
+
+import Simulation.Diagnostics.Diagnostics;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Passes frames from the thread running the {@code Simulation} to the event dispatch thread, so the simulation never
+ * waits for the {@code UserInterface} to paint.
+ * <p>
+ * After each step the simulation thread offers a frame. If the last frame hasn't been painted yet the new one is
+ * dropped, otherwise the environment is rendered and published, along with a copy of the diagnostics, as an immutable
+ * {@code Frame}. A Swing timer takes the latest frame at a fixed number of frames per second and paints it on the event
+ * dispatch thread.
+ * <p>
+ * Frame images are triple buffered: one is displayed, one waits to be painted, and the third is written to by the
+ * simulation thread. They share the rendered images color model, so indexed images stay indexed. Log messages are never dropped, those from dropped frames are carried into the next published one.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class RenderLoop {
+
+    /**
+     * A snapshot of the simulation after a step, safe to read from any thread.
+     * @param image the rendered environment
+     * @param agentStats a copy of the diagnostics agent statistics
+     * @param environmentStats a copy of the diagnostics environment statistics
+     * @param step the step the frame was taken after
+     * @param logMessages every log message since the last published frame, or null if there were none
+     */
+    public record Frame(BufferedImage image, Object[][] agentStats, Object[] environmentStats, long step, String logMessages) {}
+
+    // The latest published frame, null once it has been painted
+    private final AtomicReference<Frame> pendingFrame = new AtomicReference<>();
+    // An image which is neither displayed nor pending, reused for the next frame
+    private final AtomicReference<BufferedImage> spareImage = new AtomicReference<>();
+    // Log messages waiting for the next published frame, only used by the simulation thread
+    private final StringBuilder logMessages = new StringBuilder();
+    // Paints frames on the event dispatch thread
+    private final Consumer<Frame> painter;
+    // Takes frames at the set frame rate
+    private final Timer timer;
+    // The image currently displayed, only used by the event dispatch thread
+    private BufferedImage displayedImage;
+
+    /**
+     * @param framesPerSecond how many frames should be painted per second
+     * @param painter paints a frame, called on the event dispatch thread
+     */
+    public RenderLoop(int framesPerSecond, Consumer<Frame> painter) {
+        this.painter = painter;
+        this.timer = new Timer(1000 / Math.max(framesPerSecond, 1), e -> paintPendingFrame());
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Sets how many frames are painted per second.
+     * @param framesPerSecond the new frame rate
+     */
+    public void setFramesPerSecond(int framesPerSecond) {
+        timer.setDelay(1000 / Math.max(framesPerSecond, 1));
+    }
+
+    /**
+     * Offers a frame after a step, called from the simulation thread.
+     * <p>
+     * The diagnostics log queue is always emptied. The image is only rendered, and the frame published, if the last
+     * frame has already been painted.
+     * @param diagnostics the simulations diagnostics
+     * @param image renders the environment, only called if the frame is published
+     */
+    public void offerFrame(Diagnostics diagnostics, Supplier<BufferedImage> image) {
+        queueLogMessages(diagnostics);
+        if (pendingFrame.get() == null) {
+            pendingFrame.set(newFrame(diagnostics, image.get()));
+        }
+    }
+
+    /**
+     * Publishes a frame even if the last one hasn't been painted, replacing it. Used so the final step of a run is
+     * always shown.
+     * @param diagnostics the simulations diagnostics
+     * @param image renders the environment
+     */
+    public void publishFrame(Diagnostics diagnostics, Supplier<BufferedImage> image) {
+        queueLogMessages(diagnostics);
+        Frame replaced = pendingFrame.getAndSet(null);
+        if (replaced != null) {
+            spareImage.set(replaced.image());
+            if (replaced.logMessages() != null) {
+                logMessages.insert(0, logMessages.isEmpty() ? replaced.logMessages() : replaced.logMessages() + "\n");
+            }
+        }
+        pendingFrame.set(newFrame(diagnostics, image.get()));
+    }
+
+    /**
+     * Moves the diagnostics log messages into logMessages.
+     * @param diagnostics the simulations diagnostics
+     */
+    private void queueLogMessages(Diagnostics diagnostics) {
+        if (diagnostics.logMessagesInQueue()) {
+            if (!logMessages.isEmpty()) {
+                logMessages.append("\n");
+            }
+            logMessages.append(diagnostics.printLogQueue());
+        }
+    }
+
+    /**
+     * Copies the image and diagnostics into a new frame, taking every queued log message with it.
+     * @param diagnostics the simulations diagnostics
+     * @param source the rendered environment, which the simulation thread keeps drawing into
+     */
+    private Frame newFrame(Diagnostics diagnostics, BufferedImage source) {
+        BufferedImage image = spareImage.getAndSet(null);
+        if (image == null || image.getColorModel() != source.getColorModel()
+                || image.getWidth() != source.getWidth() || image.getHeight() != source.getHeight()) {
+            image = new BufferedImage(source.getColorModel(), source.getRaster().createCompatibleWritableRaster(), false, null);
+        }
+        DataBuffer sourceBuffer = source.getRaster().getDataBuffer();
+        DataBuffer imageBuffer = image.getRaster().getDataBuffer();
+        if (sourceBuffer instanceof DataBufferUShort sourceIndexes) {
+            System.arraycopy(sourceIndexes.getData(), 0, ((DataBufferUShort) imageBuffer).getData(), 0, sourceIndexes.getSize());
+        }
+        else {
+            System.arraycopy(((DataBufferInt) sourceBuffer).getData(), 0, ((DataBufferInt) imageBuffer).getData(), 0, sourceBuffer.getSize());
+        }
+        Object[][] agentStats = diagnostics.getAgentStats();
+        for (int i = 0; i < agentStats.length; i++) {
+            agentStats[i] = agentStats[i].clone();
+        }
+        String messages = logMessages.isEmpty() ? null : logMessages.toString();
+        logMessages.setLength(0);
+        return new Frame(image, agentStats, diagnostics.getEnvironmentStats(), diagnostics.getStep(), messages);
+    }
+
+    /**
+     * Paints the pending frame if there is one, then keeps the previously displayed image as the spare.
+     */
+    private void paintPendingFrame() {
+        Frame frame = pendingFrame.getAndSet(null);
+        if (frame == null) {
+            return;
+        }
+        painter.accept(frame);
+        if (displayedImage != null) {
+            spareImage.set(displayedImage);
+        }
+        displayedImage = frame.image();
+    }
+}
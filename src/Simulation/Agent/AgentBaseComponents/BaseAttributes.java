@@ -2,12 +2,17 @@ package Simulation.Agent.AgentBaseComponents;
 
 import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentStructs.ColorModel;
+import Simulation.Agent.AgentUtility.AgentColors;
+import Simulation.Agent.AgentUtility.DerivedAttributes;
 
 import java.awt.*;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
-public abstract class BaseAttributes implements Attributes, Serializable {
+public abstract class BaseAttributes implements Attributes, Serializable, Cloneable {
+
+    // Matches the version written to older .dat files, the random field they hold is ignored when read
+    private static final long serialVersionUID = 5935842745186224580L;
 
     // The weight used by the Simulation class when it populates the environment
     private int spawningWeight;
@@ -48,9 +53,11 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     private ColorModel colorModel;
     // An integer value which defines the boundaries for how much this agents color will randomly change by.
     private int randomColorModelMagnitude = 5;
-
-    // The random instance used for decisions within the class
-    final private Random random = new Random();
+    // The index of the display color in AgentColors plus one, 0 until it's first needed or after the color changes.
+    // Transient as indexes aren't kept between runs
+    private transient int colorIndex;
+    // True once GenotypeCache has interned these attributes, they're then shared between agents so can't be changed
+    private transient boolean interned;
 
     /**
      * Constructs a BaseAttributes object using the input parameters.
@@ -86,9 +93,10 @@ public abstract class BaseAttributes implements Attributes, Serializable {
      * <p>
      * The constructor takes two Attributes objects and passes them to the
      * generateAttributes() method.
+     * @param random the generator used to choose between the two objects
      */
-    public BaseAttributes(Attributes attributesA, Attributes attributesB) {
-        this.generateAttributes(attributesA, attributesB);
+    public BaseAttributes(Attributes attributesA, Attributes attributesB, RandomGenerator random) {
+        this.generateAttributes(attributesA, attributesB, random);
     }
 
     /**
@@ -99,23 +107,26 @@ public abstract class BaseAttributes implements Attributes, Serializable {
      * randomly taken from either input with an equal chance for either to be taken.
      * @param attributesA the first set of Attributes
      * @param attributesB the second set of Attributes
+     * @param random the generator used to choose between the two sets
      */
     @Override
-    public void generateAttributes(Attributes attributesA, Attributes attributesB) {
+    public void generateAttributes(Attributes attributesA, Attributes attributesB, RandomGenerator random) {
+        checkNotInterned();
         this.mutationChance = attributesA.getMutationChance();
         this.ID =  attributesA.getID();
         this.name = attributesA.getName();
         this.spawningWeight = attributesA.getSpawningWeight();
         this.colorModel = attributesA.getColorModel();
         this.randomColorModelMagnitude = attributesA.getRandomColorModelMagnitude();
+        this.colorIndex = 0;
 
-        this.seedColor = (Color) getChoice(attributesA.getSeedColor(), attributesB.getSeedColor());
-        this.mutatingColor = (Color) getChoice(attributesA.getMutatingColor(), attributesB.getMutatingColor());
-        this.size = (int) getChoice(attributesA.getSize(), attributesB.getSize());
-        this.creationSize = (int) getChoice(attributesA.getCreationSize(), attributesB.getCreationSize());
-        this.range = (int) getChoice(attributesA.getRange(), attributesB.getRange());
+        this.seedColor = (Color) getChoice(attributesA.getSeedColor(), attributesB.getSeedColor(), random);
+        this.mutatingColor = (Color) getChoice(attributesA.getMutatingColor(), attributesB.getMutatingColor(), random);
+        this.size = (int) getChoice(attributesA.getSize(), attributesB.getSize(), random);
+        this.creationSize = (int) getChoice(attributesA.getCreationSize(), attributesB.getCreationSize(), random);
+        this.range = (int) getChoice(attributesA.getRange(), attributesB.getRange(), random);
         if (getColorModel().equals(ColorModel.RANDOM)) {
-            mutateSeedColor();
+            mutateSeedColor(random);
         }
     }
 
@@ -125,9 +136,10 @@ public abstract class BaseAttributes implements Attributes, Serializable {
      * Sets the seedColor to a new color by taking its RGB channels and adding a
      * randomly generated number between 0 and the magnitude parameter. Values are
      * wrapped around (0-255)
+     * @param random the generator the change to each channel is drawn from
      */
     @Override
-    public void mutateSeedColor() {
+    public void mutateSeedColor(RandomGenerator random) {
         setSeedColor(
                 new Color(
                         overflow255(seedColor.getRed(), random.nextInt(randomColorModelMagnitude)),
@@ -166,22 +178,68 @@ public abstract class BaseAttributes implements Attributes, Serializable {
         return getSeedColor();
     }
 
+    /**
+     * Returns the index of getColor() in AgentColors.
+     * <p>
+     * The index is looked up the first time it's needed, then cached until one of the fields the color depends on is set.
+     */
+    @Override
+    public int getColorIndex() {
+        if (colorIndex == 0) {
+            colorIndex = AgentColors.indexOf(getColor().getRGB()) + 1;
+        }
+        return colorIndex - 1;
+    }
+
     /**
      * Calculates the calculated attributes.
      * <p>
      * Calculates each calculated attribute using the size and creationSize attributes.
      * This needs to happen after an agent has mutated. This is handled in the
      * Simulation.AgentLogic class which is why we can't have this in the constructor.
+     * The values are looked up in the DerivedAttributes tables, which hold the formulas for each attribute.
      */
     @Override
     public void calculateAttributes() {
-        energyCapacity = size*5;
-        energyLostPerTile = (int) Math.round(Math.pow(size, 0.65));
-        eatAmount = (int) Math.round(Math.pow(size, 0.5)) * 2;
-        lifespan = 15 * (int) Math.round(Math.pow(size, 0.75));
-        creationAge = lifespan / 5;
-        creationCost = (energyCapacity / 2) / creationSize;
-        creationDelay = (int) Math.round(Math.pow(size, 0.5));
+        checkNotInterned();
+        DerivedAttributes derivedAttributes = DerivedAttributes.getCurrent();
+        energyCapacity = derivedAttributes.getEnergyCapacity(size);
+        energyLostPerTile = derivedAttributes.getEnergyLostPerTile(size);
+        eatAmount = derivedAttributes.getEatAmount(size);
+        lifespan = derivedAttributes.getLifespan(size);
+        creationAge = derivedAttributes.getCreationAge(size);
+        creationCost = derivedAttributes.getCreationCost(size, creationSize);
+        creationDelay = derivedAttributes.getCreationDelay(size);
+    }
+
+    /**
+     * Returns true if these attributes have been interned by GenotypeCache, and so can't be changed.
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Returns an exact copy of these attributes, including the calculated attributes and mutating color, marked as
+     * interned. Used by GenotypeCache when it sees a genotype for the first time.
+     */
+    public BaseAttributes internedCopy() {
+        try {
+            BaseAttributes copy = (BaseAttributes) clone();
+            copy.interned = true;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Throws an UnsupportedOperationException if these attributes have been interned.
+     */
+    private void checkNotInterned() {
+        if (interned) {
+            throw new UnsupportedOperationException("Interned attributes are shared between agents and can't be changed");
+        }
     }
 
     /**
@@ -206,8 +264,9 @@ public abstract class BaseAttributes implements Attributes, Serializable {
      * Takes 2 objects ands randomly returns one, with an equal chance for both.
      * @param objectA the first object
      * @param objectB the second object
+     * @param random the generator the choice is drawn from
      */
-    protected Object getChoice(Object objectA, Object objectB) {
+    protected static Object getChoice(Object objectA, Object objectB, RandomGenerator random) {
         if (random.nextInt(2) > 0) {
             return objectA;
         }
@@ -242,6 +301,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setSpawningWeight(int spawningWeight) {
+        checkNotInterned();
         this.spawningWeight = spawningWeight;
     }
     @Override
@@ -250,6 +310,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setName(String name) {
+        checkNotInterned();
         this.name = name;
     }
     @Override
@@ -258,6 +319,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setID(int code) {
+        checkNotInterned();
         this.ID = code;
     }
     @Override
@@ -266,7 +328,9 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setMutationChance(int mutationChance) {
+        checkNotInterned();
         this.mutationChance = mutationChance;
+        this.colorIndex = 0;
     }
     @Override
     public Color getSeedColor() {
@@ -274,7 +338,9 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setSeedColor(Color seedColor) {
+        checkNotInterned();
         this.seedColor = seedColor;
+        this.colorIndex = 0;
     }
     @Override
     public int getRange() {
@@ -282,7 +348,8 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setRange(int range) {
-        this.range = Math.min(Math.max(size, 1), 6);
+        checkNotInterned();
+        this.range = Math.min(Math.max(range, 1), MAX_RANGE);
     }
     @Override
     public int getSize() {
@@ -290,6 +357,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setSize(int size) {
+        checkNotInterned();
         this.size = Math.min(Math.max(size, 1), 101);
     }
     @Override
@@ -298,6 +366,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setCreationSize(int creationSize) {
+        checkNotInterned();
         this.creationSize = Math.min(Math.max(creationSize, 1), 9);
     }
     @Override
@@ -306,6 +375,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setEnergyCapacity(int energyCapacity) {
+        checkNotInterned();
         this.energyCapacity = energyCapacity;
     }
     @Override
@@ -314,6 +384,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setEnergyLostPerTile(int energyLostPerTile) {
+        checkNotInterned();
         this.energyLostPerTile = energyLostPerTile;
     }
     @Override
@@ -322,6 +393,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setEatAmount(int eatAmount) {
+        checkNotInterned();
         this.eatAmount = eatAmount;
     }
     @Override
@@ -330,6 +402,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setLifespan(int lifespan) {
+        checkNotInterned();
         this.lifespan = lifespan;
     }
     @Override
@@ -338,6 +411,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setCreationAge(int creationAge) {
+        checkNotInterned();
         this.creationAge = creationAge;
     }
     @Override
@@ -346,6 +420,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setCreationCost(int creationCost) {
+        checkNotInterned();
         this.creationCost = creationCost;
     }
     @Override
@@ -354,6 +429,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setCreationDelay(int creationDelay) {
+        checkNotInterned();
         this.creationDelay = creationDelay;
     }
     @Override
@@ -362,7 +438,9 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setMutatingColor(Color mutatingColor) {
+        checkNotInterned();
         this.mutatingColor = mutatingColor;
+        this.colorIndex = 0;
     }
     @Override
     public ColorModel getColorModel() {
@@ -370,7 +448,9 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setColorModel(ColorModel colorModel) {
+        checkNotInterned();
         this.colorModel = colorModel;
+        this.colorIndex = 0;
     }
     @Override
     public int getRandomColorModelMagnitude() {
@@ -378,10 +458,7 @@ public abstract class BaseAttributes implements Attributes, Serializable {
     }
     @Override
     public void setRandomColorModelMagnitude(int randomColorModelMagnitude) {
+        checkNotInterned();
         this.randomColorModelMagnitude = randomColorModelMagnitude;
     }
-    @Override
-    public Random getRandom() {
-        return random;
-    }
 }
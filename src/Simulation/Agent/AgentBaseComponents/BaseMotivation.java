@@ -1,6 +1,11 @@
 package Simulation.Agent.AgentBaseComponents;
 
+import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Agent.AgentInterfaces.Scores;
+import Simulation.Agent.AgentStructs.AgentAction;
+import Simulation.Agent.AgentStructs.AgentDecision;
+import Simulation.Agent.AgentStructs.AgentVision;
 
 import java.io.Serializable;
 
@@ -12,16 +17,28 @@ import java.io.Serializable;
  */
 public abstract class BaseMotivation implements Motivation, Serializable {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = -323505778900663194L;
+
     // The bias added in the motivation score calculation.
-    int bias;
+    final int bias;
     // The bias added in the motivation score calculation.
-    int weight;
+    final int weight;
 
     public BaseMotivation(int bias, int weight) {
         this.bias = bias;
         this.weight = weight;
     }
 
+    /**
+     * Builds the decision from getAction() and getScore(). A decision to do nothing has no location.
+     */
+    @Override
+    public AgentDecision run(AgentVision tile, Attributes attributes, Scores scores) {
+        AgentAction action = getAction(tile, attributes, scores);
+        return new AgentDecision(action == AgentAction.NONE ? null : tile.getLocation(), action, getScore(action, tile, attributes, scores));
+    }
+
     @Override
     public int getBias() {
         return bias;
@@ -30,14 +47,6 @@ public abstract class BaseMotivation implements Motivation, Serializable {
     public int getWeight() {
         return weight;
     }
-    @Override
-    public void setBias(int bias) {
-        this.bias = bias;
-    }
-    @Override
-    public void setWeight(int weight) {
-        this.weight = weight;
-    }
 
     /**
      * @return true if the input motivation equals its own.
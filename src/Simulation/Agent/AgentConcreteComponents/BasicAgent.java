@@ -1,12 +1,13 @@
 package Simulation.Agent.AgentConcreteComponents;
 
 import Simulation.Agent.AgentInterfaces.*;
+import Simulation.Agent.AgentUtility.MotivationSet;
 import Simulation.Environment.Environment;
-import Simulation.Environment.EnvironmentTile;
 import Simulation.Environment.Location;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGenerator;
 
 /** This class represents an agent. It groups all the data required by an agent and contains some logical methods used by the Simulation.AgentLogic class.
  * @author Sam Burchmore
@@ -21,24 +22,24 @@ public class BasicAgent implements Agent {
     private Attributes attributes;
     // The agent's scores
     private Scores scores;
-    // The agents motivations
-    private ArrayList<Motivation> motivations;
+    // The agents motivations, shared with the rest of its species
+    private MotivationSet motivations;
     // Lets Simulation.AgentLogic know this agent's space has been taken
     private boolean spaceTaken;
 
-    public BasicAgent(Location location, Attributes attributes, Scores scores, ArrayList<Motivation> motivations) {
+    public BasicAgent(Location location, Attributes attributes, Scores scores, List<Motivation> motivations) {
         this.location = location;
         this.attributes = attributes;
         this.scores = scores;
-        this.motivations = motivations;
+        this.motivations = MotivationSet.of(motivations);
         spaceTaken = false;
     }
 
-    public BasicAgent(Location location, Attributes attributes, ArrayList<Motivation> motivations) {
+    public BasicAgent(Location location, Attributes attributes, List<Motivation> motivations) {
         this.location = location;
         this.attributes = attributes;
         this.scores = new BasicScores(attributes.getEnergyCapacity(), attributes.getEnergyCapacity(), attributes.getLifespan());
-        this.motivations = motivations;
+        this.motivations = MotivationSet.of(motivations);
         spaceTaken = false;
     }
 
@@ -46,17 +47,18 @@ public class BasicAgent implements Agent {
      * <p>
      * The new agents attributes are produced by combining the 2 parent attributes. The BasicAttributes constructor used will randomly
      * choose attributes from either parent. As motivations do not mutate, and agents can only breeed with agents of the same type,
-     * its assumed here that both parents will have the same motivations, so parentAs are copied. As the agents calculated attributes
+     * its assumed here that both parents will have the same motivations, so parentAs are shared. As the agents calculated attributes
      * are handled in Simulation.AgentLogic, the scores are simply copied from parentA. They will be initialised with the calculated
      * attributes in Simulation.AgentLogic.
      * @param location the starting location of the new agent
      * @param parentA the agent producing the children
      * @param parentB the compatible agent found
+     * @param random the generator used to combine the parents attributes
      */
-    public BasicAgent(Location location, Agent parentA, Agent parentB) {
+    public BasicAgent(Location location, Agent parentA, Agent parentB, RandomGenerator random) {
         this.location = location;
-        this.attributes = parentA.getAttributes().combine(parentB.getAttributes());
-        this.motivations = parentA.copyMotivations();
+        this.attributes = parentA.getAttributes().combine(parentB.getAttributes(), random);
+        this.motivations = parentA.getMotivations();
         this.scores = parentA.getScores().copy();
         spaceTaken = false;
         initScores();
@@ -102,23 +104,23 @@ public class BasicAgent implements Agent {
     /**
      * Increases the agents energy and returns how much was successfully taken from the tile.
      * <p>
-     * @param environmentTile the tile the agent currently occupies
+     * @param tileEnergyLevel the energy level of the tile the agent currently occupies
      * @return how much energy was succesfully taken from the tile
      */
     @Override
-    public int graze(EnvironmentTile environmentTile) {
-        if (environmentTile.getEnergyLevel() <= 0) {
+    public int graze(int tileEnergyLevel) {
+        if (tileEnergyLevel <= 0) {
             // If there's no energy, environment loses nothing and agent gains no energy.
             return 0;
         }
-        if (environmentTile.getEnergyLevel() >= getAttributes().getEatAmount()) {
+        if (tileEnergyLevel >= getAttributes().getEatAmount()) {
             // If there's more food than the agents eat amount, environment loses agents eat amount and agent gets it
             getScores().setEnergy(getScores().getEnergy() + getAttributes().getEatAmount());
             return getAttributes().getEatAmount();
         }
         // If there's less food than the agents eat amount, environment loses all and agent gains it.
-        getScores().setEnergy(getScores().getEnergy() + environmentTile.getEnergyLevel());
-        return environmentTile.getEnergyLevel();
+        getScores().setEnergy(getScores().getEnergy() + tileEnergyLevel);
+        return tileEnergyLevel;
     }
 
     /**
@@ -140,18 +142,18 @@ public class BasicAgent implements Agent {
      * all the spaces have had children placed, the parents creationCounter is set to its creationDelay and the children are returned.
      * @param parentBLocation The location of the agents mate
      * @param environment The environment
+     * @param random the generator used to choose the childrens locations and attributes
      * @return a possibly empty collection of agents
      */
     @Override
-    public ArrayList<Agent> create(Location parentBLocation, Environment environment) {
-        ArrayList<Location> childLocations = environment.freeSpace(this.getLocation(), getAttributes().getSize());
+    public ArrayList<Agent> create(Location parentBLocation, Environment environment, RandomGenerator random) {
+        ArrayList<Location> childLocations = environment.freeSpace(this.getLocation(), getAttributes().getSize(), random);
         ArrayList<Agent> childAgents = new ArrayList<>();
         if (!childLocations.isEmpty()) {
-            Collections.shuffle(childLocations);
             for (Location childLocation : childLocations.subList(0, Math.min(childLocations.size(), this.getAttributes().getCreationSize()))) {
                 if (getAttributes().getCreationCost() <= getScores().getEnergy())
                 {
-                    Agent child = combine(environment.getTile(parentBLocation).getOccupant(), childLocation);
+                    Agent child = combine(environment.getOccupant(parentBLocation), childLocation, random);
                     childAgents.add(child);
                     getScores().setEnergy(getScores().getEnergy() - getAttributes().getCreationCost());
                 }
@@ -174,28 +176,17 @@ public class BasicAgent implements Agent {
         return getAttributes().getMutationChance() > 0;
     }
 
-    /**
-     * @return returns a copy of the agents motivations
-     */
-    @Override
-    public ArrayList<Motivation> copyMotivations() {
-        ArrayList<Motivation> motivations = new ArrayList<>();
-        for (Motivation motivation : getMotivations()) {
-            motivations.add(motivation.copy());
-        }
-        return motivations;
-    }
-
     /**
      * Returns a new BasicAgent produced using this agent and another.
      * <p>
      * As the agents current energy is initialised with the parents creationCost, this can be done here.
      * @param parentB the second agent being used in the creation
      * @param childLocation the child agents location
+     * @param random the generator used to combine the parents attributes
      * @return a new agent at the location specified and with its current energy initialised
      */
-    public Agent combine(Agent parentB, Location childLocation) {
-        Agent newAgent = new BasicAgent(childLocation, this, parentB);
+    public Agent combine(Agent parentB, Location childLocation, RandomGenerator random) {
+        Agent newAgent = new BasicAgent(childLocation, this, parentB, random);
         newAgent.getScores().setEnergy(getAttributes().getCreationCost());
         return newAgent;
     }
@@ -247,15 +238,15 @@ public class BasicAgent implements Agent {
         this.scores = scores;
     }
     @Override
-    public ArrayList<Motivation> getMotivations() {
+    public MotivationSet getMotivations() {
         return motivations;
     }
     @Override
-    public void setMotivations(ArrayList<Motivation> motivations) {
-        this.motivations = motivations;
+    public void setMotivations(List<Motivation> motivations) {
+        this.motivations = MotivationSet.of(motivations);
     }
     @Override
     public Object copy() {
-        return new BasicAgent(this.getLocation(), this.getAttributes().copy(), this.getScores().copy(), this.copyMotivations());
+        return new BasicAgent(this.getLocation(), this.getAttributes().copy(), this.getScores().copy(), this.getMotivations());
     }
 }
@@ -3,10 +3,11 @@ package Simulation.Agent.AgentConcreteComponents;
 import Simulation.Agent.AgentBaseComponents.BaseAttributes;
 import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentStructs.ColorModel;
+import Simulation.Agent.AgentUtility.GenotypeCache;
 
 import java.awt.*;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Makes up the agents attributes. Attributes are set values that don't change during the agent's life, except if
@@ -17,6 +18,12 @@ import java.util.Random;
  */
 public class BasicAttributes extends BaseAttributes {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = 1607072898923463301L;
+    // The attributes each thread builds children in before they're interned
+    private static final ThreadLocal<BasicAttributes> children = ThreadLocal.withInitial(() ->
+            new BasicAttributes(0, "", 0, Color.white, ColorModel.STATIC, 1, 0, 1, 1, 1));
+
     /**
      * Constructs a BasicAttributes object using the input parameters.
      * <p>
@@ -42,19 +49,26 @@ public class BasicAttributes extends BaseAttributes {
      * <p>
      * The constructor takes two Attributes objects and passes them to the
      * generateAttributes() method.
+     * @param random the generator used to choose between the two objects
      */
-    public BasicAttributes(Attributes attributesA, Attributes attributesB) {
-        super(attributesA, attributesB);
+    public BasicAttributes(Attributes attributesA, Attributes attributesB, RandomGenerator random) {
+        super(attributesA, attributesB, random);
         calculateAttributes();
     }
 
     /**
-     * Returns a new instance of MutatingAttributes fields initialised using this instances fields
-     * combined with the fields from attributesB.
+     * Returns the attributes of a child of this and attributesB, drawing the same random choices as the
+     * BasicAttributes(attributesA, attributesB, random) constructor.
+     * <p>
+     * The child is built in attributes owned by the calling thread then interned, so a child with the same genotype as an
+     * existing agent shares that agents attributes, and nothing is allocated for it.
      */
     @Override
-    public Attributes combine(Attributes attributesB) {
-        return new BasicAttributes(this, attributesB);
+    public Attributes combine(Attributes attributesB, RandomGenerator random) {
+        BasicAttributes child = children.get();
+        child.generateAttributes(this, attributesB, random);
+        child.calculateAttributes();
+        return GenotypeCache.intern(child);
     }
 
     @Override
@@ -5,7 +5,6 @@ import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Motivation;
 import Simulation.Agent.AgentInterfaces.Scores;
 import Simulation.Agent.AgentStructs.AgentAction;
-import Simulation.Agent.AgentStructs.AgentDecision;
 import Simulation.Agent.AgentStructs.AgentVision;
 
 import java.util.Objects;
@@ -18,12 +17,15 @@ import java.util.Objects;
  */
 public class CreatorMotivation extends BaseMotivation {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = 1581116305562016470L;
+
     public CreatorMotivation(int bias, int weight) {
         super(bias, weight);
     }
 
     @Override
-    public AgentDecision run(AgentVision tile, Attributes attributes, Scores scores) {
+    public AgentAction getAction(AgentVision tile, Attributes attributes, Scores scores) {
         if (tile.isOccupied()) {
             if (Objects.equals(tile.getOccupantAttributes().getID(), attributes.getID())
                     && tile.getOccupantScores().getAge() >= tile.getOccupantAttributes().getCreationAge()
@@ -32,15 +34,23 @@ public class CreatorMotivation extends BaseMotivation {
                 if (scores.getAge() >= attributes.getCreationAge()
                         && scores.getCreationCounter() <= 0
                         && scores.getEnergy() > attributes.getEnergyCapacity() / 4) {
-                    // Tile is occupied, and it's occupant is the same species, set the decision to CREATE and the score 10
-                    return new AgentDecision(tile.getLocation(), AgentAction.CREATE, super.getBias() * super.getWeight());
+                    return AgentAction.CREATE; // Tile is occupied, and it's occupant is the same species
                 }
             }
-            // Tile is occupied but its occupant is a different species, set decision to NONE and score to -10
-            return new AgentDecision(null, AgentAction.NONE, -1);
+            return AgentAction.NONE; // Tile is occupied but its occupant is a different species
+        }
+        return AgentAction.MOVE; // Tile is not occupied
+    }
+
+    @Override
+    public int getScore(AgentAction action, AgentVision tile, Attributes attributes, Scores scores) {
+        if (action == AgentAction.CREATE) {
+            return super.getBias() * super.getWeight();
+        }
+        if (action == AgentAction.MOVE) {
+            return 1;
         }
-        // Tile is not occupied, set decision to MOVE and score to 1
-        return new AgentDecision(tile.getLocation(), AgentAction.MOVE, 1);
+        return -1;
     }
 
     @Override
@@ -5,7 +5,6 @@ import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Motivation;
 import Simulation.Agent.AgentInterfaces.Scores;
 import Simulation.Agent.AgentStructs.AgentAction;
-import Simulation.Agent.AgentStructs.AgentDecision;
 import Simulation.Agent.AgentStructs.AgentVision;
 
 /**
@@ -16,22 +15,34 @@ import Simulation.Agent.AgentStructs.AgentVision;
  */
 public class GrazerMotivation extends BaseMotivation {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = -106723438308601469L;
+
     public GrazerMotivation(int bias, int weight) {
         super(bias, weight);
     }
 
     @Override
-    public AgentDecision run(AgentVision tile, Attributes attributes, Scores scores) {
+    public AgentAction getAction(AgentVision tile, Attributes attributes, Scores scores) {
         if (!tile.isOccupied() || tile.getOccupantAttributes().getSize() < attributes.getSize()) { // Grazer motivation does not motivate agent to travel to occupied tiles
             if (tile.getEnergyLevel() > 0) {
-                // Tile is not occupied and has food, set decision to GRAZE and score to 10
-                return new AgentDecision(tile.getLocation(), AgentAction.GRAZE, (super.getBias() + Math.min(tile.getEnergyLevel(), attributes.getEatAmount()) * super.getWeight()));
+                return AgentAction.GRAZE; // Tile is not occupied and has food
             }
-            // Tile is not occupied and has no food, set decision to MOVE and score to 1 (tiles food level)
-            return new AgentDecision(tile.getLocation(), AgentAction.MOVE, 1);
+            return AgentAction.MOVE; // Tile is not occupied and has no food
+        }
+        return AgentAction.NONE; // Tile is occupied with a larger or equally sized agent
+    }
+
+    @Override
+    public int getScore(AgentAction action, AgentVision tile, Attributes attributes, Scores scores) {
+        if (action == AgentAction.GRAZE) {
+            // Score by how much energy the agent can take
+            return super.getBias() + Math.min(tile.getEnergyLevel(), attributes.getEatAmount()) * super.getWeight();
+        }
+        if (action == AgentAction.MOVE) {
+            return 1;
         }
-        // Tile is occupied with a larger or equally sized agent, set decision to NONE and score to -1
-        return new AgentDecision(null, AgentAction.NONE, -1);
+        return -1;
     }
 
     @Override
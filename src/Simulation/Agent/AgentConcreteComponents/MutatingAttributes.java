@@ -3,11 +3,12 @@ package Simulation.Agent.AgentConcreteComponents;
 import Simulation.Agent.AgentBaseComponents.BaseAttributes;
 import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentStructs.ColorModel;
+import Simulation.Agent.AgentUtility.GenotypeCache;
 
 import javax.print.DocFlavor;
 import java.awt.*;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /** Makes up the agents attributes. Attributes are set values that don't change during the agent's life, except if
  * the agent mutates. Attributes define the agents qualities and behavior as well as their color and name.
@@ -17,6 +18,12 @@ import java.util.Random;
  */
 public class MutatingAttributes extends BaseAttributes {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = 4052823828591225537L;
+    // The attributes each thread builds children in before they're interned
+    private static final ThreadLocal<MutatingAttributes> children = ThreadLocal.withInitial(() ->
+            new MutatingAttributes(0, "", 0, Color.white, ColorModel.STATIC, 1, 0, 1, 1, 1));
+
     /**
      * Constructs a BasicAttributes object using the input parameters.
      * <p>
@@ -49,20 +56,28 @@ public class MutatingAttributes extends BaseAttributes {
      * generateAttributes() method. It then calls the mutate() method which will
      * randomly mutate size, creationSize, or Range depending on the mutationMagnitude.
      * Finally, the calculateAttributes method is called initialising the remaining values.
+     * @param random the generator every random choice is drawn from
      */
-    public MutatingAttributes(Attributes attributesA, Attributes attributesB) {
-        super(attributesA, attributesB);
-        mutate();
+    public MutatingAttributes(Attributes attributesA, Attributes attributesB, RandomGenerator random) {
+        super(attributesA, attributesB, random);
+        mutate(random);
         calculateAttributes();
     }
 
     /**
-     * Returns a new instance of MutatingAttributes fields initialised using this instances fields
-     * combined with the fields from attributesB.
+     * Returns the attributes of a child of this and attributesB, drawing the same random choices as the
+     * MutatingAttributes(attributesA, attributesB, random) constructor.
+     * <p>
+     * The child is built in attributes owned by the calling thread then interned, so a child with the same genotype as an
+     * existing agent shares that agents attributes, and nothing is allocated for it.
      */
     @Override
-    public Attributes combine(Attributes attributesB) {
-        return new MutatingAttributes(this, attributesB);
+    public Attributes combine(Attributes attributesB, RandomGenerator random) {
+        MutatingAttributes child = children.get();
+        child.generateAttributes(this, attributesB, random);
+        child.mutate(random);
+        child.calculateAttributes();
+        return GenotypeCache.intern(child);
     }
 
     /**
@@ -87,22 +102,22 @@ public class MutatingAttributes extends BaseAttributes {
      * Has an 80% chance of mutating size, and a 10% chance for range or creationSize. If the diagnostics verbosity is
      * set to high, then a message with the agents name, mutated attribute and how much it mutated by is added to the log queue.
      */
-    private void mutate() {
-        if (getRandom().nextInt(100) < getMutationChance()) {
-            int ran = getRandom().nextInt(113);
+    private void mutate(RandomGenerator random) {
+        if (random.nextInt(100) < getMutationChance()) {
+            int ran = random.nextInt(113);
             int oldSize = getSize();
             int oldCreationSize = getCreationSize();
             int oldRange = getRange();
             if (ran < 100) {
                 // Mutate size
-                setSize(Math.min(Math.max(getSize() + getNegOneOrPosOne(), 0), 100));
+                setSize(Math.min(Math.max(getSize() + getNegOneOrPosOne(random), 0), 100));
             } else if (ran < 108) {
                 // Mutate creationAmount
-                setCreationSize(Math.min(Math.max(getCreationSize() + getNegOneOrPosOne(), 1), 8));
+                setCreationSize(Math.min(Math.max(getCreationSize() + getNegOneOrPosOne(random), 1), 8));
 
             } else {
                 // Mutate range
-                setRange(Math.min(Math.max(getRange() + getNegOneOrPosOne(), 0), 5));
+                setRange(Math.min(Math.max(getRange() + getNegOneOrPosOne(random), 0), 5));
 
             }
             if (getColorModel().equals(ColorModel.ATTRIBUTES)) {
@@ -115,8 +130,8 @@ public class MutatingAttributes extends BaseAttributes {
         }
     }
 
-    private  int getNegOneOrPosOne() {
-        if (getRandom().nextBoolean()) {
+    private static int getNegOneOrPosOne(RandomGenerator random) {
+        if (random.nextBoolean()) {
             return 1;
         }
         return -1;
@@ -5,7 +5,6 @@ import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Motivation;
 import Simulation.Agent.AgentInterfaces.Scores;
 import Simulation.Agent.AgentStructs.AgentAction;
-import Simulation.Agent.AgentStructs.AgentDecision;
 import Simulation.Agent.AgentStructs.AgentVision;
 
 import java.util.Objects;
@@ -18,23 +17,35 @@ import java.util.Objects;
  */
 public class PredatorMotivation extends BaseMotivation {
 
+    // Matches the version written to older .dat files
+    private static final long serialVersionUID = -3221447897129659375L;
+
     public PredatorMotivation(int bias, int weight) {
         super(bias, weight);
     }
 
     @Override
-    public AgentDecision run(AgentVision tile, Attributes attributes, Scores scores) {
+    public AgentAction getAction(AgentVision tile, Attributes attributes, Scores scores) {
         if (tile.isOccupied()) { // Predator motivation motivates agent to move to occupied tiles
             if (tile.getOccupantAttributes().getSize() < attributes.getSize() && !Objects.equals(tile.getOccupantAttributes().getID(), attributes.getID())) {
-                // Tile is occupied, its occupant is smaller than the agent, and it's a different 'species' (code is different),
-                // set decision to PREDATE and its score to the occupants size multiplied by how much energy its missing
-                return new AgentDecision(tile.getLocation(), AgentAction.PREDATE, super.getBias() + tile.getOccupantScores().getEnergy() * super.getWeight());
+                // Tile is occupied, its occupant is smaller than the agent, and it's a different 'species' (code is different)
+                return AgentAction.PREDATE;
             }
-            // Tile is occupied but its occupant is either larger or the same species, set decision to NONE and its score to -10
-            return new AgentDecision(null, AgentAction.NONE, -1);
+            return AgentAction.NONE; // Tile is occupied but its occupant is either larger or the same species
+        }
+        return AgentAction.MOVE; // Tile is not occupied
+    }
+
+    @Override
+    public int getScore(AgentAction action, AgentVision tile, Attributes attributes, Scores scores) {
+        if (action == AgentAction.PREDATE) {
+            // Score by how much energy the prey has
+            return super.getBias() + tile.getOccupantScores().getEnergy() * super.getWeight();
+        }
+        if (action == AgentAction.MOVE) {
+            return 1;
         }
-        // Tile is not occupied, set decision to MOVE and score to 1
-        return new AgentDecision(tile.getLocation(), AgentAction.MOVE, 1);
+        return -1;
     }
 
     @Override
@@ -0,0 +1,204 @@
+package Simulation.Agent.AgentConcreteComponents;
+
+import Simulation.Agent.AgentInterfaces.*;
+import Simulation.Agent.AgentUtility.AgentStore;
+import Simulation.Agent.AgentUtility.MotivationSet;
+import Simulation.Environment.Environment;
+import Simulation.Environment.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/** A handle onto one slot of an AgentStore. It lets agents kept in the store be treated as an Agent by the environment and
+ * by motivations. The handle holds no state of its own, every method reads or writes the stores arrays. Its scores are a
+ * view onto the same slot.
+ * <p>
+ * Motivations are kept per slot, so setMotivations() only changes this agents, the same as BasicAgent.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class StoredAgent implements Agent {
+
+    // The store this agent lives in
+    private final AgentStore store;
+    // The slot in the store this handle represents
+    private final int slot;
+    // The view onto this slots scores
+    private final StoredScores scores;
+
+    public StoredAgent(AgentStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+        this.scores = new StoredScores();
+    }
+
+    @Override
+    public void liveDay() {
+        store.liveDay(slot);
+    }
+
+    @Override
+    public boolean isDead() {
+        return store.isDead(slot);
+    }
+
+    @Override
+    public void move(Location newLocation) {
+        store.move(slot, newLocation.getX(), newLocation.getY());
+    }
+
+    @Override
+    public int graze(int tileEnergyLevel) {
+        return store.graze(slot, tileEnergyLevel);
+    }
+
+    @Override
+    public void predate(Scores preyScores) {
+        store.setEnergy(slot, store.getEnergy(slot) + preyScores.getEnergy());
+    }
+
+    /**
+     * Creates the children in the store and returns their handles.
+     * <p>
+     * The Simulation class creates children through AgentStore.create() directly, this exists so the store can be used
+     * anywhere an Agent is expected.
+     */
+    @Override
+    public ArrayList<Agent> create(Location parentBLocation, Environment environment, RandomGenerator random) {
+        int[] childSlots = new int[8];
+        int children = store.create(slot, environment.getOccupant(parentBLocation).getAttributes(), childSlots, random);
+        ArrayList<Agent> childAgents = new ArrayList<>();
+        for (int i = 0; i < children; i++) {
+            childAgents.add(store.getHandle(childSlots[i]));
+        }
+        return childAgents;
+    }
+
+    @Override
+    public boolean spaceTaken() {
+        return store.isSpaceTaken(slot);
+    }
+
+    @Override
+    public void setSpaceTaken() {
+        store.setSpaceTaken(slot);
+    }
+
+    @Override
+    public void initScores() {
+        store.setMaxEnergy(slot, getAttributes().getEnergyCapacity());
+        store.setMaxAge(slot, getAttributes().getLifespan());
+        store.setAge(slot, 0);
+        store.setCreationCounter(slot, getAttributes().getCreationAge());
+    }
+
+    @Override
+    public boolean mutates() {
+        return getAttributes().getMutationChance() > 0;
+    }
+
+    /**
+     * @return a BasicAgent with the same state as this agent, which is not kept in the store.
+     */
+    @Override
+    public Object copy() {
+        return new BasicAgent(getLocation(), getAttributes().copy(), scores.copy(), getMotivations());
+    }
+
+    @Override
+    public MotivationSet getMotivations() {
+        return store.getMotivations(slot);
+    }
+    @Override
+    public void setMotivations(List<Motivation> motivations) {
+        store.setMotivations(slot, motivations);
+    }
+    @Override
+    public Attributes getAttributes() {
+        return store.getAttributes(slot);
+    }
+    @Override
+    public void setAttributes(Attributes attributes) {
+        store.setAttributes(slot, attributes);
+    }
+    @Override
+    public Scores getScores() {
+        return scores;
+    }
+    @Override
+    public void setScores(Scores scores) {
+        store.setEnergy(slot, scores.getEnergy());
+        store.setAge(slot, scores.getAge());
+        store.setCreationCounter(slot, scores.getCreationCounter());
+    }
+    @Override
+    public Location getLocation() {
+        return new Location(store.getX(slot), store.getY(slot));
+    }
+    @Override
+    public void setLocation(Location location) {
+        store.setLocation(slot, location.getX(), location.getY());
+    }
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * The scores of the slot this handle represents.
+     */
+    private class StoredScores implements Scores {
+
+        @Override
+        public int getEnergy() {
+            return store.getEnergy(slot);
+        }
+        @Override
+        public void setEnergy(int energy) {
+            store.setEnergy(slot, energy);
+        }
+        @Override
+        public int getAge() {
+            return store.getAge(slot);
+        }
+        @Override
+        public void setAge(int age) {
+            store.setAge(slot, age);
+        }
+        @Override
+        public int getCreationCounter() {
+            return store.getCreationCounter(slot);
+        }
+        @Override
+        public void setCreationCounter(int creationCounter) {
+            store.setCreationCounter(slot, creationCounter);
+        }
+        @Override
+        public int getMaxEnergy() {
+            return store.getMaxEnergy(slot);
+        }
+        @Override
+        public void setMaxEnergy(int maxEnergy) {
+            store.setMaxEnergy(slot, maxEnergy);
+        }
+        @Override
+        public int getMaxAge() {
+            return store.getMaxAge(slot);
+        }
+        @Override
+        public void setMaxAge(int maxAge) {
+            store.setMaxAge(slot, maxAge);
+        }
+        /**
+         * @return a BasicScores object with the same state as this agent.
+         */
+        @Override
+        public Scores copy() {
+            BasicScores scores = new BasicScores(getEnergy(), getMaxEnergy(), getMaxAge());
+            scores.setAge(getAge());
+            scores.setCreationCounter(getCreationCounter());
+            return scores;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package Simulation.Agent.AgentInterfaces;
 
+import Simulation.Agent.AgentUtility.MotivationSet;
 import Simulation.Environment.Environment;
-import Simulation.Environment.EnvironmentTile;
 import Simulation.Environment.Location;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * Provides a contract for how agents should interact with the simulation.
@@ -32,13 +34,13 @@ public interface Agent {
     void move(Location newLocation);
 
     /**
-     * This method should increase the agents energy based on the amount in the environmentTile and the
+     * This method should increase the agents energy based on the energy level of the tile and the
      * agents eat amount and then returns how much energy was taken from the tile.
      * <p>
-     * @param environmentTile the tile the agent is grazing from
+     * @param tileEnergyLevel the energy level of the tile the agent is grazing from
      * @return how much energy was successfully taken
      */
-    int graze(EnvironmentTile environmentTile);
+    int graze(int tileEnergyLevel);
 
     /**
      * This method should increase the agents energy based of the input Scores object.
@@ -52,14 +54,10 @@ public interface Agent {
      * correspond to the agents creationCost field and its current state.
      * @param parentBLocation the location of the second parent
      * @param environment the environment the parents currently inhabit, used to generate new child locations.
+     * @param random the generator used to choose the childrens locations and attributes
      * @return the collection of successfully created children.
      */
-    ArrayList<Agent> create(Location parentBLocation, Environment environment);
-
-    /**
-     * This method should return an exact copy of the agents collection of motivations.
-     */
-    ArrayList<Motivation> copyMotivations();
+    ArrayList<Agent> create(Location parentBLocation, Environment environment, RandomGenerator random);
 
     /**
      * This method should return true if the agent should no longer be alive.
@@ -78,8 +76,16 @@ public interface Agent {
     void initScores();
 
     void setSpaceTaken();
-    ArrayList<Motivation> getMotivations();
-    void setMotivations(ArrayList<Motivation> motivations);
+    /**
+     * Returns the agents motivations, which are shared by its whole species and can't be changed.
+     */
+    MotivationSet getMotivations();
+
+    /**
+     * Gives the agent the input motivations. Lists that aren't already a MotivationSet are copied into a new one.
+     * @param motivations the agents new motivations
+     */
+    void setMotivations(List<Motivation> motivations);
     Attributes getAttributes();
     Scores getScores();
     void setAttributes(Attributes attributes);
@@ -3,7 +3,7 @@ package Simulation.Agent.AgentInterfaces;
 import Simulation.Agent.AgentStructs.ColorModel;
 
 import java.awt.*;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Provides an interface for agent attributes.
@@ -13,6 +13,9 @@ import java.util.Random;
  */
 public interface Attributes {
 
+    // The furthest any agent can see. The Simulation class sizes its STRIPED cycle modes stripes by it
+    int MAX_RANGE = 6;
+
     /**
      * A template method for initialising a new set of Attributes with two input sets.
      * <p>
@@ -20,8 +23,9 @@ public interface Attributes {
      * This method should be called from the constructor in a concrete implementation of this interface.
      * @param attributesA the first set of Attributes
      * @param attributesB the second set of Attributes
+     * @param random the generator used to choose between the two sets
      */
-    void generateAttributes(Attributes attributesA, Attributes attributesB);
+    void generateAttributes(Attributes attributesA, Attributes attributesB, RandomGenerator random);
 
     /**
      * Provides an interface for producing an exact copy.
@@ -30,8 +34,10 @@ public interface Attributes {
 
     /**
      * Provides an interface for producing a new set of attributes from two initial sets.
+     * <p>
+     * Any random choices are drawn from the input generator, so the result can be reproduced.
      */
-    Attributes combine(Attributes attributes);
+    Attributes combine(Attributes attributes, RandomGenerator random);
 
     /**
      * Provides an interface for changing this classes mutating color based on three double percent values and one integer constant.
@@ -45,8 +51,9 @@ public interface Attributes {
      * Provides an interface for changing this classes seed color.
      * <p>
      * The default implementation can be found in AgentBaseComponents.BaseAttributes.mutateSeedColor().
+     * @param random the generator the color change is drawn from
      */
-    void mutateSeedColor();
+    void mutateSeedColor(RandomGenerator random);
 
     /**
      * A template method intended to be called at the end of the Attributes creation process.
@@ -65,6 +72,13 @@ public interface Attributes {
      */
     Color getColor();
 
+    /**
+     * Returns the index of getColor() in AgentColors, used by renderers to look the color up in a palette.
+     * <p>
+     * The default implementation can be found in AgentBaseComponents.BaseAttributes.getColorIndex().
+     */
+    int getColorIndex();
+
     int getRange();
 
     int getSize();
@@ -137,5 +151,4 @@ public interface Attributes {
 
     void setRandomColorModelMagnitude(int randomColorModelMagnitude);
 
-    Random getRandom();
 }
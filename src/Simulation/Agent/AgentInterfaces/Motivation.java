@@ -1,12 +1,14 @@
 package Simulation.Agent.AgentInterfaces;
 
+import Simulation.Agent.AgentStructs.AgentAction;
 import Simulation.Agent.AgentStructs.AgentDecision;
 import Simulation.Agent.AgentStructs.AgentVision;
 
 /**
  * Provides an interface for agent motivations.
  * <p>
- * This interface can be considered a strategy with Agent being the context.
+ * This interface can be considered a strategy with Agent being the context. Motivations can't be changed once constructed,
+ * as one MotivationSet, and the motivations in it, is shared by every agent of a species.
  * @author Sam Burchmore
  * @version 1.0a
  * @since 1.0a
@@ -24,11 +26,28 @@ public interface Motivation {
      */
     AgentDecision run(AgentVision tile, Attributes attributes, Scores scores);
 
+    /**
+     * This method should return the action run() would decide on, without creating a decision.
+     * @param tile the tile to generate a decision from
+     * @param attributes the agents attributes
+     * @param scores the agents current state
+     * @return the action chosen
+     */
+    AgentAction getAction(AgentVision tile, Attributes attributes, Scores scores);
+
+    /**
+     * This method should return the decision score run() would give the input action.
+     * @param action the action returned by getAction() for the same parameters
+     * @param tile the tile to generate a decision from
+     * @param attributes the agents attributes
+     * @param scores the agents current state
+     * @return the decision score
+     */
+    int getScore(AgentAction action, AgentVision tile, Attributes attributes, Scores scores);
+
     Motivation copy();
     boolean equals(Motivation motivation);
     int getCode();
     int getBias();
     int getWeight();
-    void setBias(int bias);
-    void setWeight(int weight);
 }
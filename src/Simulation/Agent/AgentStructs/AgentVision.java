@@ -4,35 +4,52 @@ import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Scores;
 import Simulation.Environment.Location;
 
-/** This class represents the visible aspect of an environment tile. When Simulation.AgentLogic.lookAround(Agent agent) is called,
- * an AgentVision object will be generated for each tile within range. These are then used in the Simulation.AgentLogic class
+/** This class represents the visible aspect of an environment tile. When Simulation.AgentLogic.decide() is called,
+ * an AgentVision object is filled in for each tile within range. These are then used by the agents motivations
  * to generate an AgentDecision.
+ * <p>
+ * An AgentVision can be reused for many tiles by calling setTile(), so looking around doesn't need a new object for
+ * every tile.
  * @author Sam Burchmore
  * @version 1.0a
  * @since 1.0a
  */
 public class AgentVision {
 
-    private final int energyLevel;
-    private final Attributes occupantAttributes;
-    private final Scores occupantScores;
-    private final Location location;
-    private final boolean isOccupied;
+    private int energyLevel;
+    private Attributes occupantAttributes;
+    private Scores occupantScores;
+    private int x;
+    private int y;
+    private boolean isOccupied;
 
     public AgentVision(int energyLevel, boolean isOccupied , Location location, Attributes occupantAttributes, Scores occupantScores) {
-        this.energyLevel = energyLevel;
-        this.occupantAttributes = occupantAttributes;
-        this.occupantScores = occupantScores;
-        this.location = location;
-        this.isOccupied = isOccupied;
+        setTile(location.getX(), location.getY(), energyLevel, isOccupied, occupantAttributes, occupantScores);
     }
 
     public AgentVision(int energyLevel, boolean isOccupied , Location location) {
+        setTile(location.getX(), location.getY(), energyLevel, isOccupied, null, null);
+    }
+
+    public AgentVision() {
+    }
+
+    /**
+     * Sets this object to represent a different tile.
+     * @param x the tiles x coordinate
+     * @param y the tiles y coordinate
+     * @param energyLevel the tiles energy level
+     * @param isOccupied true if the tile has an occupant
+     * @param occupantAttributes the occupants attributes, or null if it's empty
+     * @param occupantScores the occupants scores, or null if it's empty
+     */
+    public void setTile(int x, int y, int energyLevel, boolean isOccupied, Attributes occupantAttributes, Scores occupantScores) {
+        this.x = x;
+        this.y = y;
         this.energyLevel = energyLevel;
-        this.occupantAttributes = null;
-        this.occupantScores = null;
-        this.location = location;
         this.isOccupied = isOccupied;
+        this.occupantAttributes = occupantAttributes;
+        this.occupantScores = occupantScores;
     }
 
     public int getEnergyLevel() {
@@ -49,10 +66,19 @@ public class AgentVision {
 
     public Scores getOccupantScores() { return this.occupantScores; }
 
+    /**
+     * @return a new Location holding the tiles coordinates.
+     */
     public Location getLocation() {
-        return this.location;
+        return new Location(x, y);
     }
 
+    public int getX() {
+        return this.x;
+    }
 
+    public int getY() {
+        return this.y;
+    }
 
 }
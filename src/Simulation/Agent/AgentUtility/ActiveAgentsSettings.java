@@ -5,6 +5,9 @@ import java.util.ArrayList;
 
 public class ActiveAgentsSettings implements Serializable {
 
+    // Fixed so older .dat files can still be read
+    private static final long serialVersionUID = 559603197078675542L;
+
     ArrayList<AgentSettings> savedAgentSettings;
 
     public ActiveAgentsSettings(ArrayList<AgentSettings> savedAgentSettings) {
@@ -15,4 +18,8 @@ public class ActiveAgentsSettings implements Serializable {
         return savedAgentSettings.get(index);
     }
 
+    public int getSavedSettingsCount() {
+        return savedAgentSettings.size();
+    }
+
 }
@@ -0,0 +1,138 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentConcreteComponents.BasicAttributes;
+import Simulation.Agent.AgentConcreteComponents.CreatorMotivation;
+import Simulation.Agent.AgentConcreteComponents.GrazerMotivation;
+import Simulation.Agent.AgentConcreteComponents.MutatingAttributes;
+import Simulation.Agent.AgentConcreteComponents.PredatorMotivation;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Agent.AgentStructs.ColorModel;
+
+import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes and reads agent Attributes and Motivations as plain fields, for saving the state of a Simulation.
+ * <p>
+ * Attributes are written as which class they are followed by every field, including the calculated ones, so they're read
+ * back exactly as they were rather than recalculated. Motivations are written as their code, bias and weight.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class AgentCodec {
+
+    // The class of a set of attributes
+    private static final byte BASIC_ATTRIBUTES = 0;
+    private static final byte MUTATING_ATTRIBUTES = 1;
+
+    /**
+     * Writes every field of the input attributes.
+     * @param out the stream to write to
+     * @param attributes the attributes to write
+     */
+    public static void writeAttributes(DataOutput out, Attributes attributes) throws IOException {
+        out.writeByte(attributes instanceof MutatingAttributes ? MUTATING_ATTRIBUTES : BASIC_ATTRIBUTES);
+        out.writeInt(attributes.getSpawningWeight());
+        out.writeUTF(attributes.getName());
+        out.writeInt(attributes.getID());
+        out.writeInt(attributes.getSeedColor().getRGB());
+        out.writeByte(attributes.getColorModel().ordinal());
+        out.writeInt(attributes.getRandomColorModelMagnitude());
+        out.writeInt(attributes.getMutationChance());
+        out.writeInt(attributes.getRange());
+        out.writeInt(attributes.getSize());
+        out.writeInt(attributes.getCreationSize());
+        out.writeInt(attributes.getEnergyCapacity());
+        out.writeInt(attributes.getEnergyLostPerTile());
+        out.writeInt(attributes.getEatAmount());
+        out.writeInt(attributes.getLifespan());
+        out.writeInt(attributes.getCreationAge());
+        out.writeInt(attributes.getCreationCost());
+        out.writeInt(attributes.getCreationDelay());
+        out.writeInt(attributes.getMutatingColor().getRGB());
+    }
+
+    /**
+     * Reads attributes written by writeAttributes().
+     * @param in the stream to read from
+     */
+    public static Attributes readAttributes(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        int spawningWeight = in.readInt();
+        String name = in.readUTF();
+        int ID = in.readInt();
+        Color seedColor = new Color(in.readInt(), true);
+        int colorModelOrdinal = in.readByte();
+        if (colorModelOrdinal < 0 || colorModelOrdinal >= ColorModel.values().length) {
+            throw new IOException("Corrupt state, unknown color model " + colorModelOrdinal);
+        }
+        ColorModel colorModel = ColorModel.values()[colorModelOrdinal];
+        int randomColorModelMagnitude = in.readInt();
+        int mutationChance = in.readInt();
+        int range = in.readInt();
+        int size = in.readInt();
+        int creationSize = in.readInt();
+        Attributes attributes;
+        if (kind == MUTATING_ATTRIBUTES) {
+            attributes = new MutatingAttributes(spawningWeight, name, ID, seedColor, colorModel, randomColorModelMagnitude, mutationChance, range, size, creationSize);
+        }
+        else if (kind == BASIC_ATTRIBUTES) {
+            attributes = new BasicAttributes(spawningWeight, name, ID, seedColor, colorModel, randomColorModelMagnitude, mutationChance, range, size, creationSize);
+        }
+        else {
+            throw new IOException("Corrupt state, unknown attributes type " + kind);
+        }
+        attributes.setEnergyCapacity(in.readInt());
+        attributes.setEnergyLostPerTile(in.readInt());
+        attributes.setEatAmount(in.readInt());
+        attributes.setLifespan(in.readInt());
+        attributes.setCreationAge(in.readInt());
+        attributes.setCreationCost(in.readInt());
+        attributes.setCreationDelay(in.readInt());
+        attributes.setMutatingColor(new Color(in.readInt(), true));
+        return attributes;
+    }
+
+    /**
+     * Writes the input motivations, in order.
+     * @param out the stream to write to
+     * @param motivations the motivations to write
+     */
+    public static void writeMotivations(DataOutput out, List<Motivation> motivations) throws IOException {
+        out.writeInt(motivations.size());
+        for (Motivation motivation : motivations) {
+            out.writeByte(motivation.getCode());
+            out.writeInt(motivation.getBias());
+            out.writeInt(motivation.getWeight());
+        }
+    }
+
+    /**
+     * Reads motivations written by writeMotivations().
+     * @param in the stream to read from
+     */
+    public static ArrayList<Motivation> readMotivations(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt state, negative motivation count " + count);
+        }
+        ArrayList<Motivation> motivations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int code = in.readByte();
+            int bias = in.readInt();
+            int weight = in.readInt();
+            motivations.add(switch (code) {
+                case 0 -> new CreatorMotivation(bias, weight);
+                case 1 -> new GrazerMotivation(bias, weight);
+                case 2 -> new PredatorMotivation(bias, weight);
+                default -> throw new IOException("Corrupt state, unknown motivation " + code);
+            });
+        }
+        return motivations;
+    }
+}
@@ -0,0 +1,72 @@
+package Simulation.Agent.AgentUtility;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Gives every agent color a small integer index, so renderers can look colors up in a palette array.
+ * <p>
+ * Colors are interned the first time they're seen and keep their index for the life of the program. Attributes cache
+ * their index, so each genotype only looks its color up once.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class AgentColors {
+
+    // The RGB value of each index
+    private static int[] colors = new int[256];
+    // How many colors have been given an index
+    private static int colorCount;
+    // The index of each RGB value
+    private static final HashMap<Integer, Integer> indexes = new HashMap<>();
+
+    private AgentColors() {
+    }
+
+    /**
+     * Returns the index of the input RGB value, giving it the next free index if it hasn't been seen before.
+     * @param rgb the colors RGB value, the alpha channel is ignored
+     */
+    public static synchronized int indexOf(int rgb) {
+        rgb &= 0xFFFFFF;
+        Integer index = indexes.get(rgb);
+        if (index == null) {
+            if (colorCount == colors.length) {
+                colors = Arrays.copyOf(colors, colorCount * 2);
+            }
+            index = colorCount;
+            colors[colorCount++] = rgb;
+            indexes.put(rgb, index);
+        }
+        return index;
+    }
+
+    /**
+     * Copies the RGB value of every index into the input array, starting at the input offset, growing it if needed.
+     * @param palette the array to copy into, or null
+     * @param offset where the first color is copied to
+     * @return the palette the colors were copied into
+     */
+    public static synchronized int[] copyColors(int[] palette, int offset) {
+        if (palette == null || palette.length < offset + colorCount) {
+            palette = palette == null ? new int[offset + colors.length] : Arrays.copyOf(palette, offset + colors.length);
+        }
+        System.arraycopy(colors, 0, palette, offset, colorCount);
+        return palette;
+    }
+
+    /**
+     * Returns the RGB value of the input index.
+     * @param index an index returned by indexOf()
+     */
+    public static synchronized int getRGB(int index) {
+        return colors[index];
+    }
+
+    /**
+     * Returns how many colors have been given an index.
+     */
+    public static synchronized int getColorCount() {
+        return colorCount;
+    }
+}
@@ -38,7 +38,7 @@ public class AgentEditor {
             activeAgents.add(i, new BasicAgent(
                     new Location(-1, -1),
                     new MutatingAttributes(100, "Agent " + (i+1), i, Color.blue, ColorModel.STATIC, 5, 0,1, 3, 4),
-                    (ArrayList<Motivation>) grazerMotivations.clone()));
+                    MotivationSet.of(grazerMotivations)));
         }
         editingAgentIndex = 0;
     }
@@ -59,14 +59,22 @@ public class AgentEditor {
         return new AgentSettings(activeAgents.get(index).getAttributes(), activeAgents.get(index).getMotivations());
     }
 
+    /**
+     * Replaces the settings of the agent at the input index.
+     * <p>
+     * The species motivations are copied into a new MotivationSet, agents already in the simulation keep the set they
+     * were given. The agent is replaced with a new one, so its scores are those a new agent with the input attributes
+     * starts with, as agents placed in the simulation start with a copy of them.
+     */
     public void setAgentSettings(AgentSettings agentSettings, int index) {
-        getAgent(index).setAttributes(agentSettings.getAttributes());
-        getAgent(index).setMotivations(agentSettings.getMotivations());
+        activeAgents.set(index, new BasicAgent(
+                new Location(-1, -1),
+                agentSettings.getAttributes(),
+                MotivationSet.of(agentSettings.getMotivations())));
     }
 
     public void setEditingAgentSettings(AgentSettings agentSettings) {
-        getAgent(editingAgentIndex).setAttributes(agentSettings.getAttributes());
-        getAgent(editingAgentIndex).setMotivations(agentSettings.getMotivations());
+        setAgentSettings(agentSettings, editingAgentIndex);
     }
 
     public ArrayList<Agent> getActiveAgents() {
@@ -8,15 +8,19 @@ import Simulation.Agent.AgentStructs.ColorModel;
 import java.awt.*;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 public class AgentSettings implements Serializable {
 
+    // Fixed so agent settings in older .dat files can still be read
+    private static final long serialVersionUID = -1239986183486392917L;
+
     private Attributes attributes;
     private ArrayList<Motivation> motivations;
 
-    public AgentSettings(Attributes attributes, ArrayList<Motivation> motivations) {
+    public AgentSettings(Attributes attributes, List<Motivation> motivations) {
         this.attributes = attributes.copy();
-        this.motivations = (ArrayList<Motivation>) motivations.clone();
+        this.motivations = new ArrayList<>(motivations);
     }
 
 
@@ -0,0 +1,464 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentConcreteComponents.StoredAgent;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Environment.Environment;
+import Simulation.Environment.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/** Stores every live agent as a slot in a set of parallel primitive arrays rather than as its own object graph.
+ * <p>
+ * Each slot holds an agent's energy, maxEnergy, age, maxAge, creationCounter, location index (y * size + x), species ID
+ * and genotype index.
+ * Genotypes are the agents Attributes, kept once in a reference counted table so agents sharing a set of Attributes
+ * point at the same entry. Each slot also points at its agents MotivationSet, which is immutable and shared, so agents
+ * of a species share one set until one is given its own. The store also keeps the order agents are run in each
+ * cycle, so the Simulation class can iterate over slot indices instead of a list of agent objects.
+ * <p>
+ * Every slot owns one StoredAgent handle which implements the Agent interface over the arrays, this is what is placed on
+ * the environment and passed to motivations. Handles are reused when their slot is reused.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class AgentStore {
+
+    // How many slots the store starts with, the arrays double in length whenever they run out
+    private static final int INITIAL_CAPACITY = 1024;
+    // The number of species an agent editor can hold
+    private static final int SPECIES_NUMBER = 8;
+
+    // The environment the agents live in, used to convert location indexes into coordinates
+    private final Environment environment;
+
+    // Each slots current energy
+    private int[] energy;
+    // The energy each slot is capped at, kept apart from its attributes as BasicScores keeps it
+    private int[] maxEnergy;
+    // Each slots age
+    private int[] age;
+    // Each slots maxAge, kept apart from its attributes as BasicScores keeps it
+    private int[] maxAge;
+    // Each slots creation counter
+    private int[] creationCounter;
+    // Each slots location as an index into the environment grid
+    private int[] location;
+    // Each slots species ID, kept here so the diagnostics don't need to look up the genotype
+    private int[] speciesID;
+    // Each slots index into the genotype table
+    private int[] genotype;
+    // Each slots motivations, shared with every other slot given the same set
+    private MotivationSet[] motivations;
+    // Each slots spaceTaken flag
+    private boolean[] spaceTaken;
+    // True if the slot currently holds a living agent
+    private boolean[] live;
+    // The handle for each slot, created the first time the slot is used
+    private StoredAgent[] handles;
+
+    // Released slots waiting to be reused
+    private int[] freeSlots;
+    private int freeSlotCount;
+    // The number of slots that have ever been handed out, slots at or past this index have never been used
+    private int slotsUsed;
+
+    // The table of genotypes and how many slots reference each one
+    private Attributes[] genotypes;
+    private int[] genotypeReferences;
+    private int[] freeGenotypes;
+    private int freeGenotypeCount;
+    private int genotypesUsed;
+    // The index of each set of attributes in the genotype table, interned attributes are shared by many agents
+    private final IdentityHashMap<Attributes, Integer> genotypeIndexes = new IdentityHashMap<>();
+
+    // The motivations each species new agents are allocated with
+    private final ArrayList<MotivationSet> speciesMotivations;
+
+    // The slots to be run this cycle, in order
+    private int[] runOrder;
+    private int runOrderLength;
+    // The slots that survived this cycle or were born in it, becomes the run order at the end of the cycle
+    private int[] nextRunOrder;
+    private int nextRunOrderLength;
+
+    public AgentStore(Environment environment) {
+        this.environment = environment;
+        this.speciesMotivations = new ArrayList<>();
+        for (int i = 0; i < SPECIES_NUMBER; i++) {
+            speciesMotivations.add(MotivationSet.EMPTY);
+        }
+        clear();
+    }
+
+    /**
+     * Removes every agent from the store.
+     * <p>
+     * The arrays are returned to their initial capacity, so a store that held a dense world doesn't keep its memory.
+     */
+    public void clear() {
+        energy = new int[INITIAL_CAPACITY];
+        maxEnergy = new int[INITIAL_CAPACITY];
+        age = new int[INITIAL_CAPACITY];
+        maxAge = new int[INITIAL_CAPACITY];
+        creationCounter = new int[INITIAL_CAPACITY];
+        location = new int[INITIAL_CAPACITY];
+        speciesID = new int[INITIAL_CAPACITY];
+        genotype = new int[INITIAL_CAPACITY];
+        motivations = new MotivationSet[INITIAL_CAPACITY];
+        spaceTaken = new boolean[INITIAL_CAPACITY];
+        live = new boolean[INITIAL_CAPACITY];
+        handles = new StoredAgent[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+        freeSlotCount = 0;
+        slotsUsed = 0;
+        genotypes = new Attributes[INITIAL_CAPACITY];
+        genotypeReferences = new int[INITIAL_CAPACITY];
+        freeGenotypes = new int[INITIAL_CAPACITY];
+        freeGenotypeCount = 0;
+        genotypesUsed = 0;
+        genotypeIndexes.clear();
+        runOrder = new int[INITIAL_CAPACITY];
+        runOrderLength = 0;
+        nextRunOrder = new int[INITIAL_CAPACITY];
+        nextRunOrderLength = 0;
+    }
+
+    /**
+     * Claims a slot for a new agent and returns it.
+     * <p>
+     * The agent starts with an age of 0, a creationCounter equal to its creationAge, and a maxEnergy and maxAge of its
+     * energyCapacity and lifespan, the same as BasicAgent.initScores(). Its energy is capped at its maxEnergy, and it's
+     * given its species motivations. The slot is not added to the run
+     * order, use keepAlive() for that.
+     * @param attributes the new agents attributes
+     * @param startingEnergy the energy the new agent starts with
+     * @param x the x coordinate of the new agent
+     * @param y the y coordinate of the new agent
+     * @return the slot claimed
+     */
+    public int allocate(Attributes attributes, int startingEnergy, int x, int y) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotsUsed == energy.length) {
+                growSlots();
+            }
+            slot = slotsUsed++;
+        }
+        genotype[slot] = registerGenotype(attributes);
+        speciesID[slot] = attributes.getID();
+        motivations[slot] = speciesMotivations.get(attributes.getID());
+        location[slot] = y * environment.getSize() + x;
+        age[slot] = 0;
+        maxAge[slot] = attributes.getLifespan();
+        creationCounter[slot] = attributes.getCreationAge();
+        spaceTaken[slot] = false;
+        live[slot] = true;
+        maxEnergy[slot] = attributes.getEnergyCapacity();
+        energy[slot] = Math.min(Math.max(startingEnergy, 0), maxEnergy[slot]);
+        if (handles[slot] == null) {
+            handles[slot] = new StoredAgent(this, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Frees the input slot so that it can be reused.
+     * <p>
+     * This does not remove the agent from the environment, the caller is responsible for that.
+     * @param slot the slot to release
+     */
+    public void release(int slot) {
+        if (!live[slot]) {
+            return;
+        }
+        live[slot] = false;
+        releaseGenotype(genotype[slot]);
+        motivations[slot] = null;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Adds the slot to the next cycles run order.
+     * @param slot the slot that should be run next cycle
+     */
+    public void keepAlive(int slot) {
+        if (nextRunOrderLength == nextRunOrder.length) {
+            nextRunOrder = Arrays.copyOf(nextRunOrder, nextRunOrder.length * 2);
+        }
+        nextRunOrder[nextRunOrderLength++] = slot;
+    }
+
+    /**
+     * Makes the slots kept alive this cycle the new run order, and shuffles it.
+     * <p>
+     * Equivalent to the Simulation class replacing agentList with aliveAgentList and shuffling it.
+     * @param random the generator used to shuffle the run order
+     */
+    public void endCycle(RandomGenerator random) {
+        restoreRunOrder();
+        for (int i = runOrderLength - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int slot = runOrder[i];
+            runOrder[i] = runOrder[j];
+            runOrder[j] = slot;
+        }
+    }
+
+    /**
+     * Makes the slots kept alive this cycle the new run order, in the order they were kept alive. Used when restoring
+     * saved state, where slots are kept alive in the run order they were saved in.
+     */
+    public void restoreRunOrder() {
+        int[] swap = runOrder;
+        runOrder = nextRunOrder;
+        runOrderLength = nextRunOrderLength;
+        nextRunOrder = swap;
+        nextRunOrderLength = 0;
+    }
+
+    /**
+     * Iterates the agents age by one, and de-iterates its creation counter.
+     * @param slot the agents slot
+     */
+    public void liveDay(int slot) {
+        age[slot]++;
+        creationCounter[slot] = Math.max(creationCounter[slot] - 1, 0);
+    }
+
+    /**
+     * @return true if the agents energy is <= 0 or if its age is >= its lifespan.
+     */
+    public boolean isDead(int slot) {
+        return energy[slot] <= 0 || age[slot] >= genotypes[genotype[slot]].getLifespan();
+    }
+
+    /**
+     * Moves the agent to a new location, and reduces its energy by the distance moved multiplied by its energyLostPerTile.
+     * @param slot the agents slot
+     * @param x the new x coordinate
+     * @param y the new y coordinate
+     */
+    public void move(int slot, int x, int y) {
+        int dx = x - getX(slot);
+        int dy = y - getY(slot);
+        int distance = (int) Math.floor(Math.sqrt(dx * dx + dy * dy));
+        setEnergy(slot, energy[slot] - getAttributes(slot).getEnergyLostPerTile() * distance);
+        location[slot] = y * environment.getSize() + x;
+    }
+
+    /**
+     * Increases the agents energy and returns how much was successfully taken from the tile.
+     * @param slot the agents slot
+     * @param tileEnergyLevel the energy level of the tile being grazed
+     * @return how much energy was successfully taken from the tile
+     */
+    public int graze(int slot, int tileEnergyLevel) {
+        if (tileEnergyLevel <= 0) {
+            return 0;
+        }
+        int eatAmount = Math.min(tileEnergyLevel, getAttributes(slot).getEatAmount());
+        setEnergy(slot, energy[slot] + eatAmount);
+        return eatAmount;
+    }
+
+    /**
+     * Claims a slot for each child the agent manages to create and writes them into childSlots.
+     * <p>
+     * Follows the same rules as BasicAgent.create(): a child is placed on each free adjacent tile up to the agents creationSize,
+     * for as long as the parent can afford its creationCost. The parents creationCounter is then set to its creationDelay. The children
+     * are given the parents motivations, and are not placed on the environment.
+     * @param slot the parents slot
+     * @param parentB the attributes of the second parent
+     * @param childSlots the array the child slots are written into, must have a length of at least 8
+     * @param random the generator used to choose the childrens locations and attributes
+     * @return how many children were created
+     */
+    public int create(int slot, Attributes parentB, int[] childSlots, RandomGenerator random) {
+        Attributes parentA = getAttributes(slot);
+        ArrayList<Location> childLocations = environment.freeSpace(getX(slot), getY(slot), parentA.getSize(), random);
+        int children = 0;
+        int childLimit = Math.min(childLocations.size(), parentA.getCreationSize());
+        for (int i = 0; i < childLimit; i++) {
+            if (parentA.getCreationCost() > energy[slot]) {
+                break;
+            }
+            Location childLocation = childLocations.get(i);
+            int child = allocate(parentA.combine(parentB, random), parentA.getCreationCost(), childLocation.getX(), childLocation.getY());
+            motivations[child] = motivations[slot];
+            childSlots[children++] = child;
+            setEnergy(slot, energy[slot] - parentA.getCreationCost());
+        }
+        creationCounter[slot] = Math.max(parentA.getCreationDelay(), 0);
+        return children;
+    }
+
+    /**
+     * Replaces the agents attributes, keeping its energy, age, creationCounter, maxEnergy and maxAge, the same as
+     * BasicAgent.setAttributes().
+     * @param slot the agents slot
+     * @param attributes the new attributes
+     */
+    public void setAttributes(int slot, Attributes attributes) {
+        int oldGenotype = genotype[slot];
+        genotype[slot] = registerGenotype(attributes);
+        releaseGenotype(oldGenotype);
+        speciesID[slot] = attributes.getID();
+    }
+
+    /**
+     * Adds the attributes to the genotype table, or increases the reference count of their entry if they're already in it.
+     */
+    private int registerGenotype(Attributes attributes) {
+        Integer existing = genotypeIndexes.get(attributes);
+        if (existing != null) {
+            genotypeReferences[existing]++;
+            return existing;
+        }
+        int index;
+        if (freeGenotypeCount > 0) {
+            index = freeGenotypes[--freeGenotypeCount];
+        } else {
+            if (genotypesUsed == genotypes.length) {
+                genotypes = Arrays.copyOf(genotypes, genotypes.length * 2);
+                genotypeReferences = Arrays.copyOf(genotypeReferences, genotypeReferences.length * 2);
+                freeGenotypes = Arrays.copyOf(freeGenotypes, freeGenotypes.length * 2);
+            }
+            index = genotypesUsed++;
+        }
+        genotypes[index] = attributes;
+        genotypeReferences[index] = 1;
+        genotypeIndexes.put(attributes, index);
+        return index;
+    }
+
+    private void releaseGenotype(int index) {
+        genotypeReferences[index]--;
+        if (genotypeReferences[index] <= 0) {
+            genotypeIndexes.remove(genotypes[index]);
+            genotypes[index] = null;
+            freeGenotypes[freeGenotypeCount++] = index;
+        }
+    }
+
+    private void growSlots() {
+        int capacity = energy.length * 2;
+        energy = Arrays.copyOf(energy, capacity);
+        maxEnergy = Arrays.copyOf(maxEnergy, capacity);
+        age = Arrays.copyOf(age, capacity);
+        maxAge = Arrays.copyOf(maxAge, capacity);
+        creationCounter = Arrays.copyOf(creationCounter, capacity);
+        location = Arrays.copyOf(location, capacity);
+        speciesID = Arrays.copyOf(speciesID, capacity);
+        genotype = Arrays.copyOf(genotype, capacity);
+        motivations = Arrays.copyOf(motivations, capacity);
+        spaceTaken = Arrays.copyOf(spaceTaken, capacity);
+        live = Arrays.copyOf(live, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+    }
+
+    public int getRunOrderLength() {
+        return runOrderLength;
+    }
+    public int getRunOrderSlot(int index) {
+        return runOrder[index];
+    }
+    public boolean isLive(int slot) {
+        return live[slot];
+    }
+    public StoredAgent getHandle(int slot) {
+        return handles[slot];
+    }
+    public Attributes getAttributes(int slot) {
+        return genotypes[genotype[slot]];
+    }
+    public int getSpeciesID(int slot) {
+        return speciesID[slot];
+    }
+    public int getEnergy(int slot) {
+        return energy[slot];
+    }
+    public void setEnergy(int slot, int energy) {
+        this.energy[slot] = Math.min(Math.max(energy, 0), maxEnergy[slot]);
+    }
+    public int getMaxEnergy(int slot) {
+        return maxEnergy[slot];
+    }
+    public void setMaxEnergy(int slot, int maxEnergy) {
+        this.maxEnergy[slot] = maxEnergy;
+    }
+    public int getAge(int slot) {
+        return age[slot];
+    }
+    public void setAge(int slot, int age) {
+        this.age[slot] = age;
+    }
+    public int getMaxAge(int slot) {
+        return maxAge[slot];
+    }
+    public void setMaxAge(int slot, int maxAge) {
+        this.maxAge[slot] = maxAge;
+    }
+    public int getCreationCounter(int slot) {
+        return creationCounter[slot];
+    }
+    public void setCreationCounter(int slot, int creationCounter) {
+        this.creationCounter[slot] = Math.max(creationCounter, 0);
+    }
+    public int getLocationIndex(int slot) {
+        return location[slot];
+    }
+    public int getX(int slot) {
+        return location[slot] % environment.getSize();
+    }
+    public int getY(int slot) {
+        return location[slot] / environment.getSize();
+    }
+    public void setLocation(int slot, int x, int y) {
+        location[slot] = y * environment.getSize() + x;
+    }
+    public boolean isSpaceTaken(int slot) {
+        return spaceTaken[slot];
+    }
+    public void setSpaceTaken(int slot) {
+        spaceTaken[slot] = true;
+    }
+    public MotivationSet getMotivations(int slot) {
+        return motivations[slot];
+    }
+
+    /**
+     * Gives the agent in the input slot its own motivations, the rest of its species keeps theirs.
+     * @param slot the agents slot
+     * @param motivations the new motivations
+     */
+    public void setMotivations(int slot, List<Motivation> motivations) {
+        this.motivations[slot] = MotivationSet.of(motivations);
+    }
+    public MotivationSet getSpeciesMotivations(int speciesID) {
+        return speciesMotivations.get(speciesID);
+    }
+
+    /**
+     * Sets the motivations the species new agents are allocated with. Agents already in the store keep theirs, and
+     * children are given their parents.
+     * @param speciesID the species ID
+     * @param motivations the species motivations
+     */
+    public void setSpeciesMotivations(int speciesID, List<Motivation> motivations) {
+        speciesMotivations.set(speciesID, MotivationSet.of(motivations));
+    }
+    public Environment getEnvironment() {
+        return environment;
+    }
+}
@@ -0,0 +1,252 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentConcreteComponents.CreatorMotivation;
+import Simulation.Agent.AgentConcreteComponents.GrazerMotivation;
+import Simulation.Agent.AgentConcreteComponents.PredatorMotivation;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Agent.AgentInterfaces.Scores;
+import Simulation.Agent.AgentStructs.AgentAction;
+import Simulation.Agent.AgentStructs.AgentVision;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+/** A species motivations compiled into one method which scores a tile, used by Simulation.AgentLogic.decide().
+ * <p>
+ * Creator, Grazer and Predator motivations are inlined into a single switch, with their bias and weight read from
+ * arrays and the CREATE score worked out when the kernel is compiled. The tile and the deciding agent are only read
+ * once per tile, however many motivations look at them, and nothing is allocated. Any other Motivation, including
+ * subclasses of the standard ones, is run through its getAction() and getScore() methods in its place in the list, so
+ * custom motivations keep working.
+ * <p>
+ * The result is the same as running each motivation in order and keeping the highest score, ties broken with the same
+ * calls to the generator, so a simulation is identical whichever way its motivations are run.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public final class DecisionKernel {
+
+    // How each motivation is run
+    private static final byte CREATOR = 0;
+    private static final byte GRAZER = 1;
+    private static final byte PREDATOR = 2;
+    private static final byte CUSTOM = 3;
+
+    // Every action, indexed by ordinal, so a packed result can be turned back into its action
+    private static final AgentAction[] ACTIONS = AgentAction.values();
+
+    // How each motivation in the list is run
+    private final byte[] kinds;
+    // The bias and weight of each motivation
+    private final int[] biases;
+    private final int[] weights;
+    // The score of a CREATE decision for each motivation, only used by creator motivations
+    private final int[] createScores;
+    // The motivations themselves, only used by custom motivations
+    private final Motivation[] motivations;
+
+    private DecisionKernel(byte[] kinds, int[] biases, int[] weights, int[] createScores, Motivation[] motivations) {
+        this.kinds = kinds;
+        this.biases = biases;
+        this.weights = weights;
+        this.createScores = createScores;
+        this.motivations = motivations;
+    }
+
+    /**
+     * Compiles the input motivations, in order, into a kernel.
+     * @param motivations the motivations to compile
+     */
+    public static DecisionKernel compile(List<Motivation> motivations) {
+        int count = motivations.size();
+        byte[] kinds = new byte[count];
+        int[] biases = new int[count];
+        int[] weights = new int[count];
+        int[] createScores = new int[count];
+        Motivation[] compiled = new Motivation[count];
+        for (int i = 0; i < count; i++) {
+            Motivation motivation = motivations.get(i);
+            // Exact classes only, a subclass could change how it scores
+            Class<?> type = motivation.getClass();
+            if (type == CreatorMotivation.class) {
+                kinds[i] = CREATOR;
+            }
+            else if (type == GrazerMotivation.class) {
+                kinds[i] = GRAZER;
+            }
+            else if (type == PredatorMotivation.class) {
+                kinds[i] = PREDATOR;
+            }
+            else {
+                kinds[i] = CUSTOM;
+            }
+            biases[i] = motivation.getBias();
+            weights[i] = motivation.getWeight();
+            createScores[i] = biases[i] * weights[i];
+            compiled[i] = motivation;
+        }
+        return new DecisionKernel(kinds, biases, weights, createScores, compiled);
+    }
+
+    /**
+     * Returns true if every motivation is run inline, rather than through the Motivation interface.
+     */
+    public boolean isFused() {
+        for (byte kind : kinds) {
+            if (kind == CUSTOM) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the kernel is a single, standard GrazerMotivation. Such an agent never breaks ties between
+     * motivations, so Simulation.AgentLogic can score its whole vision window at once.
+     */
+    public boolean isGrazerOnly() {
+        return kinds.length == 1 && kinds[0] == GRAZER;
+    }
+
+    /**
+     * Returns the bias of the motivation at the input index.
+     * @param index the motivations index in the list
+     */
+    public int getBias(int index) {
+        return biases[index];
+    }
+
+    /**
+     * Returns the weight of the motivation at the input index.
+     * @param index the motivations index in the list
+     */
+    public int getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Scores the input tile for the deciding agent, and returns its best action and score packed by pack().
+     * <p>
+     * Each motivation gives the tile an action and a score. The best is the highest score above 0, ties are broken by
+     * the n-th equal score replacing the running best with probability 1/n. If no score is above 0 the result is NONE
+     * with a score of 0.
+     * @param tile the tile being looked at
+     * @param attributes the deciding agents attributes
+     * @param scores the deciding agents scores
+     * @param random the generator used to break ties
+     */
+    public long scoreTile(AgentVision tile, Attributes attributes, Scores scores, RandomGenerator random) {
+        boolean occupied = tile.isOccupied();
+        Attributes occupantAttributes = tile.getOccupantAttributes();
+        int size = attributes.getSize();
+        int occupantSize = occupied ? occupantAttributes.getSize() : 0;
+        AgentAction tileAction = AgentAction.NONE;
+        int tileScore = 0;
+        int tileTies = 0;
+        for (int m = 0; m < kinds.length; m++) {
+            AgentAction action;
+            int score;
+            switch (kinds[m]) {
+                case CREATOR -> {
+                    if (!occupied) {
+                        action = AgentAction.MOVE;
+                        score = 1;
+                    }
+                    else if (canCreate(attributes, scores) && Objects.equals(occupantAttributes.getID(), attributes.getID())
+                            && tile.getOccupantScores().getAge() >= occupantAttributes.getCreationAge()
+                            && tile.getOccupantScores().getCreationCounter() <= 0
+                            && CreatorMotivation.compareAttributes(attributes, occupantAttributes)) {
+                        action = AgentAction.CREATE;
+                        score = createScores[m];
+                    }
+                    else {
+                        action = AgentAction.NONE;
+                        score = -1;
+                    }
+                }
+                case GRAZER -> {
+                    if (occupied && occupantSize >= size) {
+                        action = AgentAction.NONE;
+                        score = -1;
+                    }
+                    else if (tile.getEnergyLevel() > 0) {
+                        action = AgentAction.GRAZE;
+                        score = biases[m] + Math.min(tile.getEnergyLevel(), attributes.getEatAmount()) * weights[m];
+                    }
+                    else {
+                        action = AgentAction.MOVE;
+                        score = 1;
+                    }
+                }
+                case PREDATOR -> {
+                    if (!occupied) {
+                        action = AgentAction.MOVE;
+                        score = 1;
+                    }
+                    else if (occupantSize < size && !Objects.equals(occupantAttributes.getID(), attributes.getID())) {
+                        action = AgentAction.PREDATE;
+                        score = biases[m] + tile.getOccupantScores().getEnergy() * weights[m];
+                    }
+                    else {
+                        action = AgentAction.NONE;
+                        score = -1;
+                    }
+                }
+                default -> {
+                    action = motivations[m].getAction(tile, attributes, scores);
+                    score = motivations[m].getScore(action, tile, attributes, scores);
+                }
+            }
+            if (score > tileScore) {
+                tileAction = action;
+                tileScore = score;
+                tileTies = 1;
+            }
+            else if (tileTies > 0 && score == tileScore && random.nextInt(++tileTies) == 0) {
+                tileAction = action;
+            }
+        }
+        return pack(tileAction, tileScore);
+    }
+
+    /**
+     * Returns true if the agent is old enough, rested enough and has the energy to create.
+     */
+    private static boolean canCreate(Attributes attributes, Scores scores) {
+        return scores.getAge() >= attributes.getCreationAge()
+                && scores.getCreationCounter() <= 0
+                && scores.getEnergy() > attributes.getEnergyCapacity() / 4;
+    }
+
+    /**
+     * Packs an action and score into one long, the score in the high 32 bits and the actions ordinal in the low.
+     */
+    public static long pack(AgentAction action, int score) {
+        return ((long) score << 32) | action.ordinal();
+    }
+
+    public static int unpackScore(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static AgentAction unpackAction(long packed) {
+        return ACTIONS[(int) packed];
+    }
+
+    /**
+     * Packs an agents decision into one long the same way pack() packs a tiles result, with the index of the chosen tile
+     * in place of the score. Simulation.AgentLogic passes decisions around like this, so deciding allocates nothing.
+     * @param action the action chosen
+     * @param tileIndex the index of the tile the action is taken on
+     */
+    public static long packDecision(AgentAction action, int tileIndex) {
+        return pack(action, tileIndex);
+    }
+
+    public static int unpackTile(long packedDecision) {
+        return unpackScore(packedDecision);
+    }
+}
@@ -0,0 +1,172 @@
+package Simulation.Agent.AgentUtility;
+
+/** Holds every calculated attribute for every size and creationSize an agent can have, so calculating an agents
+ * attributes is a few array lookups rather than calls to Math.pow.
+ * <p>
+ * The tables are built from a Formulas object, which defines how each calculated attribute is worked out. STANDARD_FORMULAS
+ * are the formulas agents have always used. setFormulas() builds a new set of tables and swaps them in, so experiments can
+ * tune the formulas; attributes calculated before the swap keep their values. Sizes and creationSizes outside the ranges
+ * the attribute setters allow are calculated with the formulas directly.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class DerivedAttributes {
+
+    // The range of sizes and creationSizes the tables cover, the same as the BaseAttributes setters allow
+    public static final int MIN_SIZE = 1;
+    public static final int MAX_SIZE = 101;
+    public static final int MIN_CREATION_SIZE = 1;
+    public static final int MAX_CREATION_SIZE = 9;
+    // How many creationSizes the creationCost table holds for each size
+    private static final int CREATION_SIZES = MAX_CREATION_SIZE - MIN_CREATION_SIZE + 1;
+
+    /**
+     * Defines how each calculated attribute is worked out from an agents size and creationSize.
+     */
+    public interface Formulas {
+
+        int energyCapacity(int size);
+
+        int energyLostPerTile(int size);
+
+        int eatAmount(int size);
+
+        int lifespan(int size);
+
+        int creationAge(int size, int lifespan);
+
+        int creationCost(int energyCapacity, int creationSize);
+
+        int creationDelay(int size);
+    }
+
+    // The formulas agents have always used
+    public static final Formulas STANDARD_FORMULAS = new Formulas() {
+        @Override
+        public int energyCapacity(int size) {
+            return size * 5;
+        }
+        @Override
+        public int energyLostPerTile(int size) {
+            return (int) Math.round(Math.pow(size, 0.65));
+        }
+        @Override
+        public int eatAmount(int size) {
+            return (int) Math.round(Math.pow(size, 0.5)) * 2;
+        }
+        @Override
+        public int lifespan(int size) {
+            return 15 * (int) Math.round(Math.pow(size, 0.75));
+        }
+        @Override
+        public int creationAge(int size, int lifespan) {
+            return lifespan / 5;
+        }
+        @Override
+        public int creationCost(int energyCapacity, int creationSize) {
+            return (energyCapacity / 2) / creationSize;
+        }
+        @Override
+        public int creationDelay(int size) {
+            return (int) Math.round(Math.pow(size, 0.5));
+        }
+    };
+
+    // The tables currently in use
+    private static volatile DerivedAttributes current = new DerivedAttributes(STANDARD_FORMULAS);
+
+    // The formulas the tables were built from
+    private final Formulas formulas;
+    // Each calculated attribute indexed by size - MIN_SIZE
+    private final int[] energyCapacity;
+    private final int[] energyLostPerTile;
+    private final int[] eatAmount;
+    private final int[] lifespan;
+    private final int[] creationAge;
+    private final int[] creationDelay;
+    // The creationCost indexed by (size - MIN_SIZE) * CREATION_SIZES + creationSize - MIN_CREATION_SIZE
+    private final int[] creationCost;
+
+    /**
+     * Builds the tables for every size and creationSize in range using the input formulas.
+     * @param formulas the formulas to build the tables from
+     */
+    public DerivedAttributes(Formulas formulas) {
+        this.formulas = formulas;
+        int sizes = MAX_SIZE - MIN_SIZE + 1;
+        energyCapacity = new int[sizes];
+        energyLostPerTile = new int[sizes];
+        eatAmount = new int[sizes];
+        lifespan = new int[sizes];
+        creationAge = new int[sizes];
+        creationDelay = new int[sizes];
+        creationCost = new int[sizes * CREATION_SIZES];
+        for (int i = 0; i < sizes; i++) {
+            int size = i + MIN_SIZE;
+            energyCapacity[i] = formulas.energyCapacity(size);
+            energyLostPerTile[i] = formulas.energyLostPerTile(size);
+            eatAmount[i] = formulas.eatAmount(size);
+            lifespan[i] = formulas.lifespan(size);
+            creationAge[i] = formulas.creationAge(size, lifespan[i]);
+            creationDelay[i] = formulas.creationDelay(size);
+            for (int j = 0; j < CREATION_SIZES; j++) {
+                creationCost[i * CREATION_SIZES + j] = formulas.creationCost(energyCapacity[i], j + MIN_CREATION_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Returns the tables currently in use.
+     */
+    public static DerivedAttributes getCurrent() {
+        return current;
+    }
+
+    /**
+     * Builds tables from the input formulas and uses them for every set of attributes calculated from now on.
+     * @param formulas the new formulas
+     */
+    public static void setFormulas(Formulas formulas) {
+        current = new DerivedAttributes(formulas);
+    }
+
+    public Formulas getFormulas() {
+        return formulas;
+    }
+
+    private static boolean isSizeInRange(int size) {
+        return size >= MIN_SIZE && size <= MAX_SIZE;
+    }
+
+    public int getEnergyCapacity(int size) {
+        return isSizeInRange(size) ? energyCapacity[size - MIN_SIZE] : formulas.energyCapacity(size);
+    }
+
+    public int getEnergyLostPerTile(int size) {
+        return isSizeInRange(size) ? energyLostPerTile[size - MIN_SIZE] : formulas.energyLostPerTile(size);
+    }
+
+    public int getEatAmount(int size) {
+        return isSizeInRange(size) ? eatAmount[size - MIN_SIZE] : formulas.eatAmount(size);
+    }
+
+    public int getLifespan(int size) {
+        return isSizeInRange(size) ? lifespan[size - MIN_SIZE] : formulas.lifespan(size);
+    }
+
+    public int getCreationAge(int size) {
+        return isSizeInRange(size) ? creationAge[size - MIN_SIZE] : formulas.creationAge(size, formulas.lifespan(size));
+    }
+
+    public int getCreationDelay(int size) {
+        return isSizeInRange(size) ? creationDelay[size - MIN_SIZE] : formulas.creationDelay(size);
+    }
+
+    public int getCreationCost(int size, int creationSize) {
+        if (isSizeInRange(size) && creationSize >= MIN_CREATION_SIZE && creationSize <= MAX_CREATION_SIZE) {
+            return creationCost[(size - MIN_SIZE) * CREATION_SIZES + creationSize - MIN_CREATION_SIZE];
+        }
+        return formulas.creationCost(formulas.energyCapacity(size), creationSize);
+    }
+}
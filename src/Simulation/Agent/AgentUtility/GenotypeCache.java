@@ -0,0 +1,235 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentBaseComponents.BaseAttributes;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentStructs.ColorModel;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** Interns agent Attributes, so every agent with the same genotype points at one shared, immutable set of Attributes.
+ * <p>
+ * Most children are genetically identical to one of their parents, so rather than each birth keeping its own copy of
+ * the name, colors and calculated attributes, the child is looked up here by value and the existing set is returned.
+ * Only a genotype that hasn't been seen before, usually the result of a mutation, adds a new entry. Entries are marked
+ * as interned, and their setters throw, so a shared set can't be changed underneath the agents using it.
+ * <p>
+ * Lookups fill in a key owned by the calling thread, so finding an existing genotype doesn't allocate, and the cache can
+ * be used from every thread cycling the simulation. As random color models can produce an endless stream of new
+ * genotypes, the cache holds at most MAX_GENOTYPES of them, evicting with a second chance policy: genotypes are queued
+ * in the order they were added, each is marked when it's looked up, and a full cache removes the oldest genotype that
+ * hasn't been looked up since it was last passed over, so genotypes still being born keep being shared. Agents keep the
+ * attributes they were given, evicted or not.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class GenotypeCache {
+
+    // How many genotypes are kept before the oldest unused ones are evicted
+    private static final int MAX_GENOTYPES = 1 << 16;
+
+    // The interned attributes of each genotype
+    private static final ConcurrentHashMap<Genotype, Entry> genotypes = new ConcurrentHashMap<>();
+    // Every interned genotype, oldest first, the order they're considered for eviction in
+    private static final ConcurrentLinkedQueue<Genotype> evictionQueue = new ConcurrentLinkedQueue<>();
+    // The key each thread fills in to look genotypes up
+    private static final ThreadLocal<Genotype> lookupKey = ThreadLocal.withInitial(Genotype::new);
+
+    private GenotypeCache() {
+    }
+
+    /**
+     * Returns the interned attributes with the same values as the input attributes, interning a copy of them if none
+     * exist yet. Attributes that are already interned are returned as they are.
+     * <p>
+     * The input attributes are never kept, so they can be reused once this returns.
+     * @param attributes the attributes to intern
+     */
+    public static Attributes intern(Attributes attributes) {
+        if (!(attributes instanceof BaseAttributes baseAttributes) || baseAttributes.isInterned()) {
+            return attributes;
+        }
+        Entry entry = genotypes.get(lookupKey.get().set(attributes));
+        if (entry != null) {
+            // Only written when it changes, so the common genotypes aren't written to by every thread on every birth
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.attributes;
+        }
+        evict();
+        BaseAttributes copy = baseAttributes.internedCopy();
+        Genotype key = new Genotype().set(copy);
+        entry = genotypes.putIfAbsent(key, new Entry(copy));
+        if (entry != null) {
+            return entry.attributes;
+        }
+        evictionQueue.offer(key);
+        return copy;
+    }
+
+    /**
+     * Evicts genotypes until there's room for a new one.
+     * <p>
+     * The oldest genotype is taken from the queue. If it's been looked up since it was last checked it's unmarked and
+     * queued again, otherwise it's removed. At most two passes over the queue are made, so genotypes being looked up
+     * as fast as they're unmarked can't keep the cache from making room.
+     */
+    private static void evict() {
+        for (int checked = 0; genotypes.size() >= MAX_GENOTYPES && checked < 2 * MAX_GENOTYPES; checked++) {
+            Genotype oldest = evictionQueue.poll();
+            if (oldest == null) {
+                return;
+            }
+            Entry entry = genotypes.get(oldest);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                evictionQueue.offer(oldest);
+            }
+            else {
+                genotypes.remove(oldest, entry);
+            }
+        }
+        // Everything was looked up again while being checked, so the oldest goes regardless
+        if (genotypes.size() >= MAX_GENOTYPES) {
+            Genotype oldest = evictionQueue.poll();
+            if (oldest != null) {
+                genotypes.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * Returns how many genotypes are interned.
+     */
+    public static int getGenotypeCount() {
+        return genotypes.size();
+    }
+
+    /**
+     * A genotypes interned attributes, and whether it's been looked up since the eviction queue last passed it.
+     * <p>
+     * The mark is only a hint, so it's read and written without synchronising; a lost update at worst evicts a genotype
+     * a pass early or late.
+     */
+    private static class Entry {
+
+        // The shared attributes of the genotype
+        private final Attributes attributes;
+        // Set when the genotype is looked up, cleared when the eviction queue passes it
+        private boolean referenced;
+
+        private Entry(Attributes attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    /**
+     * Every value that makes up a set of Attributes, compared and hashed by value.
+     */
+    private static class Genotype {
+
+        // The class of the attributes, so Basic and Mutating attributes are never mixed up
+        private Class<?> type;
+        private int spawningWeight;
+        private String name;
+        private int ID;
+        private int seedColor;
+        private int mutatingColor;
+        private ColorModel colorModel;
+        private int randomColorModelMagnitude;
+        private int mutationChance;
+        private int range;
+        private int size;
+        private int creationSize;
+        private int energyCapacity;
+        private int energyLostPerTile;
+        private int eatAmount;
+        private int lifespan;
+        private int creationAge;
+        private int creationCost;
+        private int creationDelay;
+        // Worked out once when the key is set
+        private int hash;
+
+        /**
+         * Copies the values of the input attributes into this key and returns it.
+         * @param attributes the attributes to copy
+         */
+        private Genotype set(Attributes attributes) {
+            type = attributes.getClass();
+            spawningWeight = attributes.getSpawningWeight();
+            name = attributes.getName();
+            ID = attributes.getID();
+            seedColor = attributes.getSeedColor().getRGB();
+            mutatingColor = attributes.getMutatingColor().getRGB();
+            colorModel = attributes.getColorModel();
+            randomColorModelMagnitude = attributes.getRandomColorModelMagnitude();
+            mutationChance = attributes.getMutationChance();
+            range = attributes.getRange();
+            size = attributes.getSize();
+            creationSize = attributes.getCreationSize();
+            energyCapacity = attributes.getEnergyCapacity();
+            energyLostPerTile = attributes.getEnergyLostPerTile();
+            eatAmount = attributes.getEatAmount();
+            lifespan = attributes.getLifespan();
+            creationAge = attributes.getCreationAge();
+            creationCost = attributes.getCreationCost();
+            creationDelay = attributes.getCreationDelay();
+            int h = type.hashCode();
+            h = 31 * h + ID;
+            h = 31 * h + seedColor;
+            h = 31 * h + mutatingColor;
+            h = 31 * h + ((size * 16 + creationSize) * 16 + range);
+            h = 31 * h + mutationChance;
+            h = 31 * h + colorModel.ordinal();
+            h = 31 * h + Objects.hashCode(name);
+            h = 31 * h + spawningWeight;
+            h = 31 * h + randomColorModelMagnitude;
+            h = 31 * h + lifespan;
+            h = 31 * h + creationCost;
+            hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Genotype other)) {
+                return false;
+            }
+            return hash == other.hash
+                    && type == other.type
+                    && ID == other.ID
+                    && seedColor == other.seedColor
+                    && mutatingColor == other.mutatingColor
+                    && size == other.size
+                    && creationSize == other.creationSize
+                    && range == other.range
+                    && mutationChance == other.mutationChance
+                    && colorModel == other.colorModel
+                    && spawningWeight == other.spawningWeight
+                    && randomColorModelMagnitude == other.randomColorModelMagnitude
+                    && energyCapacity == other.energyCapacity
+                    && energyLostPerTile == other.energyLostPerTile
+                    && eatAmount == other.eatAmount
+                    && lifespan == other.lifespan
+                    && creationAge == other.creationAge
+                    && creationCost == other.creationCost
+                    && creationDelay == other.creationDelay
+                    && Objects.equals(name, other.name);
+        }
+    }
+}
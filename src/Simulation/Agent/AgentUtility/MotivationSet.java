@@ -0,0 +1,66 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentInterfaces.Motivation;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** An immutable, ordered set of motivations shared by every agent of a species.
+ * <p>
+ * Motivations never change during an agents life, so rather than each child copying its parents motivations, children,
+ * copies and agents placed from the AgentEditor all point at their species set, and run the same Motivation objects.
+ * The set is copy-on-write: changing a species in the AgentEditor builds a new set from the edited list, agents that
+ * already exist keep the set they were given.
+ * <p>
+ * Each set is compiled into a DecisionKernel when it's built, so the kernel is shared along with the motivations.
+ * <p>
+ * Attempts to change the set throw an UnsupportedOperationException.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public final class MotivationSet extends AbstractList<Motivation> implements RandomAccess {
+
+    // A set with no motivations
+    public static final MotivationSet EMPTY = new MotivationSet(new Motivation[0]);
+
+    // The motivations, in the order they're run
+    private final Motivation[] motivations;
+    // The motivations compiled into one scoring method
+    private final DecisionKernel kernel;
+
+    private MotivationSet(Motivation[] motivations) {
+        this.motivations = motivations;
+        this.kernel = DecisionKernel.compile(List.of(motivations));
+    }
+
+    /**
+     * Returns a set holding the input motivations in order. A set is returned as it is, any other list is copied, so the
+     * set isn't affected by later changes to the list.
+     * @param motivations the motivations
+     */
+    public static MotivationSet of(List<Motivation> motivations) {
+        if (motivations instanceof MotivationSet motivationSet) {
+            return motivationSet;
+        }
+        if (motivations == null || motivations.isEmpty()) {
+            return EMPTY;
+        }
+        return new MotivationSet(motivations.toArray(new Motivation[0]));
+    }
+
+    public DecisionKernel getKernel() {
+        return kernel;
+    }
+
+    @Override
+    public Motivation get(int index) {
+        return motivations[index];
+    }
+
+    @Override
+    public int size() {
+        return motivations.length;
+    }
+}
@@ -1,5 +1,10 @@
 package Simulation.Diagnostics;
 
+import Simulation.SimulationUtility.StateCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayDeque;
 
 public class Diagnostics {
@@ -33,6 +38,8 @@ public class Diagnostics {
     private Integer minEnvironmentEnergy;
     // The amount of energy the current environment holds
     private Integer currentEnvironmentEnergy;
+    // The total of every modification made to the environment energy, before it's limited to the min and max
+    private int environmentEnergyChange;
     // A register of extinct agents
     private Integer[] extinctFlags;
     // A queue of log messages that will be printed and cleared at the end of every step.
@@ -84,6 +91,7 @@ public class Diagnostics {
      * Modifies the currentEnvironmentEnergy field by the input parameter. Checks if the result is smaller than 0 or
      */
     public void modifyCurrentEnvironmentEnergy(int modifyValue) {
+        this.environmentEnergyChange += modifyValue;
         this.currentEnvironmentEnergy = Math.min(Math.max(currentEnvironmentEnergy + modifyValue, minEnvironmentEnergy), maxEnvironmentEnergy);
     }
 
@@ -141,6 +149,28 @@ public class Diagnostics {
         }
     }
 
+    /**
+     * Adds the agent statistics, births, environment energy changes and log messages recorded by another Diagnostics
+     * instance to this one.
+     * <p>
+     * Used when agents are run on several threads, each thread records into its own instance and they're merged once
+     * every thread has finished.
+     * @param other the instance to merge into this one
+     */
+    public void merge(Diagnostics other) {
+        for (int i = 0; i < activeAgentsNumber; i++) {
+            agentPopulations[i] += other.agentPopulations[i];
+            agentsBornLastStep[i] += other.agentsBornLastStep[i];
+            populationEnergy[i] += other.populationEnergy[i];
+            populationLifespan[i] += other.populationLifespan[i];
+            populationSize[i] += other.populationSize[i];
+            populationCreationSize[i] += other.populationCreationSize[i];
+            populationRange[i] += other.populationRange[i];
+        }
+        modifyCurrentEnvironmentEnergy(other.environmentEnergyChange);
+        logQueue.addAll(other.logQueue);
+    }
+
     /**
      * Sets every extinctFlag to the input integer.
      * <p>
@@ -245,6 +275,86 @@ public class Diagnostics {
         return averages;
     }
 
+    /**
+     * Writes the step, the agent statistics, the environment energy and the extinct flags. Agent names and queued log
+     * messages aren't part of the state.
+     * @param out the stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(step);
+        for (Integer[] statistics : new Integer[][]{agentPopulations, agentsBornLastStep, populationEnergy, populationLifespan,
+                populationSize, populationCreationSize, populationRange, lastStepsAgentPopulations, extinctFlags}) {
+            int[] values = new int[activeAgentsNumber];
+            for (int i = 0; i < activeAgentsNumber; i++) {
+                values[i] = statistics[i];
+            }
+            StateCodec.writeInts(out, values, activeAgentsNumber);
+        }
+        out.writeInt(maxEnvironmentEnergy);
+        out.writeInt(minEnvironmentEnergy);
+        out.writeInt(currentEnvironmentEnergy);
+        out.writeInt(environmentEnergyChange);
+    }
+
+    /**
+     * Reads state written by writeState().
+     * @param in the stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        step = in.readLong();
+        agentPopulations = readStatistics(in);
+        agentsBornLastStep = readStatistics(in);
+        populationEnergy = readStatistics(in);
+        populationLifespan = readStatistics(in);
+        populationSize = readStatistics(in);
+        populationCreationSize = readStatistics(in);
+        populationRange = readStatistics(in);
+        lastStepsAgentPopulations = readStatistics(in);
+        extinctFlags = readStatistics(in);
+        maxEnvironmentEnergy = in.readInt();
+        minEnvironmentEnergy = in.readInt();
+        currentEnvironmentEnergy = in.readInt();
+        environmentEnergyChange = in.readInt();
+    }
+
+    /**
+     * Replaces the step, agent statistics and environment statistics with those of the input diagnostics, such as ones
+     * state was read into. The agent names and log messages are kept.
+     * @param source the diagnostics to copy
+     */
+    public void restoreState(Diagnostics source) {
+        step = source.step;
+        agentPopulations = source.agentPopulations.clone();
+        agentsBornLastStep = source.agentsBornLastStep.clone();
+        populationEnergy = source.populationEnergy.clone();
+        populationLifespan = source.populationLifespan.clone();
+        populationSize = source.populationSize.clone();
+        populationCreationSize = source.populationCreationSize.clone();
+        populationRange = source.populationRange.clone();
+        lastStepsAgentPopulations = source.lastStepsAgentPopulations.clone();
+        extinctFlags = source.extinctFlags.clone();
+        maxEnvironmentEnergy = source.maxEnvironmentEnergy;
+        minEnvironmentEnergy = source.minEnvironmentEnergy;
+        currentEnvironmentEnergy = source.currentEnvironmentEnergy;
+        environmentEnergyChange = source.environmentEnergyChange;
+    }
+
+    /**
+     * Reads one agent statistic array written by writeState().
+     * @param in the stream to read from
+     */
+    private Integer[] readStatistics(DataInput in) throws IOException {
+        int[] values = StateCodec.readInts(in);
+        if (values.length != activeAgentsNumber) {
+            throw new IOException("Corrupt state, expected statistics for " + activeAgentsNumber + " agents");
+        }
+        Integer[] statistics = new Integer[activeAgentsNumber];
+        for (int i = 0; i < activeAgentsNumber; i++) {
+            statistics[i] = values[i];
+        }
+        return statistics;
+    }
+
     public void setMaxEnvironmentEnergy(int maxEnvironmentEnergy) {
         this.maxEnvironmentEnergy = maxEnvironmentEnergy;
     }
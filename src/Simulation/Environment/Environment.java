@@ -2,25 +2,79 @@ package Simulation.Environment;
 
 import Simulation.Agent.AgentInterfaces.Agent;
 import Simulation.Agent.AgentStructs.AgentVision;
-import Simulation.SimulationUtility.TerrainSettings;
+import Simulation.SimulationUtility.RandomSource;
+import Simulation.SimulationUtility.StateCodec;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.random.RandomGenerator;
 
-/** Represents the environment. It contains an array of EnvironmentTile objects and allows them
- * to be interacted with as if they were in a 2D array.
+/** Represents the environment. Tiles are stored as flat primitive layers, an energy level array, a terrain bitset and
+ * an occupant handle array, which can be interacted with as if they were a 2D array. A tiles index is y * size + x.
+ * <p>
+ * Occupant handles index into a table of agents, a handle of 0 means the tile is empty. Handles belong to a tile while
+ * it's occupied and are reused once it's emptied. Handing out and freeing handles is synchronized, so tiles in different
+ * parts of the grid can be filled and emptied from different threads once reserveOccupantHandles() has been called.
+ * <p>
+ * The grid is also split into CHUNK_SIZE square chunks, each counting its unsaturated tiles, which are non-terrain tiles
+ * below the max energy level. Energy regeneration skips chunks with none, so it only visits the grazed parts of the grid.
+ * <p>
+ * Tiles whose color may have changed, because their occupant, energy band or terrain flag changed, are flagged as dirty
+ * along with their row. An EnvironmentRenderer uses the flags to redraw only the tiles which changed, and an
+ * EnvironmentRecorder to record only them. Each keeps its own bit of the flags, so taking one's flags leaves the other's.
  * @author Sam Burchmore
  * @version 1.0a
  * @since 1.0a
  */
 public class Environment implements Serializable {
 
-    private EnvironmentTile[] grid;
+    // How many occupant handles the occupant table starts with
+    private static final int INITIAL_OCCUPANT_CAPACITY = 1024;
+    // The length of a chunks sides
+    private static final int CHUNK_SIZE = 32;
+    // True if the JVM was started with the incubating Vector API, so scoreGrazingRowVector() can be used
+    public static final boolean VECTOR_GRAZING_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // The energy level of each tile
+    private int[] energyLevels;
+    // The terrain flag of each tile
+    private BitSet terrain;
+    // The occupant handle of each tile, 0 if empty, otherwise the index + 1 of its occupant in occupantTable
+    private int[] occupants;
+    // The species ID of each tiles occupant, only meaningful while the tile is occupied. Kept so the grid can be read by
+    // species without touching the agents
+    private int[] occupantSpecies;
+    // The agents referenced by occupant handles
+    private transient Agent[] occupantTable;
+    // Handles which have been freed and can be reused
+    private int[] freeHandles;
+    private int freeHandleCount;
+    // The number of handles that have ever been handed out
+    private int handlesUsed;
+    // The number of unsaturated tiles in each chunk. Atomic as stripes run in parallel can share a chunk
+    private AtomicIntegerArray unsaturatedTiles;
+    // The number of chunks along each side of the grid
+    private int chunksPerSide;
+    // The bit of the dirty flags kept for each user of them
+    static final int RENDERER_FLAG = 1;
+    static final int RECORDER_FLAG = 2;
+    // Every dirty flag bit, set when a tile changes
+    private static final byte ALL_FLAGS = RENDERER_FLAG | RECORDER_FLAG;
+    // Flags tiles whose color may have changed since they were last rendered or recorded
+    private byte[] dirtyTiles;
+    // Flags rows containing at least one dirty tile
+    private byte[] dirtyRows;
+    // Flags that every tile needs rendering or recording, such as after the colors or the whole grid changed
+    private byte allDirty;
 
     // The length of the grids sides
     private int size;
@@ -47,9 +101,7 @@ public class Environment implements Serializable {
     /**
      * Constructs an Environment instance with the input parameters.
      * <p>
-     * Builds an array of EnvironmentTiles with a length equal to the square of the sides. As it builds
-     * the array it provides each EnvironmentTile with a location. This allows us to interact with it as
-     * a 2d array.
+     * Builds the tile layers with a length equal to the square of the sides.
      * @param size : An int value corresponding to the length of a squares side.
      * @param startingEnergyLevel : What food level each tile will start of with.
      * @param minEnergyLevel : The min food level each tile will have.
@@ -58,42 +110,41 @@ public class Environment implements Serializable {
     public Environment(int size, int startingEnergyLevel, int maxEnergyLevel, int minEnergyLevel, double energyRegenChance, int energyRegenAmount) {
         // We need to assert the max food level is greater than or equal to the min food level.
         assert maxEnergyLevel >= minEnergyLevel : "Error: Maximum food level must be greater than or equal to the minimum food level";
-            // First we declare the array where the tiles are stored. The grid is a square so the number of cells needed equals the size^2.
-            this.grid = new EnvironmentTile[size*size];
-            // Populate the array with WorldTile objects. We also keep track of each array cells corresponding coordinate in order to initialise each WorldTile with it.
-            int x = 0; int y = 0;
-            for (int i = 0; i<size*size; i++){
-                this.grid[i] = new EnvironmentTile(startingEnergyLevel, x, y);
-                x++;
-                if (x == size) {
-                    x = 0;
-                    y++;
-                }
-            }
             this.size = size;
             this.maxEnergyLevel = maxEnergyLevel;
             this.minEnergyLevel = minEnergyLevel;
             this.energyRegenAmount = energyRegenAmount;
             this.energyRegenChance = energyRegenChance;
+            newEnvironmentGrid(startingEnergyLevel);
     }
 
     /**
-     * Returns the tile at the input location.
+     * Returns a view of the tile at the input location.
      * <p>
+     * The view reads and writes this environments tile layers, prefer the index based methods in hot loops.
      * @param location the desired location
      */
     public EnvironmentTile getTile(Location location){
-        return this.grid[location.getY() *  this.size + location.getX()];
+        return new EnvironmentTile(this, location.getY() *  this.size + location.getX());
     }
 
     /**
-     * Returns the tile at the input x and y coordinates.
+     * Returns a view of the tile at the input x and y coordinates.
      * <p>
      * @param x the x coordinate
      * @param y the y coordinate
      */
     public EnvironmentTile getTile(int x, int y){
-        return this.grid[y *  this.size + x];
+        return new EnvironmentTile(this, y *  this.size + x);
+    }
+
+    /**
+     * Returns the index of the tile at the input coordinates.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public int getIndex(int x, int y) {
+        return y * this.size + x;
     }
 
     /**
@@ -104,7 +155,7 @@ public class Environment implements Serializable {
      * @param agent the agent to set the occupant to
      */
     public void setOccupant(Location location, Agent agent) {
-        this.grid[location.getY() * this.size + location.getX()].setOccupant(agent);
+        setOccupant(location.getY() * this.size + location.getX(), agent);
     }
 
     /**
@@ -113,7 +164,268 @@ public class Environment implements Serializable {
      * @param agent the agent to set the occupant to.
      */
     public void setOccupant(Agent agent) {
-        this.grid[agent.getLocation().getY() * this.size + agent.getLocation().getX()].setOccupant(agent);
+        setOccupant(agent.getLocation().getY() * this.size + agent.getLocation().getX(), agent);
+    }
+
+    /**
+     * Sets the occupant of the tile at the input index.
+     * <p>
+     * If the tile is emptied its handle is freed, if it's filled it's given a handle.
+     * @param index the index of the tile
+     * @param agent the agent to set the occupant to, or null to empty the tile
+     */
+    public void setOccupant(int index, Agent agent) {
+        int handle = occupants[index];
+        markDirty(index);
+        if (agent == null) {
+            if (handle != 0) {
+                occupantTable[handle - 1] = null;
+                freeHandle(handle);
+                occupants[index] = 0;
+            }
+            return;
+        }
+        if (handle == 0) {
+            handle = newHandle();
+            occupants[index] = handle;
+        }
+        occupantTable[handle - 1] = agent;
+        occupantSpecies[index] = agent.getAttributes().getID();
+    }
+
+    /**
+     * Returns an unused occupant handle, growing the occupant table if needed.
+     */
+    private synchronized int newHandle() {
+        if (freeHandleCount > 0) {
+            return freeHandles[--freeHandleCount];
+        }
+        if (handlesUsed == occupantTable.length) {
+            occupantTable = Arrays.copyOf(occupantTable, occupantTable.length * 2);
+            freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+        }
+        return ++handlesUsed;
+    }
+
+    /**
+     * Returns the input handle to the free handles, so it can be reused.
+     */
+    private synchronized void freeHandle(int handle) {
+        freeHandles[freeHandleCount++] = handle;
+    }
+
+    /**
+     * Grows the occupant table so it holds a handle for every tile.
+     * <p>
+     * There can never be more occupied tiles than tiles, so after this the table never needs to grow. Growing replaces
+     * the table, so this must be called before tiles are filled from more than one thread.
+     */
+    public synchronized void reserveOccupantHandles() {
+        if (occupantTable.length < size * size) {
+            occupantTable = Arrays.copyOf(occupantTable, size * size);
+            freeHandles = Arrays.copyOf(freeHandles, size * size);
+        }
+    }
+
+    /**
+     * Returns the occupant of the tile at the input index, or null if it's empty.
+     * @param index the index of the tile
+     */
+    public Agent getOccupant(int index) {
+        int handle = occupants[index];
+        if (handle == 0) {
+            return null;
+        }
+        return occupantTable[handle - 1];
+    }
+
+    public Agent getOccupant(int x, int y) {
+        return getOccupant(y * this.size + x);
+    }
+
+    public Agent getOccupant(Location location) {
+        return getOccupant(location.getY() * this.size + location.getX());
+    }
+
+    public boolean isOccupied(int index) {
+        return occupants[index] != 0;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return occupants[y * this.size + x] != 0;
+    }
+
+    public int getOccupantHandle(int index) {
+        return occupants[index];
+    }
+
+    /**
+     * Returns the species ID of the occupant of the tile at the input index, which must be occupied.
+     * @param index the index of the tile
+     */
+    public int getOccupantSpecies(int index) {
+        return occupantSpecies[index];
+    }
+
+    public int getEnergyLevel(int index) {
+        return energyLevels[index];
+    }
+
+    public int getEnergyLevel(int x, int y) {
+        return energyLevels[y * this.size + x];
+    }
+
+    public void setEnergyLevel(int index, int energyLevel) {
+        setTileEnergy(index, energyLevel);
+    }
+
+    public boolean isTerrain(int index) {
+        return terrain.get(index);
+    }
+
+    public boolean isTerrain(int x, int y) {
+        return terrain.get(y * this.size + x);
+    }
+
+    public void setTerrain(int index, boolean isTerrain) {
+        if (terrain.get(index) != isTerrain && energyLevels[index] < maxEnergyLevel) {
+            unsaturatedTiles.addAndGet(getChunk(index), isTerrain ? -1 : 1);
+        }
+        terrain.set(index, isTerrain);
+        markDirty(index);
+    }
+
+    /**
+     * Sets the terrain flag of every tile.
+     * @param isTerrain the value to set every flag to
+     */
+    public void setAllTerrain(boolean isTerrain) {
+        terrain.set(0, size * size, isTerrain);
+        countUnsaturatedTiles();
+        allDirty = ALL_FLAGS;
+    }
+
+    /**
+     * Sets the terrain flag of every tile from the input terrain, tiles past its last set bit are cleared.
+     * @param terrain the terrain flag of each tile
+     */
+    public void setAllTerrain(BitSet terrain) {
+        this.terrain = (BitSet) terrain.clone();
+        if (this.terrain.length() > size * size) {
+            this.terrain.clear(size * size, this.terrain.length());
+        }
+        countUnsaturatedTiles();
+        allDirty = ALL_FLAGS;
+    }
+
+    /**
+     * Sets the energy level of every tile.
+     * @param energyLevel the energy level to set every tile to
+     */
+    public void setAllEnergyLevels(int energyLevel) {
+        Arrays.fill(energyLevels, energyLevel);
+        countUnsaturatedTiles();
+        allDirty = ALL_FLAGS;
+    }
+
+    /**
+     * Sets the energy level of the tile at the input index, keeping its chunks unsaturated tile count up to date.
+     * @param index the index of the tile
+     * @param energyLevel the tiles new energy level
+     */
+    private void setTileEnergy(int index, int energyLevel) {
+        boolean wasUnsaturated = energyLevels[index] < maxEnergyLevel;
+        if (getEnergyBand(energyLevels[index]) != getEnergyBand(energyLevel)) {
+            markDirty(index);
+        }
+        energyLevels[index] = energyLevel;
+        if (wasUnsaturated != energyLevel < maxEnergyLevel && !terrain.get(index)) {
+            unsaturatedTiles.addAndGet(getChunk(index), wasUnsaturated ? -1 : 1);
+        }
+    }
+
+    /**
+     * Flags the tile at the input index, and its row, as needing rendering.
+     * @param index the index of the tile
+     */
+    private void markDirty(int index) {
+        dirtyTiles[index] = ALL_FLAGS;
+        dirtyRows[index / size] = ALL_FLAGS;
+    }
+
+    /**
+     * Returns true if every tile needs rendering or recording, and clears every dirty flag of the input bit. Used by
+     * EnvironmentRenderer and EnvironmentRecorder, which then go over the whole grid.
+     * @param flag RENDERER_FLAG or RECORDER_FLAG
+     */
+    boolean takeAllDirty(int flag) {
+        if ((allDirty & flag) == 0) {
+            return false;
+        }
+        for (int i = 0; i < dirtyTiles.length; i++) {
+            dirtyTiles[i] &= (byte) ~flag;
+        }
+        for (int y = 0; y < dirtyRows.length; y++) {
+            dirtyRows[y] &= (byte) ~flag;
+        }
+        allDirty &= (byte) ~flag;
+        return true;
+    }
+
+    /**
+     * Returns true if the input row contains a dirty tile, and clears the rows flag of the input bit.
+     * @param y the row to check
+     * @param flag RENDERER_FLAG or RECORDER_FLAG
+     */
+    boolean takeDirtyRow(int y, int flag) {
+        boolean wasDirty = (dirtyRows[y] & flag) != 0;
+        dirtyRows[y] &= (byte) ~flag;
+        return wasDirty;
+    }
+
+    /**
+     * Returns true if the tile at the input index is dirty, and clears its flag of the input bit.
+     * @param index the index of the tile
+     * @param flag RENDERER_FLAG or RECORDER_FLAG
+     */
+    boolean takeDirtyTile(int index, int flag) {
+        boolean wasDirty = (dirtyTiles[index] & flag) != 0;
+        dirtyTiles[index] &= (byte) ~flag;
+        return wasDirty;
+    }
+
+    /**
+     * Returns the index of the chunk the tile at the input index is in.
+     * @param index the index of the tile
+     */
+    private int getChunk(int index) {
+        return (index / size / CHUNK_SIZE) * chunksPerSide + (index % size) / CHUNK_SIZE;
+    }
+
+    /**
+     * Recounts the unsaturated tiles in every chunk, used after changes to the whole grid.
+     */
+    private void countUnsaturatedTiles() {
+        chunksPerSide = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] counts = new int[chunksPerSide * chunksPerSide];
+        for (int i = 0; i < size * size; i++) {
+            if (energyLevels[i] < maxEnergyLevel && !terrain.get(i)) {
+                counts[getChunk(i)]++;
+            }
+        }
+        unsaturatedTiles = new AtomicIntegerArray(counts);
+    }
+
+    /**
+     * Removes every occupant from the environment.
+     */
+    public void clearOccupants() {
+        Arrays.fill(occupants, 0);
+        allDirty = ALL_FLAGS;
+        occupantTable = new Agent[INITIAL_OCCUPANT_CAPACITY];
+        freeHandles = new int[INITIAL_OCCUPANT_CAPACITY];
+        freeHandleCount = 0;
+        handlesUsed = 0;
     }
 
     /**
@@ -122,25 +434,40 @@ public class Environment implements Serializable {
      * Free tiles are shuffled before being returned.
      * @param location the location to check
      * @param ignoreSize the size of the agent, any occupants with a lower size will be ignored.
+     * @param random the generator used to shuffle the free tiles
      */
-    public ArrayList<Location> freeSpace(Location location, int ignoreSize) {
+    public ArrayList<Location> freeSpace(Location location, int ignoreSize, RandomGenerator random) {
+        return freeSpace(location.getX(), location.getY(), ignoreSize, random);
+    }
+
+    /**
+     * Returns all unoccupied tiles adjacent to the input coordinates.
+     * <p>
+     * Free tiles are shuffled before being returned.
+     * @param x the x coordinate to check
+     * @param y the y coordinate to check
+     * @param ignoreSize the size of the agent, any occupants with a lower size will be ignored.
+     * @param random the generator used to shuffle the free tiles
+     */
+    public ArrayList<Location> freeSpace(int x, int y, int ignoreSize, RandomGenerator random) {
         ArrayList<Location> empties = new ArrayList<>();
         for (int i = -1; i < 2; i++) {
             for (int j = -1; j < 2; j++) {
-                int coordinateX = location.getX() + i;
-                int coordinateY = location.getY() + j;
+                int coordinateX = x + i;
+                int coordinateY = y + j;
                 if ((
-                        (coordinateX < this.getSize())
-                        && (coordinateY < this.getSize()))
+                        (coordinateX < this.size)
+                        && (coordinateY < this.size))
                         && ((coordinateX >= 0) && (coordinateY >= 0))
                         && !(i == 0 && j == 0)) {
-                    if (!this.getTile(coordinateX, coordinateY).isOccupied() || this.getTile(coordinateX, coordinateY).getOccupant().getAttributes().getSize() < ignoreSize) {
+                    int index = coordinateY * this.size + coordinateX;
+                    if (occupants[index] == 0 || getOccupant(index).getAttributes().getSize() < ignoreSize) {
                         empties.add(new Location(coordinateX, coordinateY));
                     }
                 }
             }
         }
-        Collections.shuffle(empties);
+        RandomSource.shuffle(empties, random);
         return empties;
     }
 
@@ -152,39 +479,187 @@ public class Environment implements Serializable {
      * @param energyLevelModifier how much the energy level should change, can be negative.
      */
     public int modifyTileEnergyLevel(Location location, int energyLevelModifier) {
-        int oldEnergyLevel = this.getTile(location).getEnergyLevel() + energyLevelModifier;
-        this.getTile(location).setEnergyLevel(oldEnergyLevel);
-        if (this.getTile(location).getEnergyLevel() < this.minEnergyLevel) {
-            this.getTile(location).setEnergyLevel(this.minEnergyLevel);
-            return energyLevelModifier - (oldEnergyLevel - this.minEnergyLevel);
+        return modifyTileEnergyLevel(location.getY() * this.size + location.getX(), energyLevelModifier);
+    }
+
+    /**
+     * Adds to the energy level of the tile at the input index and returns how much was added.
+     * @param index the index of the tile
+     * @param energyLevelModifier how much the energy level should change, can be negative.
+     */
+    public int modifyTileEnergyLevel(int index, int energyLevelModifier) {
+        int newEnergyLevel = energyLevels[index] + energyLevelModifier;
+        if (newEnergyLevel < this.minEnergyLevel) {
+            setTileEnergy(index, this.minEnergyLevel);
+            return energyLevelModifier - (newEnergyLevel - this.minEnergyLevel);
         }
-        else if (this.getTile(location).getEnergyLevel() > this.maxEnergyLevel) {
-            this.getTile(location).setEnergyLevel(this.maxEnergyLevel);
-            return energyLevelModifier - (oldEnergyLevel - this.maxEnergyLevel);
+        else if (newEnergyLevel > this.maxEnergyLevel) {
+            setTileEnergy(index, this.maxEnergyLevel);
+            return energyLevelModifier - (newEnergyLevel - this.maxEnergyLevel);
         }
+        setTileEnergy(index, newEnergyLevel);
         return energyLevelModifier;
     }
 
+    /**
+     * Regenerates the energy of randomly chosen tiles and returns how much energy was added in total.
+     * <p>
+     * Each non-terrain tile regenerates with an energyRegenChance percent chance. Rather than rolling for every tile, the
+     * number of tiles skipped before the next one regenerates is drawn from a geometric distribution, so the cost grows
+     * with the number of tiles regenerated rather than the size of the grid. When regeneration adds energy, chunks without
+     * unsaturated tiles are skipped entirely, as regenerating them would change nothing.
+     * @param random the generator the regenerating tiles are chosen with
+     */
+    public int regenerateEnergy(RandomGenerator random) {
+        double chance = energyRegenChance / 100.0;
+        int energyAdded = 0;
+        if (chance <= 0 || energyRegenAmount == 0) {
+            return 0;
+        }
+        double logMissChance = chance < 1 ? Math.log1p(-chance) : Double.NEGATIVE_INFINITY;
+        // No skip needs to reach past the grid, so none is longer than it
+        long gridTiles = (long) size * size;
+        // How far past the start of the current chunk the next regenerating tile is
+        long next = nextRegeneratingTile(random, logMissChance, gridTiles);
+        for (int chunk = 0; chunk < chunksPerSide * chunksPerSide; chunk++) {
+            if (energyRegenAmount > 0 && unsaturatedTiles.get(chunk) == 0) {
+                continue;
+            }
+            int startX = (chunk % chunksPerSide) * CHUNK_SIZE;
+            int startY = (chunk / chunksPerSide) * CHUNK_SIZE;
+            int width = Math.min(CHUNK_SIZE, size - startX);
+            int tiles = width * Math.min(CHUNK_SIZE, size - startY);
+            while (next < tiles) {
+                int index = (startY + (int) next / width) * size + startX + (int) next % width;
+                if (!terrain.get(index)) {
+                    energyAdded += modifyTileEnergyLevel(index, energyRegenAmount);
+                }
+                next += 1 + nextRegeneratingTile(random, logMissChance, gridTiles);
+            }
+            next -= tiles;
+        }
+        return energyAdded;
+    }
+
+    /**
+     * Returns how many tiles are skipped before the next one regenerates, drawn from a geometric distribution.
+     * <p>
+     * The skip is capped at maxSkip. With a tiny regeneration chance the draw can saturate at Long.MAX_VALUE, which
+     * would overflow when added to the current position, and any skip past the end of the grid has the same effect.
+     * @param random the generator to draw from
+     * @param logMissChance the log of the chance a tile doesn't regenerate
+     * @param maxSkip the longest skip to return
+     */
+    private static long nextRegeneratingTile(RandomGenerator random, double logMissChance, long maxSkip) {
+        // 1 - nextDouble() is in (0, 1], so the log is never infinite
+        return Math.min((long) (Math.log(1.0 - random.nextDouble()) / logMissChance), maxSkip);
+    }
+
     /**
      * Returns an AgentVision object based of the input tile.
      * <p>
      * @param location the location to get the AgentVision from
      */
     public AgentVision getTileView(Location location) {
-        if (this.getTile(location).isOccupied()) {
+        int index = location.getY() * this.size + location.getX();
+        Agent occupant = getOccupant(index);
+        if (occupant != null) {
             return new AgentVision(
-                    getTile(location).getEnergyLevel(),
-                    getTile(location).isOccupied(),
+                    energyLevels[index],
+                    true,
                     location,
-                    getTile(location).getOccupant().getAttributes(),
-                    getTile(location).getOccupant().getScores());
+                    occupant.getAttributes(),
+                    occupant.getScores());
         }
         return new AgentVision(
-                getTile(location).getEnergyLevel(),
+                energyLevels[index],
                 false,
                 location);
     }
 
+    /**
+     * Sets the input AgentVision to represent the tile at the input coordinates, rather than creating a new one.
+     * <p>
+     * @param x the tiles x coordinate
+     * @param y the tiles y coordinate
+     * @param agentVision the AgentVision to fill in
+     */
+    public void getTileView(int x, int y, AgentVision agentVision) {
+        int index = y * this.size + x;
+        Agent occupant = getOccupant(index);
+        if (occupant != null) {
+            agentVision.setTile(x, y, energyLevels[index], true, occupant.getAttributes(), occupant.getScores());
+        }
+        else {
+            agentVision.setTile(x, y, energyLevels[index], false, null, null);
+        }
+    }
+
+    /**
+     * Writes the score a lone GrazerMotivation gives each tile of a row into the input array, tiles x to x + length - 1
+     * of row y going to scores[offset] onwards.
+     * <p>
+     * A tile with energy scores bias + min(energyLevel, eatAmount) * weight, a tile without scores 1 for a move. A tile
+     * whose occupant is at least as large as the grazer scores -1, and terrain scores 0, so neither is ever chosen.
+     * <p>
+     * The first pass scores the whole row from the energy layer alone, reading one int per tile with no object reads. The
+     * second and third passes then overwrite the scores of the occupied and terrain tiles, which are usually few. Every
+     * pass is a plain scalar loop, the saving over getTileView() comes from reading the layers in order and not filling in
+     * an AgentVision per tile. scoreGrazingRowVector() gives the same scores with the Vector API.
+     * @param x the x coordinate of the first tile
+     * @param y the rows y coordinate
+     * @param length how many tiles to score
+     * @param agentSize the grazers size
+     * @param bias the grazer motivations bias
+     * @param weight the grazer motivations weight
+     * @param eatAmount the most energy the grazer can take
+     * @param scores where the scores are written
+     * @param offset the index of the first tiles score
+     */
+    public void scoreGrazingRow(int x, int y, int length, int agentSize, int bias, int weight, int eatAmount, int[] scores, int offset) {
+        int from = y * this.size + x;
+        int to = from + length;
+        for (int i = 0; i < length; i++) {
+            int energyLevel = energyLevels[from + i];
+            int grazeScore = bias + Math.min(energyLevel, eatAmount) * weight;
+            scores[offset + i] = energyLevel > 0 ? grazeScore : 1;
+        }
+        for (int i = 0; i < length; i++) {
+            int handle = occupants[from + i];
+            if (handle != 0 && occupantTable[handle - 1].getAttributes().getSize() >= agentSize) {
+                scores[offset + i] = -1;
+            }
+        }
+        for (int index = terrain.nextSetBit(from); index >= 0 && index < to; index = terrain.nextSetBit(index + 1)) {
+            scores[offset + index - from] = 0;
+        }
+    }
+
+    /**
+     * Writes the same scores as scoreGrazingRow(), computed several tiles at a time by VectorGrazingScorer. Scores
+     * after the row may be overwritten, up to a vector's width, so rows sharing an array should be scored in order.
+     * Rows too short to gain from vectors are passed on to scoreGrazingRow().
+     * <p>
+     * Only usable when VECTOR_GRAZING_AVAILABLE is true, the scorer can't be loaded without the jdk.incubator.vector module.
+     * @param x the x coordinate of the first tile
+     * @param y the rows y coordinate
+     * @param length how many tiles to score
+     * @param agentSize the grazers size
+     * @param bias the grazer motivations bias
+     * @param weight the grazer motivations weight
+     * @param eatAmount the most energy the grazer can take
+     * @param scores where the scores are written
+     * @param offset the index of the first tiles score
+     */
+    public void scoreGrazingRowVector(int x, int y, int length, int agentSize, int bias, int weight, int eatAmount, int[] scores, int offset) {
+        if (length < VectorGrazingScorer.MIN_LENGTH) {
+            scoreGrazingRow(x, y, length, agentSize, bias, weight, eatAmount, scores, offset);
+            return;
+        }
+        VectorGrazingScorer.scoreRow(energyLevels, occupants, occupantTable, terrain, y * this.size + x, length,
+                agentSize, bias, weight, eatAmount, scores, offset);
+    }
+
     /**
      * Returns the tiles current color.
      * <p>
@@ -194,28 +669,51 @@ public class Environment implements Serializable {
      * @param location the desired location to add energy to
      */
     public Color getTileColor(Location location) {
-        if (this.getTile(location).isTerrain()) {
+        return getTileColor(location.getY() * this.size + location.getX());
+    }
+
+    /**
+     * Returns the current color of the tile at the input index.
+     * @param index the index of the tile
+     */
+    public Color getTileColor(int index) {
+        if (terrain.get(index)) {
             return terrainColor;
         }
-        if (this.getTile(location).isOccupied()) {
-            return this.getTile(location).getOccupant().getAttributes().getColor();
+        if (occupants[index] != 0) {
+            return getOccupant(index).getAttributes().getColor();
         }
-        if (this.getTile(location).getEnergyLevel() >= this.maxEnergyLevel) {
-            return this.maxColor;
+        return switch (getEnergyBand(energyLevels[index])) {
+            case 5 -> this.maxColor;
+            case 4 -> this.highColor;
+            case 3 -> this.mediumHighColor;
+            case 2 -> this.mediumLowColor;
+            case 1 -> this.lowColor;
+            default -> this.minColor;
+        };
+    }
+
+    /**
+     * Returns which band of colors the input energy level falls into, from 0 for the min color to 5 for the max color.
+     * @param energyLevel the energy level to check
+     */
+    int getEnergyBand(int energyLevel) {
+        if (energyLevel >= this.maxEnergyLevel) {
+            return 5;
         }
-        if (this.getTile(location).getEnergyLevel() >= this.maxEnergyLevel - this.maxEnergyLevel / 4 ) {
-            return this.highColor;
+        if (energyLevel >= this.maxEnergyLevel - this.maxEnergyLevel / 4 ) {
+            return 4;
         }
-        if (this.getTile(location).getEnergyLevel() >= this.maxEnergyLevel / 2 ) {
-            return this.mediumHighColor;
+        if (energyLevel >= this.maxEnergyLevel / 2 ) {
+            return 3;
         }
-        if (this.getTile(location).getEnergyLevel() >= this.maxEnergyLevel - ( (maxEnergyLevel / 4) * 3)) {
-            return this.mediumLowColor;
+        if (energyLevel >= this.maxEnergyLevel - ( (maxEnergyLevel / 4) * 3)) {
+            return 2;
         }
-        if (this.getTile(location).getEnergyLevel() > this.minEnergyLevel) {
-            return this.lowColor;
+        if (energyLevel > this.minEnergyLevel) {
+            return 1;
         }
-        return this.minColor;
+        return 0;
     }
 
     /**
@@ -226,35 +724,20 @@ public class Environment implements Serializable {
      * @return environmentImage the image produced
      */
     public BufferedImage normalImage() {
-        BufferedImage environmentImage = new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < this.size; x++) {
-            for (int y = 0; y < this.size; y++) {
-                environmentImage.setRGB(x, y, this.getTileColor(new Location(x, y)).getRGB());
-            }
-        }
-        return environmentImage;
+        return scaledImage(1);
     }
 
     /**
      * Returns the grid as a BufferedImage, scaled up.
      * <p>
      * Produces a square BufferedImage in the same was as normalImage() except every tile is now scaled up.
-     * I.e. if scale is 2 then each tile will now be represented by a 2x2 square of pixels.
+     * I.e. if scale is 2 then each tile will now be represented by a 2x2 square of pixels. The pixels are written by an
+     * EnvironmentRaster, straight into the images pixel array in parallel bands of rows.
      * @return environmentImage the image produced
      */
     public BufferedImage scaledImage(int scale) {
         BufferedImage environmentImage = new BufferedImage(this.size * scale, this.size * scale, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x <= scale * this.size; x += scale) {
-            for (int y = 0; y <= scale * this.size; y += scale) {
-                for (int i = 0; i < scale; i++) {
-                    for (int j = 0; j < scale; j++) {
-                        if (((x + i < scale * this.getSize()) && (y + j < scale * this.getSize())) && ((x + i >= 0) && (y + j >= 0))) {
-                            environmentImage.setRGB(x + i, y + j, this.getTileColor(new Location(x / scale, y / scale)).getRGB());
-                        }
-                    }
-                }
-            }
-        }
+        new EnvironmentRaster().render(this, ((DataBufferInt) environmentImage.getRaster().getDataBuffer()).getData(), scale);
         return environmentImage;
     }
 
@@ -313,39 +796,140 @@ public class Environment implements Serializable {
      * this method must be called after the environment size has been updated.
      */
     public void newEnvironmentGrid() {
-        this.grid = new EnvironmentTile[size*size];
-        // Populate the array with WorldTile objects. We also keep track of each array cells corresponding coordinate in order to initialise each WorldTile with it.
-        int x = 0; int y = 0;
-        for (int i = 0; i<size*size; i++){
-            this.grid[i] = new EnvironmentTile(getMaxEnergyLevel(), x, y);
-            x++;
-            if (x == size) {
-                x = 0;
-                y++;
+        newEnvironmentGrid(getMaxEnergyLevel());
+    }
+
+    /**
+     * Overwrites the environment grid with a blank one, with every tile set to the input energy level.
+     * @param startingEnergyLevel the energy level every tile starts with
+     */
+    private void newEnvironmentGrid(int startingEnergyLevel) {
+        this.energyLevels = new int[size*size];
+        Arrays.fill(this.energyLevels, startingEnergyLevel);
+        this.terrain = new BitSet(size*size);
+        this.occupants = new int[size*size];
+        this.occupantSpecies = new int[size*size];
+        this.dirtyTiles = new byte[size*size];
+        this.dirtyRows = new byte[size];
+        clearOccupants();
+        countUnsaturatedTiles();
+    }
+
+    /**
+     * Writes the environments settings, energy levels and terrain. Occupants aren't written, as they're restored by the
+     * Simulation along with its agents.
+     * <p>
+     * Energy levels are written a byte per tile when every level fits in one, which they do for the default settings.
+     * @param out the stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(maxEnergyLevel);
+        out.writeInt(minEnergyLevel);
+        out.writeDouble(energyRegenChance);
+        out.writeInt(energyRegenAmount);
+        boolean fitsInBytes = true;
+        for (int energyLevel : energyLevels) {
+            if (energyLevel < 0 || energyLevel > 255) {
+                fitsInBytes = false;
+                break;
+            }
+        }
+        out.writeBoolean(fitsInBytes);
+        if (fitsInBytes) {
+            byte[] levels = new byte[energyLevels.length];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = (byte) energyLevels[i];
             }
+            StateCodec.writeBytes(out, levels);
         }
+        else {
+            StateCodec.writeInts(out, energyLevels, energyLevels.length);
+        }
+        StateCodec.writeLongs(out, terrain.toLongArray());
     }
 
-    public boolean isLocationOnGrid(Location location) {
-        if (location.getX() > 0 && location.getX() < getSize()) {
-            return location.getY() > 0 && location.getY() < getSize();
+    /**
+     * Reads state written by writeState(), replacing the grid and removing every occupant.
+     * <p>
+     * Everything is read and checked before the grid is touched, so a failed read leaves it as it was.
+     * @param in the stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        int size = in.readInt();
+        int maxEnergyLevel = in.readInt();
+        int minEnergyLevel = in.readInt();
+        double energyRegenChance = in.readDouble();
+        int energyRegenAmount = in.readInt();
+        int[] levels;
+        if (in.readBoolean()) {
+            byte[] bytes = StateCodec.readBytes(in);
+            levels = new int[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                levels[i] = bytes[i] & 0xFF;
+            }
         }
-        return false;
+        else {
+            levels = StateCodec.readInts(in);
+        }
+        if (size < 1) {
+            throw new IOException("Corrupt state, grid size " + size);
+        }
+        if (levels.length != size * size) {
+            throw new IOException("Corrupt state, expected " + size * size + " energy levels but found " + levels.length);
+        }
+        BitSet terrain = BitSet.valueOf(StateCodec.readLongs(in));
+        this.maxEnergyLevel = maxEnergyLevel;
+        this.minEnergyLevel = minEnergyLevel;
+        this.energyRegenChance = energyRegenChance;
+        this.energyRegenAmount = energyRegenAmount;
+        replaceGrid(size, levels, terrain);
     }
 
-    public Boolean[] getTerrainMask() {
-        Boolean[] terrainMask = new Boolean[size*size];
-        for (int i = 0; i < size*size; i++) {
-            terrainMask[i] = grid[i].isTerrain();
+    /**
+     * Replaces the settings, energy levels and terrain with those of the input environment, such as one state was read
+     * into, and removes every occupant. The input environment shouldn't be used afterwards, as its grid is taken rather
+     * than copied.
+     * @param source the environment to take the grid from
+     */
+    public void restoreState(Environment source) {
+        maxEnergyLevel = source.maxEnergyLevel;
+        minEnergyLevel = source.minEnergyLevel;
+        energyRegenChance = source.energyRegenChance;
+        energyRegenAmount = source.energyRegenAmount;
+        replaceGrid(source.size, source.energyLevels, source.terrain);
+    }
+
+    /**
+     * Replaces the grid with the input energy levels and terrain, resizing the tile layers if needed, and removes every
+     * occupant.
+     * @param size the length of the new grids sides
+     * @param levels the energy level of each tile
+     * @param terrain the terrain flag of each tile
+     */
+    private void replaceGrid(int size, int[] levels, BitSet terrain) {
+        if (size != this.size || occupants.length != size * size) {
+            this.size = size;
+            this.occupants = new int[size * size];
+            this.occupantSpecies = new int[size * size];
+            this.dirtyTiles = new byte[size * size];
+            this.dirtyRows = new byte[size];
         }
-        return terrainMask;
+        energyLevels = levels;
+        this.terrain = terrain;
+        clearOccupants();
+        countUnsaturatedTiles();
     }
 
-    public EnvironmentTile[] getGrid() {
-        return this.grid;
+    public boolean isLocationOnGrid(Location location) {
+        if (location.getX() > 0 && location.getX() < getSize()) {
+            return location.getY() > 0 && location.getY() < getSize();
+        }
+        return false;
     }
-    public void setGrid(EnvironmentTile[] grid) {
-        this.grid = grid;
+
+    public BitSet getTerrain() {
+        return (BitSet) terrain.clone();
     }
     public int getSize() {
         return this.size;
@@ -358,12 +942,17 @@ public class Environment implements Serializable {
     }
     public void setMaxEnergyLevel(int maxEnergyLevel) {
         this.maxEnergyLevel = maxEnergyLevel;
+        if (energyLevels != null && energyLevels.length == size * size) {
+            countUnsaturatedTiles();
+            allDirty = ALL_FLAGS;
+        }
     }
     public int getMinEnergyLevel() {
         return this.minEnergyLevel;
     }
     public void setMinEnergyLevel(int minEnergyLevel) {
         this.minEnergyLevel = minEnergyLevel;
+        allDirty = ALL_FLAGS;
     }
     public double getEnergyRegenChance() {
         return energyRegenChance;
@@ -378,7 +967,7 @@ public class Environment implements Serializable {
         this.energyRegenAmount = energyRegenAmount;
     }
     public void setTileTerrain(Location location, boolean isTerrain) {
-        getTile(location).setTerrain(isTerrain);
+        setTerrain(location.getY() * this.size + location.getX(), isTerrain);
     }
     public Color[] getColors() {
         return new Color[]{minColor, lowColor, mediumLowColor, mediumHighColor, highColor, maxColor, terrainColor};
@@ -391,6 +980,7 @@ public class Environment implements Serializable {
         highColor = color[4];
         maxColor = color[5];
         terrainColor = color[6];
+        allDirty = ALL_FLAGS;
     }
 
     @Override
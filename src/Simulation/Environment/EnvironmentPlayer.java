@@ -0,0 +1,295 @@
+package Simulation.Environment;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** Plays back a recording made by an EnvironmentRecorder, and can seek to any recorded step.
+ * <p>
+ * Opening a recording reads only the record headers, indexing where each record starts. Seeking finds the last keyframe
+ * at or before the target step, decodes it, then applies each delta up to the target, so a seek never replays more than
+ * one keyframe interval. Stepping forward from the current step only applies the next delta.
+ * <p>
+ * The tiles of the current step are read as tile codes, which getSpecies(), getEnergyBand() and isTerrain() unpack.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class EnvironmentPlayer implements Closeable {
+
+    // The length of a record header, its type, step and payload length
+    private static final int HEADER_LENGTH = 13;
+
+    // The recording
+    private final FileChannel channel;
+    // The step, type and file position of each record, in the order they were recorded
+    private long[] recordSteps = new long[1024];
+    private byte[] recordTypes = new byte[1024];
+    private long[] recordPositions = new long[1024];
+    private int recordCount;
+    // The tile codes of the current step
+    private int[] tileCodes = new int[0];
+    // The size of the environment at the current step
+    private int size;
+    // The index of the current record, -1 before the first seek
+    private int currentRecord = -1;
+    // The header and payload of the record being read
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    private ByteBuffer payload = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Opens a recording and indexes its records. The player starts at the first recorded step.
+     * @param file the recording
+     */
+    public EnvironmentPlayer(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            header.limit(8);
+            readFully(header, 0);
+            if (header.getInt(0) != EnvironmentRecorder.MAGIC) {
+                throw new IOException(file + " is not an environment recording");
+            }
+            if (header.getInt(4) != EnvironmentRecorder.VERSION) {
+                throw new IOException(file + " was recorded with an unsupported version " + header.getInt(4));
+            }
+            indexRecords();
+            if (recordCount == 0) {
+                throw new IOException(file + " has no recorded steps");
+            }
+            seek(recordSteps[0]);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every record header, storing each records step, type and position. A record cut short, such as by the
+     * application closing while recording, ends the index.
+     */
+    private void indexRecords() throws IOException {
+        long position = 8;
+        long fileSize = channel.size();
+        while (position + HEADER_LENGTH <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            int payloadLength = header.getInt(9);
+            if (position + HEADER_LENGTH + payloadLength > fileSize) {
+                break;
+            }
+            if (recordCount == recordSteps.length) {
+                recordSteps = Arrays.copyOf(recordSteps, recordCount * 2);
+                recordTypes = Arrays.copyOf(recordTypes, recordCount * 2);
+                recordPositions = Arrays.copyOf(recordPositions, recordCount * 2);
+            }
+            recordTypes[recordCount] = header.get(0);
+            recordSteps[recordCount] = header.getLong(1);
+            recordPositions[recordCount] = position;
+            recordCount++;
+            position += HEADER_LENGTH + payloadLength;
+        }
+    }
+
+    /**
+     * Moves to the last recorded step at or before the input step, or the first recorded step if the input step is
+     * before it, and returns the step moved to.
+     * @param step the step to seek to
+     */
+    public long seek(long step) throws IOException {
+        int target = Arrays.binarySearch(recordSteps, 0, recordCount, step);
+        if (target < 0) {
+            target = Math.max(-target - 2, 0);
+        }
+        int record = target;
+        if (currentRecord < 0 || currentRecord > target || hasKeyframeBetween(currentRecord, target)) {
+            while (recordTypes[record] != EnvironmentRecorder.KEYFRAME) {
+                record--;
+            }
+        }
+        else {
+            record = currentRecord + 1;
+        }
+        for (; record <= target; record++) {
+            readRecord(record);
+        }
+        currentRecord = target;
+        return recordSteps[target];
+    }
+
+    /**
+     * Moves to the next recorded step, returning false if the current step is the last.
+     */
+    public boolean next() throws IOException {
+        if (currentRecord + 1 >= recordCount) {
+            return false;
+        }
+        readRecord(++currentRecord);
+        return true;
+    }
+
+    /**
+     * Returns true if there's a keyframe after the from record, up to and including the to record.
+     * @param from the index of the first record, not checked
+     * @param to the index of the last record
+     */
+    private boolean hasKeyframeBetween(int from, int to) {
+        for (int i = from + 1; i <= to; i++) {
+            if (recordTypes[i] == EnvironmentRecorder.KEYFRAME) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a record and applies it to the tile codes.
+     * @param record the index of the record
+     */
+    private void readRecord(int record) throws IOException {
+        long position = recordPositions[record];
+        header.clear();
+        readFully(header, position);
+        int payloadLength = header.getInt(9);
+        if (payload.capacity() < payloadLength) {
+            payload = ByteBuffer.allocate(Math.max(payloadLength, payload.capacity() * 2));
+        }
+        payload.clear().limit(payloadLength);
+        readFully(payload, position + HEADER_LENGTH);
+        payload.flip();
+        if (recordTypes[record] == EnvironmentRecorder.KEYFRAME) {
+            readKeyframe();
+        }
+        else {
+            readDelta();
+        }
+    }
+
+    /**
+     * Decodes a keyframe payload, replacing every tile code.
+     */
+    private void readKeyframe() throws IOException {
+        size = readVarInt();
+        if (tileCodes.length != size * size) {
+            tileCodes = new int[size * size];
+        }
+        int i = 0;
+        while (payload.hasRemaining()) {
+            int run = readVarInt();
+            int code = readVarInt();
+            Arrays.fill(tileCodes, i, i + run, code);
+            i += run;
+        }
+    }
+
+    /**
+     * Decodes a delta payload, skipping each run of unchanged tiles and XORing the changed tile after it.
+     */
+    private void readDelta() throws IOException {
+        int i = 0;
+        while (payload.hasRemaining()) {
+            i += readVarInt();
+            tileCodes[i++] ^= readVarInt();
+        }
+    }
+
+    /**
+     * Reads an unsigned variable length int from the payload.
+     */
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!payload.hasRemaining()) {
+                throw new EOFException("Record ended inside a value");
+            }
+            byte b = payload.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed value in record");
+    }
+
+    /**
+     * Fills the input buffer from the recording, starting at the input position.
+     * @param buffer the buffer to fill up to its limit
+     * @param position the position in the file to read from
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Recording ended early");
+            }
+        }
+    }
+
+    /**
+     * Returns the current step.
+     */
+    public long getStep() {
+        return recordSteps[currentRecord];
+    }
+
+    /**
+     * Returns the first recorded step.
+     */
+    public long getFirstStep() {
+        return recordSteps[0];
+    }
+
+    /**
+     * Returns the last recorded step.
+     */
+    public long getLastStep() {
+        return recordSteps[recordCount - 1];
+    }
+
+    /**
+     * Returns the length of the environments sides at the current step.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the tile code of the tile at the input index at the current step.
+     * @param index the index of the tile
+     */
+    public int getTileCode(int index) {
+        return tileCodes[index];
+    }
+
+    /**
+     * Returns true if the input tile code is terrain.
+     * @param tileCode the tile code
+     */
+    public static boolean isTerrain(int tileCode) {
+        return (tileCode & 1) != 0;
+    }
+
+    /**
+     * Returns the energy band of the input tile code, from 0 for the min color to 5 for the max color.
+     * @param tileCode the tile code
+     */
+    public static int getEnergyBand(int tileCode) {
+        return (tileCode >>> EnvironmentRecorder.ENERGY_BAND_SHIFT) & EnvironmentRecorder.ENERGY_BAND_MASK;
+    }
+
+    /**
+     * Returns the species ID of the input tile codes occupant, or -1 if it's empty.
+     * @param tileCode the tile code
+     */
+    public static int getSpecies(int tileCode) {
+        return (tileCode >>> EnvironmentRecorder.SPECIES_SHIFT) - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
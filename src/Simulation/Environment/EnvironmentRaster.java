@@ -0,0 +1,70 @@
+package Simulation.Environment;
+
+import java.util.stream.IntStream;
+
+/** Rasterises a whole Environment into a row-major array of RGB values, one row band per task.
+ * <p>
+ * The image is split into bands of rows which are drawn in parallel on the common fork join pool, each band writing its
+ * own rows of the target array from left to right. Tiles are colored from a TilePalette, which is updated before the
+ * bands start and only read while they run. Nothing here depends on Swing, so frames can be produced headless.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class EnvironmentRaster {
+
+    // How many bands each thread of the pool gets, more bands than threads evens out uneven rows
+    private static final int BANDS_PER_THREAD = 4;
+
+    // The palette tiles are colored from
+    private final TilePalette palette = new TilePalette();
+
+    /**
+     * Rasterises the environment with one pixel per tile.
+     * @param environment the environment to render
+     * @param target an array of at least size * size values, the pixel of tile (x, y) is written to y * size + x
+     */
+    public void render(Environment environment, int[] target) {
+        render(environment, target, 1);
+    }
+
+    /**
+     * Rasterises the environment with each tile drawn as a square of pixels.
+     * @param environment the environment to render
+     * @param target an array of at least (size * scale) squared values, written row by row
+     * @param scale how many pixels wide each tile is
+     */
+    public synchronized void render(Environment environment, int[] target, int scale) {
+        int size = environment.getSize();
+        palette.update(environment);
+        int bands = Math.min(size, Runtime.getRuntime().availableProcessors() * BANDS_PER_THREAD);
+        IntStream.range(0, bands).parallel().forEach(band ->
+                renderRows(environment, target, scale, band * size / bands, (band + 1) * size / bands));
+    }
+
+    /**
+     * Draws a band of rows of tiles.
+     * @param environment the environment to render
+     * @param target the array pixels are written to
+     * @param scale how many pixels wide each tile is
+     * @param firstRow the first row of tiles in the band
+     * @param endRow the row of tiles after the last in the band
+     */
+    private void renderRows(Environment environment, int[] target, int scale, int firstRow, int endRow) {
+        int size = environment.getSize();
+        int width = size * scale;
+        for (int y = firstRow; y < endRow; y++) {
+            int rowStart = y * scale * width;
+            for (int x = 0; x < size; x++) {
+                int rgb = palette.getRGBConcurrently(palette.getColorIndex(environment, y * size + x));
+                int offset = rowStart + x * scale;
+                for (int column = 0; column < scale; column++) {
+                    target[offset + column] = rgb;
+                }
+            }
+            for (int row = 1; row < scale; row++) {
+                System.arraycopy(target, rowStart, target, rowStart + row * width, width);
+            }
+        }
+    }
+}
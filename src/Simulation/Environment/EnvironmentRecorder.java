@@ -0,0 +1,229 @@
+package Simulation.Environment;
+
+import java.io.*;
+import java.util.Arrays;
+
+/** Records how an Environment changes over a run, step by step, to a compact binary file an EnvironmentPlayer can seek.
+ * <p>
+ * Each tile is recorded as a tile code holding its terrain flag, its energy band and the species ID of its occupant, so a
+ * recording shows what a rendered run would show rather than every energy level. Every keyframeInterval recorded steps,
+ * and whenever the environments size changes, a keyframe storing every tile code run length encoded is written. Every
+ * other step writes a delta of the tiles whose code changed since the last recorded step: each changed tile is stored as
+ * the length of the run of unchanged tiles before it, then the XOR of its old and new codes, so a changed tile usually
+ * costs two bytes. Only the tiles the environment has flagged as dirty for the recorder are read, so a delta costs
+ * time in proportion to how much of the grid changed.
+ * <p>
+ * The file starts with the MAGIC and VERSION ints, followed by one record per recorded step: its type, the step, the
+ * length of its payload, then the payload. Keyframe payloads start with the environments size. All counts and codes are
+ * written as unsigned variable length ints, seven bits per byte.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class EnvironmentRecorder implements Closeable {
+
+    // Identifies a recording, the ASCII for "ENVR"
+    static final int MAGIC = 0x454E5652;
+    // The version of the recording format
+    static final int VERSION = 1;
+    // The record types
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    // How the tile code is packed, terrain in the lowest bit, then the energy band, then the occupants species ID + 1
+    static final int ENERGY_BAND_SHIFT = 1;
+    static final int ENERGY_BAND_MASK = 0b111;
+    static final int SPECIES_SHIFT = 4;
+
+    // The file the recording is written to
+    private final DataOutputStream output;
+    // How many recorded steps apart keyframes are written
+    private final int keyframeInterval;
+    // The tile codes of the last recorded step
+    private int[] tileCodes = new int[0];
+    // The energy band of each energy level, starting from the min energy level
+    private int[] energyBands = new int[0];
+    // The min and max energy levels energyBands was built for
+    private int minEnergyLevel;
+    private int maxEnergyLevel;
+    // The size of the environment the last step was recorded from
+    private int size = -1;
+    // How many steps have been recorded since the last keyframe
+    private int stepsSinceKeyframe;
+    // The payload of the record being written
+    private byte[] payload = new byte[1 << 16];
+    private int payloadLength;
+    // How many records and payload bytes have been written
+    private long recordCount;
+    private long bytesWritten;
+
+    /**
+     * @param file the file to record to, replaced if it exists
+     * @param keyframeInterval how many recorded steps apart keyframes are written, values below 1 are treated as 1
+     */
+    public EnvironmentRecorder(File file, int keyframeInterval) throws IOException {
+        this.keyframeInterval = Math.max(keyframeInterval, 1);
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    /**
+     * Records the state of the input environment after the input step, as a keyframe or a delta from the last recorded
+     * step.
+     * @param step the step just run
+     * @param environment the environment to record
+     */
+    public synchronized void recordStep(long step, Environment environment) throws IOException {
+        updateEnergyBands(environment);
+        boolean keyframe = environment.getSize() != size || stepsSinceKeyframe >= keyframeInterval - 1;
+        payloadLength = 0;
+        if (keyframe) {
+            writeKeyframe(environment);
+            stepsSinceKeyframe = 0;
+        }
+        else {
+            writeDelta(environment);
+            stepsSinceKeyframe++;
+        }
+        output.writeByte(keyframe ? KEYFRAME : DELTA);
+        output.writeLong(step);
+        output.writeInt(payloadLength);
+        output.write(payload, 0, payloadLength);
+        bytesWritten += payloadLength + 13;
+        recordCount++;
+    }
+
+    /**
+     * Stores every tile code, then writes them as runs of equal codes, each a run length then the code. Clears every
+     * recorder dirty flag, as every tile is now recorded.
+     * @param environment the environment being recorded
+     */
+    private void writeKeyframe(Environment environment) {
+        size = environment.getSize();
+        int tileCount = size * size;
+        if (tileCodes.length != tileCount) {
+            tileCodes = new int[tileCount];
+        }
+        environment.takeAllDirty(Environment.RECORDER_FLAG);
+        for (int y = 0; y < size; y++) {
+            environment.takeDirtyRow(y, Environment.RECORDER_FLAG);
+        }
+        for (int i = 0; i < tileCount; i++) {
+            environment.takeDirtyTile(i, Environment.RECORDER_FLAG);
+            tileCodes[i] = getTileCode(environment, i);
+        }
+        writeVarInt(size);
+        int i = 0;
+        while (i < tileCount) {
+            int code = tileCodes[i];
+            int run = 1;
+            while (i + run < tileCount && tileCodes[i + run] == code) {
+                run++;
+            }
+            writeVarInt(run);
+            writeVarInt(code);
+            i += run;
+        }
+    }
+
+    /**
+     * Writes each tile whose code changed since the last recorded step as the number of unchanged tiles skipped since the
+     * last changed tile, then the XOR of its old and new codes, updating the stored codes as it goes.
+     * <p>
+     * Only tiles the environment has flagged as dirty for the recorder are looked at, unless it's flagged every tile.
+     * @param environment the environment being recorded
+     */
+    private void writeDelta(Environment environment) {
+        boolean checkAll = environment.takeAllDirty(Environment.RECORDER_FLAG);
+        int skipped = 0;
+        for (int y = 0; y < size; y++) {
+            if (!environment.takeDirtyRow(y, Environment.RECORDER_FLAG) && !checkAll) {
+                skipped += size;
+                continue;
+            }
+            for (int i = y * size; i < (y + 1) * size; i++) {
+                if (!environment.takeDirtyTile(i, Environment.RECORDER_FLAG) && !checkAll) {
+                    skipped++;
+                    continue;
+                }
+                int code = getTileCode(environment, i);
+                int change = code ^ tileCodes[i];
+                if (change == 0) {
+                    skipped++;
+                    continue;
+                }
+                tileCodes[i] = code;
+                writeVarInt(skipped);
+                writeVarInt(change);
+                skipped = 0;
+            }
+        }
+    }
+
+    /**
+     * Appends an unsigned variable length int to the payload, growing it if needed.
+     * @param value the value to write, treated as unsigned
+     */
+    private void writeVarInt(int value) {
+        if (payloadLength + 5 > payload.length) {
+            payload = Arrays.copyOf(payload, payload.length * 2);
+        }
+        while ((value & ~0x7F) != 0) {
+            payload[payloadLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        payload[payloadLength++] = (byte) value;
+    }
+
+    /**
+     * Rebuilds the energy band lookup table if the environments energy levels have changed.
+     * @param environment the environment being recorded
+     */
+    private void updateEnergyBands(Environment environment) {
+        if (energyBands.length > 0 && environment.getMinEnergyLevel() == minEnergyLevel && environment.getMaxEnergyLevel() == maxEnergyLevel) {
+            return;
+        }
+        minEnergyLevel = environment.getMinEnergyLevel();
+        maxEnergyLevel = environment.getMaxEnergyLevel();
+        energyBands = new int[Math.max(maxEnergyLevel - minEnergyLevel + 1, 1)];
+        for (int i = 0; i < energyBands.length; i++) {
+            energyBands[i] = environment.getEnergyBand(minEnergyLevel + i);
+        }
+    }
+
+    /**
+     * Returns the tile code of the tile at the input index.
+     * @param environment the environment being recorded
+     * @param index the index of the tile
+     */
+    private int getTileCode(Environment environment, int index) {
+        if (environment.isTerrain(index)) {
+            return 1;
+        }
+        int level = Math.min(Math.max(environment.getEnergyLevel(index) - minEnergyLevel, 0), energyBands.length - 1);
+        int code = energyBands[level] << ENERGY_BAND_SHIFT;
+        if (environment.isOccupied(index)) {
+            code |= (environment.getOccupantSpecies(index) + 1) << SPECIES_SHIFT;
+        }
+        return code;
+    }
+
+    /**
+     * Returns how many steps have been recorded.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns how many bytes have been recorded, not counting the file header.
+     */
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,135 @@
+package Simulation.Environment;
+
+import java.awt.image.*;
+
+/** Renders an Environment into an image which is kept between frames.
+ * <p>
+ * The first frame, and any frame after the environment, its size or the scale changes, draws every tile. Every other
+ * frame only redraws the tiles the environment has flagged as dirty since the last frame. The renderers dirty flags are
+ * cleared as they're rendered, so each environment should only be rendered by one EnvironmentRenderer.
+ * <p>
+ * Tiles are colored from a TilePalette. At a scale of 1 the image stores palette indexes with an IndexColorModel, at
+ * larger scales it stores RGB values.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class EnvironmentRenderer {
+
+    // The most colors an IndexColorModel with 16 bit pixels can hold, past this the RGB image is used at every scale
+    private static final int MAX_INDEXED_COLORS = 1 << 16;
+
+    // The image tiles are rendered into
+    private BufferedImage image;
+    // The RGB images pixels, null if the image is indexed
+    private int[] pixels;
+    // The indexed images pixels, null if the image is RGB
+    private short[] indexPixels;
+    // The environment the image was last rendered from
+    private Environment environment;
+    // The environment size the image was last rendered at
+    private int size;
+    // How many pixels wide each tile is in the image
+    private int scale;
+    // The palette tiles are colored from
+    private final TilePalette palette = new TilePalette();
+
+    /**
+     * Brings the image up to date with the input environment and returns it.
+     * <p>
+     * The same image is returned every frame until the environment, its size or the scale changes, or the palette of an
+     * indexed image grows.
+     * @param environment the environment to render
+     * @param scale how many pixels wide each tile is, values below 1 are treated as 1
+     */
+    public BufferedImage render(Environment environment, int scale) {
+        scale = Math.max(scale, 1);
+        boolean redrawAll = environment.takeAllDirty(Environment.RENDERER_FLAG);
+        if (image == null || environment != this.environment || environment.getSize() != size || scale != this.scale) {
+            this.environment = environment;
+            this.size = environment.getSize();
+            this.scale = scale;
+            newImage();
+            redrawAll = true;
+        }
+        if (redrawAll) {
+            palette.update(environment);
+        }
+        drawTiles(redrawAll);
+        if (indexPixels != null && (redrawAll || palette.isMissingAgentColors())) {
+            palette.updateAgentColors();
+            if (palette.getSize() > MAX_INDEXED_COLORS) {
+                // Too many colors to index, redraw everything into an RGB image
+                newImage();
+                drawTiles(true);
+                return image;
+            }
+            image = new BufferedImage(palette.newIndexColorModel(), image.getRaster(), false, null);
+        }
+        return image;
+    }
+
+    /**
+     * Draws every dirty tile, or every tile if redrawAll is true, clearing their dirty flags.
+     * @param redrawAll true if every tile should be drawn
+     */
+    private void drawTiles(boolean redrawAll) {
+        for (int y = 0; y < size; y++) {
+            if (redrawAll) {
+                environment.takeDirtyRow(y, Environment.RENDERER_FLAG);
+                for (int x = 0; x < size; x++) {
+                    environment.takeDirtyTile(y * size + x, Environment.RENDERER_FLAG);
+                    drawTile(x, y);
+                }
+            }
+            else if (environment.takeDirtyRow(y, Environment.RENDERER_FLAG)) {
+                for (int x = 0; x < size; x++) {
+                    if (environment.takeDirtyTile(y * size + x, Environment.RENDERER_FLAG)) {
+                        drawTile(x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes a new image for the current size and scale, indexed if the scale is 1 and the palette will fit.
+     */
+    private void newImage() {
+        int width = size * scale;
+        palette.update(environment);
+        if (scale == 1 && palette.getSize() <= MAX_INDEXED_COLORS) {
+            WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, width, width, 1, null);
+            indexPixels = ((DataBufferUShort) raster.getDataBuffer()).getData();
+            pixels = null;
+            image = new BufferedImage(palette.newIndexColorModel(), raster, false, null);
+        }
+        else {
+            image = new BufferedImage(width, width, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            indexPixels = null;
+        }
+    }
+
+    /**
+     * Sets the pixels covering the input tile to its current color.
+     * @param x the tiles x coordinate
+     * @param y the tiles y coordinate
+     */
+    private void drawTile(int x, int y) {
+        int colorIndex = palette.getColorIndex(environment, y * size + x);
+        if (indexPixels != null) {
+            indexPixels[y * size + x] = (short) colorIndex;
+            return;
+        }
+        int rgb = palette.getRGB(colorIndex);
+        int width = size * scale;
+        int start = y * scale * width + x * scale;
+        for (int row = 0; row < scale; row++) {
+            int offset = start + row * width;
+            for (int column = 0; column < scale; column++) {
+                pixels[offset + column] = rgb;
+            }
+        }
+    }
+}
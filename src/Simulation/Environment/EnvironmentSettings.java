@@ -10,6 +10,9 @@ import java.io.Serializable;
  */
 public class EnvironmentSettings implements Serializable {
 
+    // Fixed so environment settings in older .dat files can still be read
+    private static final long serialVersionUID = -6546124140920021982L;
+
     private int size;
     private int maxEnergyLevel;
     private int minEnergyLevel;
@@ -2,62 +2,58 @@ package Simulation.Environment;
 
 import Simulation.Agent.AgentInterfaces.Agent;
 
-import java.io.Serializable;
-
-/** Represents an individual environment tile. It contains an energy level,
- * a terrain flag and can store one occupant.
+/** A view of an individual environment tile. It reads and writes the tile's energy level,
+ * terrain flag and occupant in the environment's tile layers, and holds no state of its own.
  * @author Sam Burchmore
  * @version 1.0a
  * @since 1.0a
  */
-public class EnvironmentTile implements Serializable {
+public class EnvironmentTile {
 
-    // Is this tile terrain or not, i.e. can it be traversed by an agent
-    private boolean isTerrain;
-    // The current energy level of this tile.
-    private int energyLevel;
-    // The tiles location
-    private final Location location;
-    // The agent (or lack of) currently occupying this tile
-    private Agent currentAgent;
+    // The environment this tile belongs to
+    private final Environment environment;
+    // The tiles index in the environments tile layers
+    private final int index;
 
-    public EnvironmentTile(int energyLevel, int x, int y) {
-        this.energyLevel = energyLevel;
-        this.location = new Location(x, y);
-        this.currentAgent = null;
-        isTerrain = false;
+    public EnvironmentTile(Environment environment, int index) {
+        this.environment = environment;
+        this.index = index;
     }
 
     public boolean isTerrain() {
-        return isTerrain;
+        return environment.isTerrain(index);
     }
 
     public void setTerrain(boolean isTerrain) {
-        this.isTerrain = isTerrain;
+        environment.setTerrain(index, isTerrain);
     }
 
-    public Integer getEnergyLevel() {
-        return this.energyLevel;
+    public int getEnergyLevel() {
+        return environment.getEnergyLevel(index);
     }
 
-    public void setEnergyLevel(Integer energyLevel) {
-        this.energyLevel = energyLevel;
+    public void setEnergyLevel(int energyLevel) {
+        environment.setEnergyLevel(index, energyLevel);
     }
 
     public Location getLocation() {
-        return this.location;
+        return new Location(index % environment.getSize(), index / environment.getSize());
+    }
+
+    public int getIndex() {
+        return index;
     }
 
     public Agent getOccupant() {
-        return this.currentAgent;
+        return environment.getOccupant(index);
     }
 
     public void setOccupant(Agent newAgent) {
-        this.currentAgent = newAgent;
+        environment.setOccupant(index, newAgent);
     }
 
     public boolean isOccupied() {
-        return this.currentAgent != null;
+        return environment.isOccupied(index);
     }
 
 }
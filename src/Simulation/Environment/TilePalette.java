@@ -0,0 +1,130 @@
+package Simulation.Environment;
+
+import Simulation.Agent.AgentInterfaces.Agent;
+import Simulation.Agent.AgentUtility.AgentColors;
+
+import java.awt.*;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+
+/** The palette renderers color tiles from, the environment colors followed by every color in AgentColors.
+ * <p>
+ * Indexes 0 to 5 are the energy bands from Environment.getEnergyBand(), 6 is terrain, and agent colors start at 7.
+ * Energy levels are mapped to their palette index by a lookup table, and agents by their attributes cached color index,
+ * so finding a tiles color never compares energy levels or touches a Color object.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+class TilePalette {
+
+    // The palette index of terrain
+    static final int TERRAIN_COLOR = 6;
+    // The palette index of the first agent color
+    static final int FIRST_AGENT_COLOR = 7;
+
+    // The RGB value of each palette index
+    private int[] palette;
+    // How many agent colors are in the palette
+    private int agentColorCount;
+    // The palette index of each energy level, starting from the min energy level
+    private int[] energyColors;
+    // The energy level energyColors starts from
+    private int minEnergyLevel;
+
+    /**
+     * Rebuilds the whole palette, and the energy level lookup table, from the input environments colors and energy levels.
+     * @param environment the environment being rendered
+     */
+    void update(Environment environment) {
+        updateAgentColors();
+        Color[] environmentColors = environment.getColors();
+        for (int i = 0; i < FIRST_AGENT_COLOR; i++) {
+            palette[i] = environmentColors[i].getRGB() & 0xFFFFFF;
+        }
+        minEnergyLevel = environment.getMinEnergyLevel();
+        int levels = Math.max(environment.getMaxEnergyLevel() - minEnergyLevel + 1, 1);
+        if (energyColors == null || energyColors.length != levels) {
+            energyColors = new int[levels];
+        }
+        for (int i = 0; i < levels; i++) {
+            energyColors[i] = environment.getEnergyBand(minEnergyLevel + i);
+        }
+    }
+
+    /**
+     * Copies every AgentColors color into the palette.
+     */
+    void updateAgentColors() {
+        agentColorCount = AgentColors.getColorCount();
+        palette = AgentColors.copyColors(palette, FIRST_AGENT_COLOR);
+    }
+
+    /**
+     * Returns true if AgentColors holds colors which aren't in the palette yet.
+     */
+    boolean isMissingAgentColors() {
+        return agentColorCount != AgentColors.getColorCount();
+    }
+
+    /**
+     * Returns how many colors are in the palette.
+     */
+    int getSize() {
+        return FIRST_AGENT_COLOR + agentColorCount;
+    }
+
+    /**
+     * Returns the palette index of the tile at the input index.
+     * @param environment the environment being rendered
+     * @param index the index of the tile
+     */
+    int getColorIndex(Environment environment, int index) {
+        if (environment.isTerrain(index)) {
+            return TERRAIN_COLOR;
+        }
+        Agent occupant = environment.getOccupant(index);
+        if (occupant != null) {
+            return FIRST_AGENT_COLOR + occupant.getAttributes().getColorIndex();
+        }
+        return getEnergyColorIndex(environment.getEnergyLevel(index));
+    }
+
+    /**
+     * Returns the palette index of the input energy level.
+     * @param energyLevel the energy level
+     */
+    int getEnergyColorIndex(int energyLevel) {
+        return energyColors[Math.min(Math.max(energyLevel - minEnergyLevel, 0), energyColors.length - 1)];
+    }
+
+    /**
+     * Returns the RGB value of the input palette index, copying in new agent colors first if needed.
+     * @param colorIndex the palette index
+     */
+    int getRGB(int colorIndex) {
+        if (colorIndex >= FIRST_AGENT_COLOR + agentColorCount) {
+            updateAgentColors();
+        }
+        return palette[colorIndex];
+    }
+
+    /**
+     * Returns the RGB value of the input palette index without changing the palette, so it can be called from many
+     * threads at once. Agent colors added since the palette was last updated are read from AgentColors.
+     * @param colorIndex the palette index
+     */
+    int getRGBConcurrently(int colorIndex) {
+        if (colorIndex >= FIRST_AGENT_COLOR + agentColorCount) {
+            return AgentColors.getRGB(colorIndex - FIRST_AGENT_COLOR);
+        }
+        return palette[colorIndex];
+    }
+
+    /**
+     * Returns a color model mapping 16 bit pixels to the current palette.
+     */
+    IndexColorModel newIndexColorModel() {
+        return new IndexColorModel(16, getSize(), palette, 0, false, -1, DataBuffer.TYPE_USHORT);
+    }
+}
@@ -0,0 +1,86 @@
+package Simulation.Environment;
+
+import Simulation.Agent.AgentInterfaces.Agent;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.BitSet;
+
+/** Scores rows of tiles for a lone GrazerMotivation with the Vector API, giving the same scores as the scalar loops in
+ * Environment.scoreGrazingRow().
+ * <p>
+ * The row is scored as many tiles at a time as the hardware's widest int vector holds, with the last vector masked to
+ * the end of the row. Each vector of energy levels is turned into scores with min, multiply and add, and tiles without
+ * energy are blended to the score of a move. A mask of the occupied tiles is taken from the same stretch of the occupant
+ * layer, and only when it has a tile set are occupant sizes read, one by one. Terrain tiles are zeroed last, as the
+ * scalar loops do, since a BitSet can't be loaded into a vector.
+ * <p>
+ * Rows shorter than MIN_LENGTH are left to the scalar loops, which score them faster. Vectors are stored whole when the
+ * scores array has room, so up to a vector's width of scores past the row may be overwritten. Masked stores and
+ * conversions between masks and longs aren't compiled to vector instructions by every JDK, and cost more than the rest
+ * of the row put together where they aren't.
+ * <p>
+ * jdk.incubator.vector is an incubating module, only resolved when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}. This class is only loaded when Environment.VECTOR_GRAZING_AVAILABLE is
+ * true, otherwise the scalar loops are used.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+final class VectorGrazingScorer {
+
+    // The widest vector of ints the hardware supports
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // The shortest row worth scoring with vectors, shorter rows are mostly spent on the fixed cost of each vector
+    static final int MIN_LENGTH = SPECIES.length() / 2;
+
+    private VectorGrazingScorer() {
+    }
+
+    /**
+     * Writes the score of tiles from to from + length - 1 into scores[offset] onwards. Scores after the row, up to the
+     * end of its last vector, may be overwritten if the array is long enough.
+     * @param energyLevels the environments energy layer
+     * @param occupants the environments occupant handles, 0 for an empty tile
+     * @param occupantTable the agent each handle refers to, handle h at h - 1
+     * @param terrain the environments terrain flags
+     * @param from the index of the first tile
+     * @param length how many tiles to score
+     * @param agentSize the grazers size
+     * @param bias the grazer motivations bias
+     * @param weight the grazer motivations weight
+     * @param eatAmount the most energy the grazer can take
+     * @param scores where the scores are written
+     * @param offset the index of the first tiles score
+     */
+    static void scoreRow(int[] energyLevels, int[] occupants, Agent[] occupantTable, BitSet terrain, int from, int length,
+                         int agentSize, int bias, int weight, int eatAmount, int[] scores, int offset) {
+        int lanes = SPECIES.length();
+        for (int i = 0; i < length; i += lanes) {
+            VectorMask<Integer> inRow = SPECIES.indexInRange(i, length);
+            IntVector energy = IntVector.fromArray(SPECIES, energyLevels, from + i, inRow);
+            IntVector score = energy.min(eatAmount).mul(weight).add(bias)
+                    .blend(1, energy.compare(VectorOperators.LE, 0));
+            if (offset + i + lanes <= scores.length) {
+                score.intoArray(scores, offset + i);
+            }
+            else {
+                score.intoArray(scores, offset + i, inRow);
+            }
+            // Most rows are empty, so their occupants sizes never need reading. Lanes past the row were loaded as 0
+            if (IntVector.fromArray(SPECIES, occupants, from + i, inRow).compare(VectorOperators.NE, 0).anyTrue()) {
+                for (int lane = i, end = Math.min(i + lanes, length); lane < end; lane++) {
+                    int handle = occupants[from + lane];
+                    if (handle != 0 && occupantTable[handle - 1].getAttributes().getSize() >= agentSize) {
+                        scores[offset + lane] = -1;
+                    }
+                }
+            }
+        }
+        for (int index = terrain.nextSetBit(from), to = from + length; index >= 0 && index < to; index = terrain.nextSetBit(index + 1)) {
+            scores[offset + index - from] = 0;
+        }
+    }
+}
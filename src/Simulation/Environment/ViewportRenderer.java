@@ -0,0 +1,286 @@
+package Simulation.Environment;
+
+import Simulation.Agent.AgentInterfaces.Agent;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/** Renders the visible window of an Environment into a fixed size image, with zoom and pan.
+ * <p>
+ * The zoom is how many pixels wide each tile is, and can be fractional. Zoomed in, each pixel takes the color of the tile
+ * under it, with each tile colored once per row and repeated rows copied. Zoomed out, each pixel covers a block of tiles
+ * and takes their aggregate color: the dominant species if agents cover at least half of the blocks open tiles,
+ * otherwise the mean energy of its empty tiles. At most MAX_SAMPLES_PER_SIDE squared tiles are sampled per block, so the
+ * cost of a frame depends on the number of pixels, not the size of the world.
+ * <p>
+ * The view can't be zoomed out past the whole world fitting, and can't be panned past its edges. Changing the view and
+ * rendering are synchronized, so the view can be changed from the event dispatch thread while another thread renders.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class ViewportRenderer {
+
+    // The most tiles sampled along each side of the block of tiles a pixel covers
+    private static final int MAX_SAMPLES_PER_SIDE = 2;
+    // The most pixels wide a tile can be zoomed to
+    private static final double MAX_ZOOM = 32;
+
+    // The image the view is rendered into
+    private final BufferedImage image;
+    // The images pixels, written to directly
+    private final int[] pixels;
+    // The width and height of the image
+    private final int width;
+    private final int height;
+    // The palette tiles are colored from
+    private final TilePalette palette = new TilePalette();
+    // The size of the world the view was last fitted to
+    private int worldSize;
+    // How many pixels wide each tile is
+    private double zoom;
+    // The tile coordinates at the top left corner of the view
+    private double originX;
+    private double originY;
+    // The first tile each column of pixels covers, and how many tiles it covers, or -1 if it's off the world
+    private final int[] columnTiles;
+    private final int[] columnSpans;
+    // The palette index and species ID of each sample in the current block
+    private final int[] sampleColors = new int[MAX_SAMPLES_PER_SIDE * MAX_SAMPLES_PER_SIDE];
+    private final int[] sampleSpecies = new int[MAX_SAMPLES_PER_SIDE * MAX_SAMPLES_PER_SIDE];
+
+    /**
+     * @param width the width of the image in pixels
+     * @param height the height of the image in pixels
+     */
+    public ViewportRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.columnTiles = new int[width];
+        this.columnSpans = new int[width];
+    }
+
+    /**
+     * Zooms out so the whole world is visible and centered.
+     * @param worldSize the length of the worlds sides
+     */
+    public synchronized void fit(int worldSize) {
+        this.worldSize = worldSize;
+        this.zoom = getFitZoom();
+        clampOrigin();
+    }
+
+    /**
+     * Fits the view to the input world if it was last fitted to a world of a different size.
+     * @param worldSize the length of the worlds sides
+     */
+    public synchronized void setWorldSize(int worldSize) {
+        if (worldSize != this.worldSize) {
+            fit(worldSize);
+        }
+    }
+
+    /**
+     * Multiplies the zoom by the input factor, keeping the tile under the input pixel in place.
+     * @param factor how much to zoom by, above 1 zooms in
+     * @param pixelX the x coordinate of the pixel to zoom around
+     * @param pixelY the y coordinate of the pixel to zoom around
+     */
+    public synchronized void zoom(double factor, int pixelX, int pixelY) {
+        double tileX = originX + pixelX / zoom;
+        double tileY = originY + pixelY / zoom;
+        zoom = Math.min(Math.max(zoom * factor, getFitZoom()), Math.max(MAX_ZOOM, getFitZoom()));
+        originX = tileX - pixelX / zoom;
+        originY = tileY - pixelY / zoom;
+        clampOrigin();
+    }
+
+    /**
+     * Moves the view by the input number of pixels.
+     * @param pixelsX how far to move the world right
+     * @param pixelsY how far to move the world down
+     */
+    public synchronized void pan(int pixelsX, int pixelsY) {
+        originX -= pixelsX / zoom;
+        originY -= pixelsY / zoom;
+        clampOrigin();
+    }
+
+    /**
+     * Returns true if the view is zoomed in past the whole input world fitting.
+     * @param worldSize the length of the worlds sides
+     */
+    public synchronized boolean isZoomedIn(int worldSize) {
+        return worldSize == this.worldSize && zoom > getFitZoom();
+    }
+
+    /**
+     * Renders the visible window of the input environment and returns the image. The same image is returned every frame.
+     * @param environment the environment to render
+     */
+    public synchronized BufferedImage render(Environment environment) {
+        setWorldSize(environment.getSize());
+        palette.update(environment);
+        for (int x = 0; x < width; x++) {
+            int firstTile = (int) Math.floor(originX + x / zoom);
+            int lastTile = Math.max((int) Math.floor(originX + (x + 1) / zoom), firstTile + 1);
+            boolean onWorld = firstTile >= 0 && firstTile < worldSize;
+            columnTiles[x] = onWorld ? firstTile : -1;
+            columnSpans[x] = onWorld ? Math.min(lastTile, worldSize) - firstTile : 0;
+        }
+        int previousRowTile = -1;
+        for (int y = 0; y < height; y++) {
+            int firstTile = (int) Math.floor(originY + y / zoom);
+            int lastTile = Math.max((int) Math.floor(originY + (y + 1) / zoom), firstTile + 1);
+            if (firstTile < 0 || firstTile >= worldSize) {
+                fillRow(y);
+                previousRowTile = -1;
+            }
+            else if (zoom >= 1) {
+                if (firstTile == previousRowTile) {
+                    System.arraycopy(pixels, (y - 1) * width, pixels, y * width, width);
+                }
+                else {
+                    drawRow(environment, y, firstTile);
+                }
+                previousRowTile = firstTile;
+            }
+            else {
+                drawAggregateRow(environment, y, firstTile, Math.min(lastTile, worldSize) - firstTile);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Draws a row of pixels while zoomed in, coloring each tile once.
+     * @param environment the environment to render
+     * @param y the row of pixels
+     * @param tileY the row of tiles under it
+     */
+    private void drawRow(Environment environment, int y, int tileY) {
+        int previousTile = -2;
+        int rgb = 0;
+        for (int x = 0; x < width; x++) {
+            int tileX = columnTiles[x];
+            if (tileX != previousTile) {
+                rgb = palette.getRGB(tileX < 0 ? TilePalette.TERRAIN_COLOR : palette.getColorIndex(environment, tileY * worldSize + tileX));
+                previousTile = tileX;
+            }
+            pixels[y * width + x] = rgb;
+        }
+    }
+
+    /**
+     * Draws a row of pixels while zoomed out, coloring each pixel by the aggregate of the block of tiles it covers.
+     * @param environment the environment to render
+     * @param y the row of pixels
+     * @param tileY the first row of tiles under it
+     * @param rows how many rows of tiles it covers
+     */
+    private void drawAggregateRow(Environment environment, int y, int tileY, int rows) {
+        for (int x = 0; x < width; x++) {
+            pixels[y * width + x] = columnTiles[x] < 0
+                    ? palette.getRGB(TilePalette.TERRAIN_COLOR)
+                    : palette.getRGB(getAggregateColor(environment, columnTiles[x], columnSpans[x], tileY, rows));
+        }
+    }
+
+    /**
+     * Returns the palette index representing a block of tiles, found from an evenly spaced grid of samples.
+     * <p>
+     * Terrain is returned if most samples are terrain. Otherwise, if agents occupy at least half the open samples, the
+     * color of the most common species is returned, else the color of the mean energy of the empty samples.
+     * @param environment the environment to render
+     * @param tileX the first column of the block
+     * @param columns how many columns the block covers
+     * @param tileY the first row of the block
+     * @param rows how many rows the block covers
+     */
+    private int getAggregateColor(Environment environment, int tileX, int columns, int tileY, int rows) {
+        int samplesX = Math.min(columns, MAX_SAMPLES_PER_SIDE);
+        int samplesY = Math.min(rows, MAX_SAMPLES_PER_SIDE);
+        int terrainCount = 0;
+        int occupiedCount = 0;
+        int energySum = 0;
+        for (int i = 0; i < samplesY; i++) {
+            int row = tileY + (2 * i + 1) * rows / (2 * samplesY);
+            for (int j = 0; j < samplesX; j++) {
+                int index = row * worldSize + tileX + (2 * j + 1) * columns / (2 * samplesX);
+                if (environment.isTerrain(index)) {
+                    terrainCount++;
+                    continue;
+                }
+                Agent occupant = environment.getOccupant(index);
+                if (occupant != null) {
+                    sampleSpecies[occupiedCount] = occupant.getAttributes().getID();
+                    sampleColors[occupiedCount++] = TilePalette.FIRST_AGENT_COLOR + occupant.getAttributes().getColorIndex();
+                }
+                else {
+                    energySum += environment.getEnergyLevel(index);
+                }
+            }
+        }
+        int samples = samplesX * samplesY;
+        int emptyCount = samples - terrainCount - occupiedCount;
+        if (terrainCount * 2 > samples) {
+            return TilePalette.TERRAIN_COLOR;
+        }
+        if (occupiedCount > 0 && occupiedCount >= emptyCount) {
+            return getDominantSpeciesColor(occupiedCount);
+        }
+        return palette.getEnergyColorIndex(energySum / Math.max(emptyCount, 1));
+    }
+
+    /**
+     * Returns the color of the first sampled agent of the most common species among the samples.
+     * @param occupiedCount how many samples were occupied
+     */
+    private int getDominantSpeciesColor(int occupiedCount) {
+        int best = 0;
+        int bestCount = 0;
+        for (int i = 0; i < occupiedCount; i++) {
+            int count = 0;
+            for (int j = i; j < occupiedCount; j++) {
+                if (sampleSpecies[j] == sampleSpecies[i]) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = i;
+                bestCount = count;
+            }
+        }
+        return sampleColors[best];
+    }
+
+    /**
+     * Fills a row of pixels which is off the world.
+     * @param y the row of pixels
+     */
+    private void fillRow(int y) {
+        int rgb = palette.getRGB(TilePalette.TERRAIN_COLOR);
+        for (int x = 0; x < width; x++) {
+            pixels[y * width + x] = rgb;
+        }
+    }
+
+    /**
+     * Returns the zoom at which the whole world fits in the view.
+     */
+    private double getFitZoom() {
+        return Math.min(width, height) / (double) Math.max(worldSize, 1);
+    }
+
+    /**
+     * Keeps the view within the world, centering the world along any side it doesn't fill.
+     */
+    private void clampOrigin() {
+        double tilesWide = width / zoom;
+        double tilesHigh = height / zoom;
+        originX = tilesWide >= worldSize ? (worldSize - tilesWide) / 2 : Math.min(Math.max(originX, 0), worldSize - tilesWide);
+        originY = tilesHigh >= worldSize ? (worldSize - tilesHigh) / 2 : Math.min(Math.max(originY, 0), worldSize - tilesHigh);
+    }
+}
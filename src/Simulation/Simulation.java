@@ -1,26 +1,41 @@
 package Simulation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
 import Simulation.Agent.AgentConcreteComponents.BasicAgent;
+import Simulation.Agent.AgentConcreteComponents.BasicScores;
+import Simulation.Agent.AgentUtility.AgentCodec;
+import Simulation.Agent.AgentUtility.AgentStore;
+import Simulation.Agent.AgentUtility.DecisionKernel;
+import Simulation.Agent.AgentUtility.GenotypeCache;
+import Simulation.Agent.AgentUtility.MotivationSet;
 import Simulation.Agent.AgentInterfaces.Attributes;
 import Simulation.Agent.AgentInterfaces.Scores;
 import Simulation.Agent.AgentStructs.ColorModel;
 import Simulation.Agent.AgentUtility.AgentEditor;
 import Simulation.Agent.AgentInterfaces.Agent;
-import Simulation.Agent.AgentInterfaces.Motivation;
 import Simulation.Agent.AgentStructs.AgentAction;
-import Simulation.Agent.AgentStructs.AgentDecision;
 import Simulation.Agent.AgentStructs.AgentVision;
 import Simulation.Diagnostics.Diagnostics;
 import Simulation.Environment.Environment;
 import Simulation.Environment.EnvironmentSettings;
-import Simulation.Environment.EnvironmentTile;
 import Simulation.Environment.Location;
+import Simulation.SimulationUtility.CycleMode;
+import Simulation.SimulationUtility.RandomSource;
+import Simulation.SimulationUtility.RandomStream;
 import Simulation.SimulationUtility.SimulationSettings;
+import Simulation.SimulationUtility.StateCodec;
 import Simulation.SimulationUtility.TerrainSettings;
 
 /** This class represents the simulation. It acts as a controller to the Environment and the Agents. It contains 2 inner classes: AgentLogic and TerrainGenerator.
@@ -37,6 +52,10 @@ public class Simulation {
     private ArrayList<Agent> agentList;
     // All newly born and surviving agents from each cycle are placed in here. At the end agentList is set to this
     private ArrayList<Agent> aliveAgentList;
+    // Stores agents as slots in primitive arrays, used instead of agentList and aliveAgentList when useAgentStore is true
+    private final AgentStore agentStore;
+    // If true agents are kept in the agentStore rather than as BasicAgent objects
+    private boolean useAgentStore = false;
     // The instance of the agent editor class
     private final AgentEditor agentEditor;
     // The instance of the diagnostics class
@@ -45,18 +64,45 @@ public class Simulation {
     private final AgentLogic agentLogic;
     // The instance of the terrain generator class
     private final TerrainGenerator terrainGenerator;
-    // The random instance used for decisions within the class
-    private final Random random = new Random();
+    // Every random number used by the simulation is drawn from this, so runs with the same seed can be repeated
+    private final RandomSource randomSource = new RandomSource(System.nanoTime());
     // How much info is logged by the diagnostics class = (0=low, 1=high)
     private int diagnosticsVerbosity = 1;
+    // If true agents whose only motivation is grazing score their vision window a row at a time, see AgentLogic.decideGrazing()
+    private boolean batchedGrazing = true;
+    // If true batched rows are scored with the Vector API, only possible when Environment.VECTOR_GRAZING_AVAILABLE is true
+    private boolean vectorGrazing = Environment.VECTOR_GRAZING_AVAILABLE;
+    // How agents are run each cycle
+    private CycleMode cycleMode = CycleMode.SEQUENTIAL;
+    // How many cycles have been run, used so each cycle draws from different random streams
+    private long cycleCount = 0;
+    // The pool decisions are made on in the TWO_PHASE cycle mode, created the first time it's needed
+    private ForkJoinPool decisionPool;
+    // How many threads the decision pool uses
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // The stamp of the cycle each tile was last reserved in, used to resolve conflicting decisions in the TWO_PHASE cycle mode
+    private int[] reservations = new int[0];
+    // Increases every TWO_PHASE cycle, so reservations from earlier cycles never need clearing
+    private int reservationStamp = 0;
+    // The furthest an agent can see, and so the furthest from its own tile it can change the environment
+    private static final int MAX_RANGE = Attributes.MAX_RANGE;
+    // Stripes must be taller than two ranges, so agents in stripes run at the same time can never reach the same tile.
+    // The height doesn't depend on the number of threads, so the same seed gives the same run on any machine
+    private static final int STRIPE_HEIGHT = 2 * MAX_RANGE + 2;
+    // The agents in each stripe, used in place of agentList in the STRIPED cycle mode. Null until the first STRIPED cycle
+    private ArrayList<ArrayList<Agent>> stripeAgentLists;
+    // The flags kept for each agent by writeState(), set if the agent has been eaten, and if it still stands on its tile
+    private static final byte EATEN_FLAG = 1;
+    private static final byte PLACED_FLAG = 2;
 
     public Simulation(int size, int startingEnergyLevel, int minEnergyLevel, int maxEnergyLevel, double energyRegenChance, int energyRegenAmount) {
         this.environment = new Environment(size, startingEnergyLevel, maxEnergyLevel, minEnergyLevel, energyRegenChance, energyRegenAmount);
         this.agentList = new ArrayList<>();
         this.aliveAgentList = new ArrayList<>();
+        this.agentStore = new AgentStore(environment);
         this.diagnostics = new Diagnostics(maxEnergyLevel * (size * size), minEnergyLevel * (size * size));
         this.agentEditor = new AgentEditor();
-        this.agentLogic = new AgentLogic();
+        this.agentLogic = new AgentLogic(diagnostics, randomSource.getStream(RandomStream.AGENTS, 0), null);
         this.terrainGenerator = new TerrainGenerator();
     }
 
@@ -70,17 +116,21 @@ public class Simulation {
      * @param density how densely should the environment be populated with agents.
      */
     public void populate(double density) {
+        RandomGenerator random = randomSource.next(RandomStream.POPULATION);
+        if (useAgentStore) {
+            populateStore(density, random);
+            return;
+        }
         ArrayList<Agent> activeAgents = agentEditor.getActiveAgents();
         IntStream.range(0, environment.getSize() * environment.getSize()).sequential().forEach(i->{
-            if (this.random.nextInt(10000) / 100.0 < density && !environment.getGrid()[i].isOccupied()) {
+            if (random.nextInt(10000) / 100.0 < density && !environment.isOccupied(i)) {
                 int agentIndex = random.nextInt(activeAgents.size());
                 BasicAgent agent;
                 for (int j = 0; j < activeAgents.size(); j++) {
                     if (j == agentIndex && agentEditor.getAgent(j).getAttributes().getSpawningWeight() > random.nextInt(100)) {
                         agent = agentLogic.getAgentFromEditor(j);
-                        EnvironmentTile wt = environment.getGrid()[i];
-                        agent.setLocation(wt.getLocation());
-                        wt.setOccupant(agent);
+                        agent.setLocation(new Location(i % environment.getSize(), i / environment.getSize()));
+                        environment.setOccupant(i, agent);
                         agentList.add(agent);
                         diagnostics.addToAgentStats(
                                 j,
@@ -95,15 +145,85 @@ public class Simulation {
         });
     }
 
+    /**
+     * Populates the environment with agents kept in the agentStore.
+     * <p>
+     * Uses the same rules, and draws the same random numbers, as populate(), and agents start with the same scores.
+     * Every agent placed from the same editor agent shares one interned copy of its attributes, and each species
+     * MotivationSet is shared with the store.
+     * @param density how densely should the environment be populated with agents.
+     * @param random the generator agents are placed with
+     */
+    private void populateStore(double density, RandomGenerator random) {
+        ArrayList<Agent> activeAgents = agentEditor.getActiveAgents();
+        Attributes[] speciesAttributes = new Attributes[activeAgents.size()];
+        for (int j = 0; j < activeAgents.size(); j++) {
+            speciesAttributes[j] = GenotypeCache.intern(activeAgents.get(j).getAttributes().copy());
+            agentStore.setSpeciesMotivations(speciesAttributes[j].getID(), activeAgents.get(j).getMotivations());
+        }
+        for (int i = 0; i < environment.getSize() * environment.getSize(); i++) {
+            if (random.nextInt(10000) / 100.0 < density && !environment.isOccupied(i)) {
+                int agentIndex = random.nextInt(activeAgents.size());
+                if (speciesAttributes[agentIndex].getSpawningWeight() > random.nextInt(100)) {
+                    Attributes attributes = speciesAttributes[agentIndex];
+                    // Start from a copy of the editor agents scores, as getAgentFromEditor() does, not from a childs scores
+                    Scores startingScores = activeAgents.get(agentIndex).getScores().copy();
+                    int slot = agentStore.allocate(attributes, startingScores.getEnergy(), i % environment.getSize(), i / environment.getSize());
+                    agentStore.setMaxEnergy(slot, startingScores.getMaxEnergy());
+                    agentStore.setMaxAge(slot, startingScores.getMaxAge());
+                    agentStore.setEnergy(slot, startingScores.getEnergy());
+                    agentStore.setCreationCounter(slot, startingScores.getCreationCounter());
+                    environment.setOccupant(i, agentStore.getHandle(slot));
+                    agentStore.keepAlive(slot);
+                    diagnostics.addToAgentStats(
+                            agentIndex,
+                            1, agentStore.getEnergy(slot),
+                            agentStore.getAge(slot),
+                            attributes.getSize(),
+                            attributes.getCreationSize(),
+                            attributes.getRange());
+                }
+            }
+        }
+        agentStore.restoreRunOrder();
+    }
+
     /**
      * Cycles the environment for one step.
      * <p>
      * Iterates over the agentList. If an agent hasn't been eaten earlier in the cycle, it runs the agent. After it's
      * iterated over every agent, it then overwrites agentList with aliveAgentList. Then it iterates over each environment
      * tile and possible regenerates its energy, depending on the environments settings.
+     * <p>
+     * Agents and energy regeneration draw from separate random streams for each cycle, so a change in how many random
+     * numbers the agents use doesn't change which tiles regenerate.
      */
     public void cycle() {
         diagnostics.clearAgentStats();
+        cycleCount++;
+        RandomGenerator random = randomSource.getStream(RandomStream.AGENTS, cycleCount);
+        agentLogic.setRandom(random);
+        if (useAgentStore) {
+            cycleStore(random);
+        }
+        else if (cycleMode == CycleMode.TWO_PHASE) {
+            cycleTwoPhase(random);
+        }
+        else if (cycleMode == CycleMode.STRIPED) {
+            cycleStriped(random);
+        }
+        else {
+            cycleAgentList(random);
+        }
+        diagnostics.modifyCurrentEnvironmentEnergy(
+                environment.regenerateEnergy(randomSource.getStream(RandomStream.ENERGY_REGENERATION, cycleCount)));
+    }
+
+    /**
+     * Runs every agent in agentList, then replaces agentList with aliveAgentList.
+     * @param random the generator used to shuffle the new agentList
+     */
+    private void cycleAgentList(RandomGenerator random) {
         for (Agent currentAgent : agentList) {
             if (!currentAgent.spaceTaken()) {
                 agentLogic.runAgent(currentAgent); // Iterate and run over all agents in the simulation
@@ -120,39 +240,246 @@ public class Simulation {
             }
         }
         agentList = aliveAgentList;
-        Collections.shuffle(agentList);
+        RandomSource.shuffle(agentList, random);
         aliveAgentList = new ArrayList<>();
-        IntStream.range(0, environment.getSize() * environment.getSize()).sequential().forEach(i->{
-            if (random.nextInt(10000) / 100.0 < environment.getEnergyRegenChance() && !environment.getGrid()[i].isTerrain()) {
-                int modifyAmount = environment.modifyTileEnergyLevel(environment.getGrid()[i].getLocation(), environment.getEnergyRegenAmount());
-                diagnostics.modifyCurrentEnvironmentEnergy(modifyAmount);
+    }
+
+    /**
+     * Runs every agent in agentList in two phases, then replaces agentList with aliveAgentList.
+     * <p>
+     * First every agent lives a day, and those who die are removed. Then every surviving agent produces its decision in
+     * parallel on the decision pool. Nothing is written to the environment in this phase, so every agent sees the same
+     * state. Each agent breaks ties with its own DECISIONS stream, split by the cycle number and the agents position in
+     * agentList, so decisions don't depend on which thread made them.
+     * <p>
+     * Finally the decisions are applied one at a time in agentList order. As the environment may have changed since an agent
+     * decided, each decision is checked first. Only the first agent to target a tile gets it, a tile is reserved
+     * once it has been moved to, grazed or predated on. A decision that's no longer possible becomes NONE.
+     * @param random the generator used when applying decisions and to shuffle the new agentList
+     */
+    private void cycleTwoPhase(RandomGenerator random) {
+        Agent[] agents = agentList.toArray(new Agent[0]);
+        boolean[] deciding = new boolean[agents.length];
+        for (int i = 0; i < agents.length; i++) {
+            Agent agent = agents[i];
+            if (agent.spaceTaken()) {
+                continue;
             }
-        });
+            agent.liveDay();
+            if (agent.isDead()) {
+                environment.setOccupant(agent.getLocation(), null);
+                continue;
+            }
+            deciding[i] = true;
+        }
+        long[] decisions = new long[agents.length];
+        long cycle = cycleCount;
+        getDecisionPool().submit(() -> IntStream.range(0, agents.length).parallel().forEach(i -> {
+            if (deciding[i]) {
+                decisions[i] = agentLogic.decide(agents[i], randomSource.getStream(RandomStream.DECISIONS, cycle, i));
+            }
+        })).join();
+        if (reservations.length != environment.getSize() * environment.getSize()) {
+            reservations = new int[environment.getSize() * environment.getSize()];
+        }
+        reservationStamp++;
+        for (int i = 0; i < agents.length; i++) {
+            Agent agent = agents[i];
+            if (!deciding[i] || agent.spaceTaken()) {
+                continue; // Agent died at the start of the cycle, or has been eaten by an agent resolved before it
+            }
+            agentLogic.applyDecision(agent, agentLogic.resolveDecision(agent, decisions[i], reservationStamp));
+            if (!agent.isDead()) {
+                diagnostics.addToAgentStats(
+                        agent.getAttributes().getID(),
+                        1, agent.getScores().getEnergy(),
+                        agent.getScores().getAge(),
+                        agent.getAttributes().getSize(),
+                        agent.getAttributes().getCreationSize(),
+                        agent.getAttributes().getRange()
+                );
+            }
+        }
+        agentList = aliveAgentList;
+        RandomSource.shuffle(agentList, random);
+        aliveAgentList = new ArrayList<>();
+    }
+
+    /**
+     * Runs every agent stripe by stripe, with alternate stripes run in parallel.
+     * <p>
+     * The grid is split into horizontal stripes STRIPE_HEIGHT tall, which is more than two ranges. An agent can only look at, and change, tiles
+     * within its range, so two agents in stripes which aren't neighbours can never touch the same tile. Every even stripe
+     * is run at the same time on the decision pool, then every odd stripe. Within a stripe agents are run one at a time
+     * exactly as in the SEQUENTIAL cycle mode, an agent which moves into a neighbouring stripe isn't run again until the
+     * next cycle.
+     * <p>
+     * Each stripe runs with its own AgentLogic, which keeps its survivors and diagnostics separate and draws from its own
+     * STRIPES stream, split by the cycle number and the stripe. The diagnostics are merged in stripe order, then every
+     * survivor is bucketed into the stripe it now stands in. Agents added to agentList, such as by populate(), are moved
+     * into the stripes at the start of the cycle.
+     * <p>
+     * Stripes are only far enough apart for agents with a range of at most MAX_RANGE. If any agent can see further, such
+     * as one with its own Attributes implementation, the cycle is run as a SEQUENTIAL cycle instead, and the agents are
+     * only sorted back into stripes once none can.
+     * @param random the generator used to shuffle the new stripes
+     */
+    private void cycleStriped(RandomGenerator random) {
+        boolean withinMaxRange = withinMaxRange(agentList);
+        if (stripeAgentLists != null) {
+            for (ArrayList<Agent> stripe : stripeAgentLists) {
+                withinMaxRange &= withinMaxRange(stripe);
+            }
+        }
+        if (!withinMaxRange) {
+            ArrayList<Agent> agents = flattenStripes();
+            agents.addAll(agentList);
+            agentList = agents;
+            cycleAgentList(random);
+            return;
+        }
+        int stripeCount = (environment.getSize() + STRIPE_HEIGHT - 1) / STRIPE_HEIGHT;
+        if (stripeAgentLists == null || stripeAgentLists.size() != stripeCount) {
+            stripeAgentLists = bucketStripes(flattenStripes(), stripeCount);
+        }
+        if (!agentList.isEmpty()) {
+            for (Agent agent : agentList) {
+                stripeAgentLists.get(agent.getLocation().getY() / STRIPE_HEIGHT).add(agent);
+            }
+            agentList = new ArrayList<>();
+        }
+        environment.reserveOccupantHandles();
+        long cycle = cycleCount;
+        ArrayList<ArrayList<Agent>> survivors = new ArrayList<>();
+        Diagnostics[] stripeDiagnostics = new Diagnostics[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            survivors.add(new ArrayList<>());
+            stripeDiagnostics[i] = new Diagnostics(0, 0);
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            int parity = pass;
+            getDecisionPool().submit(() -> IntStream.range(0, stripeCount).filter(i -> i % 2 == parity).parallel().forEach(i -> {
+                AgentLogic stripeLogic = new AgentLogic(stripeDiagnostics[i], randomSource.getStream(RandomStream.STRIPES, cycle, i), survivors.get(i));
+                for (Agent agent : stripeAgentLists.get(i)) {
+                    if (!agent.spaceTaken()) {
+                        stripeLogic.runAgent(agent);
+                        if (!agent.isDead()) {
+                            stripeDiagnostics[i].addToAgentStats(
+                                    agent.getAttributes().getID(),
+                                    1, agent.getScores().getEnergy(),
+                                    agent.getScores().getAge(),
+                                    agent.getAttributes().getSize(),
+                                    agent.getAttributes().getCreationSize(),
+                                    agent.getAttributes().getRange()
+                            );
+                        }
+                    }
+                }
+            })).join();
+        }
+        ArrayList<Agent> survivingAgents = new ArrayList<>();
+        for (int i = 0; i < stripeCount; i++) {
+            diagnostics.merge(stripeDiagnostics[i]);
+            survivingAgents.addAll(survivors.get(i));
+        }
+        stripeAgentLists = bucketStripes(survivingAgents, stripeCount);
+        for (ArrayList<Agent> stripe : stripeAgentLists) {
+            RandomSource.shuffle(stripe, random);
+        }
+    }
+
+    /**
+     * Returns true if no agent in the input list has a range greater than MAX_RANGE.
+     * @param agents the agents to check
+     */
+    private static boolean withinMaxRange(ArrayList<Agent> agents) {
+        for (Agent agent : agents) {
+            if (agent.getAttributes().getRange() > MAX_RANGE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the input agents into lists by the stripe they stand in, keeping their order within each stripe.
+     * @param agents the agents to sort
+     * @param stripeCount the number of stripes
+     */
+    private ArrayList<ArrayList<Agent>> bucketStripes(ArrayList<Agent> agents, int stripeCount) {
+        ArrayList<ArrayList<Agent>> stripes = new ArrayList<>();
+        for (int i = 0; i < stripeCount; i++) {
+            stripes.add(new ArrayList<>());
+        }
+        for (Agent agent : agents) {
+            stripes.get(agent.getLocation().getY() / STRIPE_HEIGHT).add(agent);
+        }
+        return stripes;
+    }
+
+    /**
+     * Returns every agent in the stripeAgentLists as one list, and stops using them.
+     */
+    private ArrayList<Agent> flattenStripes() {
+        ArrayList<Agent> agents = new ArrayList<>();
+        if (stripeAgentLists != null) {
+            for (ArrayList<Agent> stripe : stripeAgentLists) {
+                agents.addAll(stripe);
+            }
+            stripeAgentLists = null;
+        }
+        return agents;
+    }
+
+    private ForkJoinPool getDecisionPool() {
+        if (decisionPool == null) {
+            decisionPool = new ForkJoinPool(parallelism);
+        }
+        return decisionPool;
+    }
+
+    /**
+     * Runs every slot in the agentStores run order, then moves the store onto its next run order.
+     * @param random the generator used to shuffle the next run order
+     */
+    private void cycleStore(RandomGenerator random) {
+        for (int i = 0; i < agentStore.getRunOrderLength(); i++) {
+            int slot = agentStore.getRunOrderSlot(i);
+            agentLogic.runAgent(slot);
+            if (agentStore.isLive(slot) && !agentStore.isDead(slot)) {
+                Attributes attributes = agentStore.getAttributes(slot);
+                diagnostics.addToAgentStats(
+                        agentStore.getSpeciesID(slot),
+                        1, agentStore.getEnergy(slot),
+                        agentStore.getAge(slot),
+                        attributes.getSize(),
+                        attributes.getCreationSize(),
+                        attributes.getRange()
+                );
+            }
+        }
+        agentStore.endCycle(random);
     }
 
     /**
      * Removes all agents from the environment.
      * <p>
-     * Iterates over the environment and sets every tile occupant to null.
+     * Empties every tile occupant on the environment.
      */
     public void clearAgents() {
-        IntStream.range(0, environment.getSize() * environment.getSize()).sequential().forEach(i->{
-            EnvironmentTile current_wt = environment.getGrid()[i];
-            current_wt.setOccupant(null);
-        });
+        environment.clearOccupants();
         agentList = new ArrayList<>();
+        stripeAgentLists = null;
+        agentStore.clear();
     }
 
     /**
      * Replenishes the environment's energy.
      * <p>
-     * Iterates over the environment and sets every tile's energy level to its max.
+     * Sets every tile's energy level to its max.
      */
     public void replenishEnvironmentEnergy() {
-        IntStream.range(0, environment.getSize() * environment.getSize()).sequential().forEach(i->{
-            EnvironmentTile current_wt = environment.getGrid()[i];
-            current_wt.setEnergyLevel(environment.getMaxEnergyLevel());
-        });
+        environment.setAllEnergyLevels(environment.getMaxEnergyLevel());
         diagnostics.resetCurrentEnvironmentEnergy();
     }
 
@@ -183,6 +510,287 @@ public class Simulation {
 
     }
 
+    /**
+     * Writes everything needed to carry on the run from this step: the cycle count, the random streams, the environment,
+     * the diagnostics and every agent. The agent editor, cycle mode and settings not held by the environment aren't written.
+     * <p>
+     * Agents are written in the order they'll next be run. Attributes and motivations are written once each into tables,
+     * sets which are equal field for field sharing one entry, then each agents table indexes and scores are written as
+     * columns. Each agent also keeps whether it's been eaten and whether it still stands on its tile, as agents which have
+     * been eaten or died while acting stay in agentList until the next cycle.
+     * <p>
+     * Can only be called between cycles.
+     * @param out the stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(cycleCount);
+        out.writeBoolean(useAgentStore);
+        randomSource.writeState(out);
+        environment.writeState(out);
+        diagnostics.writeState(out);
+        Agent[] agents;
+        if (useAgentStore) {
+            agents = new Agent[agentStore.getRunOrderLength()];
+            for (int i = 0; i < agents.length; i++) {
+                agents[i] = agentStore.getHandle(agentStore.getRunOrderSlot(i));
+            }
+        }
+        else {
+            ArrayList<Agent> agentsInOrder = new ArrayList<>();
+            if (stripeAgentLists != null) {
+                for (ArrayList<Agent> stripe : stripeAgentLists) {
+                    agentsInOrder.addAll(stripe);
+                }
+            }
+            agentsInOrder.addAll(agentList);
+            agents = agentsInOrder.toArray(new Agent[0]);
+        }
+        int count = agents.length;
+        int[] attributesIndexes = new int[count];
+        int[] motivationsIndexes = new int[count];
+        int[] locations = new int[count];
+        int[] energy = new int[count];
+        int[] age = new int[count];
+        int[] creationCounter = new int[count];
+        int[] maxEnergy = new int[count];
+        int[] maxAge = new int[count];
+        byte[] flags = new byte[count];
+        StateTable attributesTable = new StateTable(count);
+        StateTable motivationsTable = new StateTable(count);
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents[i];
+            Attributes attributes = agent.getAttributes();
+            MotivationSet motivations = agent.getMotivations();
+            attributesIndexes[i] = attributesTable.indexOf(attributes, tableOut -> AgentCodec.writeAttributes(tableOut, attributes));
+            motivationsIndexes[i] = motivationsTable.indexOf(motivations, tableOut -> AgentCodec.writeMotivations(tableOut, motivations));
+            Location location = agent.getLocation();
+            locations[i] = environment.getIndex(location.getX(), location.getY());
+            Scores scores = agent.getScores();
+            energy[i] = scores.getEnergy();
+            age[i] = scores.getAge();
+            creationCounter[i] = scores.getCreationCounter();
+            maxEnergy[i] = scores.getMaxEnergy();
+            maxAge[i] = scores.getMaxAge();
+            flags[i] = (byte) ((agent.spaceTaken() ? EATEN_FLAG : 0) | (environment.getOccupant(locations[i]) == agent ? PLACED_FLAG : 0));
+        }
+        attributesTable.write(out);
+        motivationsTable.write(out);
+        StateCodec.writeInts(out, attributesIndexes, count);
+        StateCodec.writeInts(out, motivationsIndexes, count);
+        StateCodec.writeInts(out, locations, count);
+        StateCodec.writeInts(out, energy, count);
+        StateCodec.writeInts(out, age, count);
+        StateCodec.writeInts(out, creationCounter, count);
+        StateCodec.writeInts(out, maxEnergy, count);
+        StateCodec.writeInts(out, maxAge, count);
+        StateCodec.writeBytes(out, flags);
+    }
+
+    /**
+     * Reads state written by writeState(), replacing the environment, diagnostics and every agent. Agents are restored
+     * into the agentStore if it was in use when the state was written, otherwise into agentList.
+     * <p>
+     * Running on from restored state gives the same run as carrying on from when it was written, as long as the cycle
+     * mode is the same.
+     * <p>
+     * The whole state is read into temporary objects and checked before any of it is applied, so if reading fails the
+     * simulation is left as it was.
+     * @param in the stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        long cycleCount = in.readLong();
+        boolean useAgentStore = in.readBoolean();
+        RandomSource readRandomSource = new RandomSource(0);
+        readRandomSource.readState(in);
+        Environment readEnvironment = new Environment(1, 0, 0, 0, 0, 0);
+        readEnvironment.readState(in);
+        Diagnostics readDiagnostics = new Diagnostics(0, 0);
+        readDiagnostics.readState(in);
+        Attributes[] attributesTable = new Attributes[readTableSize(in)];
+        int speciesCount = agentEditor.getActiveAgents().size();
+        for (int i = 0; i < attributesTable.length; i++) {
+            attributesTable[i] = AgentCodec.readAttributes(in);
+            if (attributesTable[i].getID() < 0 || attributesTable[i].getID() >= speciesCount) {
+                throw new IOException("Corrupt state, unknown species " + attributesTable[i].getID());
+            }
+        }
+        ArrayList<MotivationSet> motivationsTable = new ArrayList<>();
+        for (int i = readTableSize(in); i > 0; i--) {
+            motivationsTable.add(MotivationSet.of(AgentCodec.readMotivations(in)));
+        }
+        int[] attributesIndexes = StateCodec.readInts(in);
+        int[] motivationsIndexes = StateCodec.readInts(in);
+        int[] locations = StateCodec.readInts(in);
+        int[] energy = StateCodec.readInts(in);
+        int[] age = StateCodec.readInts(in);
+        int[] creationCounter = StateCodec.readInts(in);
+        int[] maxEnergy = StateCodec.readInts(in);
+        int[] maxAge = StateCodec.readInts(in);
+        byte[] flags = StateCodec.readBytes(in);
+        int count = attributesIndexes.length;
+        int tileCount = readEnvironment.getSize() * readEnvironment.getSize();
+        for (int[] column : new int[][]{motivationsIndexes, locations, energy, age, creationCounter, maxEnergy, maxAge}) {
+            if (column.length != count) {
+                throw new IOException("Corrupt state, expected " + count + " agents");
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (attributesIndexes[i] < 0 || attributesIndexes[i] >= attributesTable.length
+                    || motivationsIndexes[i] < 0 || motivationsIndexes[i] >= motivationsTable.size()
+                    || locations[i] < 0 || locations[i] >= tileCount) {
+                throw new IOException("Corrupt state, agent " + i + " is out of range");
+            }
+        }
+        if (flags.length != count) {
+            throw new IOException("Corrupt state, expected " + count + " agents");
+        }
+        // Everything has been read and checked, nothing below can fail
+        randomSource.restoreState(readRandomSource);
+        environment.restoreState(readEnvironment);
+        diagnostics.restoreState(readDiagnostics);
+        this.cycleCount = cycleCount;
+        this.useAgentStore = useAgentStore;
+        agentList = new ArrayList<>();
+        aliveAgentList = new ArrayList<>();
+        stripeAgentLists = null;
+        agentStore.clear();
+        int size = environment.getSize();
+        for (int i = 0; i < count; i++) {
+            int x = locations[i] % size;
+            int y = locations[i] / size;
+            Attributes attributes = attributesTable[attributesIndexes[i]];
+            Agent agent;
+            if (useAgentStore) {
+                int slot = agentStore.allocate(attributes, energy[i], x, y);
+                agentStore.setMaxEnergy(slot, maxEnergy[i]);
+                agentStore.setMaxAge(slot, maxAge[i]);
+                agentStore.setEnergy(slot, energy[i]);
+                agentStore.setAge(slot, age[i]);
+                agentStore.setCreationCounter(slot, creationCounter[i]);
+                agentStore.setMotivations(slot, motivationsTable.get(motivationsIndexes[i]));
+                agentStore.keepAlive(slot);
+                agent = agentStore.getHandle(slot);
+            }
+            else {
+                Scores scores = new BasicScores(energy[i], maxEnergy[i], maxAge[i]);
+                scores.setAge(age[i]);
+                scores.setCreationCounter(creationCounter[i]);
+                agent = new BasicAgent(new Location(x, y), attributes, scores, motivationsTable.get(motivationsIndexes[i]));
+                agentList.add(agent);
+            }
+            if ((flags[i] & EATEN_FLAG) != 0) {
+                agent.setSpaceTaken();
+            }
+            if ((flags[i] & PLACED_FLAG) != 0) {
+                environment.setOccupant(locations[i], agent);
+            }
+        }
+        if (useAgentStore) {
+            agentStore.restoreRunOrder();
+        }
+    }
+
+    /**
+     * Reads the number of entries in a table written by writeState().
+     * @param in the stream to read from
+     */
+    private static int readTableSize(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Corrupt state, negative table size " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Writes each object as one entry of a table, used by writeState() so objects shared by many agents are written once.
+     * <p>
+     * Objects are looked up by identity first. A new object is encoded, and if its bytes match an earlier entry it's given
+     * that entry, so objects which are equal but not shared are still only written once.
+     */
+    private static class StateTable {
+
+        /**
+         * Writes an object into a stream.
+         */
+        private interface Encoder {
+            void encode(DataOutput out) throws IOException;
+        }
+
+        /**
+         * A ByteArrayOutputStream whose contents can be viewed without copying them. Writes aren't synchronized, as
+         * DataOutputStream writes most values a byte at a time.
+         */
+        private static class ScratchBuffer extends ByteArrayOutputStream {
+            @Override
+            public void write(int b) {
+                if (count == buf.length) {
+                    buf = Arrays.copyOf(buf, count * 2);
+                }
+                buf[count++] = (byte) b;
+            }
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (count + len > buf.length) {
+                    buf = Arrays.copyOf(buf, Math.max(count + len, count * 2));
+                }
+                System.arraycopy(b, off, buf, count, len);
+                count += len;
+            }
+            private ByteBuffer view() {
+                return ByteBuffer.wrap(buf, 0, count);
+            }
+        }
+
+        // The index of every object seen
+        private final IdentityHashMap<Object, Integer> indexesByObject;
+        // The index of each entries encoded bytes
+        private final HashMap<ByteBuffer, Integer> indexesByBytes = new HashMap<>();
+        // The encoded entries, in order
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        // Each new object is encoded into this, then only copied if it's a new entry
+        private final ScratchBuffer scratch = new ScratchBuffer();
+        private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+
+        /**
+         * @param expectedObjects how many objects are expected to be looked up, so the table doesn't need to grow
+         */
+        private StateTable(int expectedObjects) {
+            this.indexesByObject = new IdentityHashMap<>(expectedObjects);
+        }
+
+        /**
+         * Returns the index of the input objects entry, adding it to the table if it isn't in it.
+         * @param object the object
+         * @param encoder writes the object, only called if it hasn't been seen
+         */
+        private int indexOf(Object object, Encoder encoder) throws IOException {
+            Integer index = indexesByObject.get(object);
+            if (index != null) {
+                return index;
+            }
+            scratch.reset();
+            encoder.encode(scratchOut);
+            index = indexesByBytes.get(scratch.view());
+            if (index == null) {
+                index = indexesByBytes.size();
+                indexesByBytes.put(ByteBuffer.wrap(scratch.toByteArray()), index);
+                scratch.writeTo(entries);
+            }
+            indexesByObject.put(object, index);
+            return index;
+        }
+
+        /**
+         * Writes the number of entries, then every entry.
+         * @param out the stream to write to
+         */
+        private void write(DataOutput out) throws IOException {
+            out.writeInt(indexesByBytes.size());
+            out.write(entries.toByteArray());
+        }
+    }
+
     /**
      * Groups the logical methods used for running agents.
      * <p>
@@ -195,6 +803,42 @@ public class Simulation {
      */
     private class AgentLogic {
 
+        // Reused by runAgent(int slot) to collect the slots of newly created children
+        private final int[] childSlots = new int[9];
+        // The neighbour offsets of every range up to MAX_RANGE
+        private static final int[][] NEIGHBOUR_OFFSETS = new int[MAX_RANGE + 1][];
+        static {
+            for (int range = 0; range <= MAX_RANGE; range++) {
+                NEIGHBOUR_OFFSETS[range] = calculateNeighbourOffsets(range);
+            }
+        }
+        // The window of tile scores each thread fills in for decideGrazing(), big enough for MAX_RANGE
+        private static final ThreadLocal<int[]> grazingWindows = ThreadLocal.withInitial(() -> new int[(2 * MAX_RANGE + 1) * (2 * MAX_RANGE + 1)]);
+        // The view each thread fills in for every tile decide() looks at
+        private static final ThreadLocal<AgentVision> tileViews = ThreadLocal.withInitial(AgentVision::new);
+        // The decision to do nothing, packed by DecisionKernel.packDecision(). It has no tile
+        private static final long NO_DECISION = DecisionKernel.packDecision(AgentAction.NONE, -1);
+        // Where this instance records births, environment energy changes and log messages
+        private final Diagnostics diagnostics;
+        // The generator used for decisions made by runAgent(), and for creating children
+        private RandomGenerator random;
+        // Where agents that survive the day are kept, if null they're added to the simulations aliveAgentList
+        private final ArrayList<Agent> survivors;
+
+        private AgentLogic(Diagnostics diagnostics, RandomGenerator random, ArrayList<Agent> survivors) {
+            this.diagnostics = diagnostics;
+            this.random = random;
+            this.survivors = survivors;
+        }
+
+        /**
+         * Sets the generator used by runAgent() and applyDecision(), the Simulation class gives it a new stream every cycle.
+         * @param random the new generator
+         */
+        private void setRandom(RandomGenerator random) {
+            this.random = random;
+        }
+
         /**
          * Runs the input agent for one day.
          * <p>
@@ -203,8 +847,8 @@ public class Simulation {
          * so at this point the method ends. If an agent survives the day, it will be added to the aliveAgentList so by simply
          * ending the method we've now removed this agent from the simulation. If the method continues, it then calls the agents
          * liveDay() method, this increments its age and decrements its creationCounter. If the agent is still alive after this,
-         * a collection of AgentVision objects is produced by the lookaround() method. This is then transformed into a single AgentDecision
-         * method. The method then handles the agents decision.
+         * the decide() method looks at every tile in the agents range and produces a single decision. The method then
+         * handles the agents decision.
          * @param agent the agent to be run
          */
         public void runAgent(Agent agent) {
@@ -216,161 +860,415 @@ public class Simulation {
                 environment.setOccupant(agent.getLocation(), null); // If the agent is now dead, remove it from the board and don't add it to aliveAgentList
                 return;
             }
-            ArrayList<AgentVision> agentView = lookAround(agent);
-            AgentDecision agentDecision = reactToView(agent, agentView);
-            if (agentDecision.agentAction().equals(AgentAction.NONE)) { // Do nothing
-                aliveAgentList.add(agent); // Agent is still alive
+            applyDecision(agent, decide(agent, random));
+        }
+
+        /**
+         * Returns the agents decision for this cycle, made by looking around it and reacting to what it sees.
+         * <p>
+         * The decision is packed by DecisionKernel.packDecision(), as the chosen action and the index of its tile, so
+         * making it allocates nothing. Visits every tile within the agents range which isn't outside the grid, its own tile
+         * or terrain. Each tile is filled into the threads AgentVision, and the agents DecisionKernel runs every motivation
+         * on it, giving the tile
+         * its highest scoring action. The decision is the tile with the highest best action. Only a score above 0 is ever
+         * chosen, if nothing scores above 0 the agent does nothing.
+         * <p>
+         * Ties are broken uniformly at random, first between motivations on the same tile, then between tiles. Each time
+         * the running best is matched by the n-th equal candidate, that candidate replaces it with probability 1/n. This
+         * picks with the same odds as shuffling every candidate and taking the first best, without building any lists.
+         * <p>
+         * Agents whose only motivation is grazing are passed to decideGrazing(), which makes the same decision.
+         * <p>
+         * Only reads the environment, so agents can decide concurrently as long as nothing is written while they do.
+         * @param agent the agent deciding
+         * @param random the generator used to break ties between equally scored decisions
+         */
+        public long decide(Agent agent, RandomGenerator random) {
+            Location agentLocation = agent.getLocation();
+            return decide(agent, agentLocation.getX(), agentLocation.getY(), random);
+        }
+
+        /**
+         * Returns the agents decision, as decide(Agent agent, RandomGenerator random) does, for an agent whose coordinates
+         * are already known. Agents in the agentStore would build a new Location to give them.
+         * @param agent the agent deciding
+         * @param agentX the agents x coordinate
+         * @param agentY the agents y coordinate
+         * @param random the generator used to break ties between equally scored decisions
+         */
+        private long decide(Agent agent, int agentX, int agentY, RandomGenerator random) {
+            Attributes attributes = agent.getAttributes();
+            Scores scores = agent.getScores();
+            DecisionKernel kernel = agent.getMotivations().getKernel();
+            if (batchedGrazing && kernel.isGrazerOnly() && attributes.getRange() <= MAX_RANGE) {
+                return decideGrazing(agentX, agentY, attributes, kernel, random);
+            }
+            int[] offsets = getNeighbourOffsets(attributes.getRange());
+            int size = environment.getSize();
+            AgentVision tile = tileViews.get();
+            AgentAction bestAction = AgentAction.NONE;
+            int bestScore = 0;
+            int bestTies = 0;
+            int bestX = 0;
+            int bestY = 0;
+            for (int i = 0; i < offsets.length; i += 2) {
+                int X = agentX + offsets[i];
+                int Y = agentY + offsets[i + 1];
+                // Checks the agent isn't looking outside the grid or at terrain.
+                if (X < 0 || Y < 0 || X >= size || Y >= size || environment.isTerrain(X, Y)) {
+                    continue;
+                }
+                environment.getTileView(X, Y, tile);
+                long tileResult = kernel.scoreTile(tile, attributes, scores, random);
+                int tileScore = DecisionKernel.unpackScore(tileResult);
+                if (tileScore <= 0) {
+                    continue; // Nothing on this tile scored above 0
+                }
+                if (tileScore > bestScore) {
+                    bestScore = tileScore;
+                    bestTies = 1;
+                }
+                else if (tileScore < bestScore || random.nextInt(++bestTies) != 0) {
+                    continue;
+                }
+                bestAction = DecisionKernel.unpackAction(tileResult);
+                bestX = X;
+                bestY = Y;
+            }
+            if (bestTies == 0) {
+                return NO_DECISION;
+            }
+            return DecisionKernel.packDecision(bestAction, environment.getIndex(bestX, bestY));
+        }
+
+        /**
+         * Returns the decision of an agent whose only motivation is a GrazerMotivation, the same decision decide() makes.
+         * <p>
+         * Rather than filling in an AgentVision for each tile and running the kernel on it, the environment scores each
+         * row of the agents vision window, clipped to the grid, straight from its primitive layers into a window of scores.
+         * The window is then visited column by column, the same order decide() visits tiles in, with the same tie breaking,
+         * so both draw the same numbers from the generator. A lone motivation never ties with itself, so the tiles action
+         * only needs working out for the chosen tile. Rows are scored with the Vector API when vectorGrazing is set,
+         * otherwise with scalar loops, both give the same scores.
+         * @param agentX the agents x coordinate
+         * @param agentY the agents y coordinate
+         * @param attributes the agents attributes
+         * @param kernel the agents kernel, which must be grazer only
+         * @param random the generator used to break ties between equally scored tiles
+         */
+        private long decideGrazing(int agentX, int agentY, Attributes attributes, DecisionKernel kernel, RandomGenerator random) {
+            int range = Math.max(attributes.getRange(), 0);
+            int size = environment.getSize();
+            int minX = Math.max(agentX - range, 0);
+            int maxX = Math.min(agentX + range, size - 1);
+            int minY = Math.max(agentY - range, 0);
+            int maxY = Math.min(agentY + range, size - 1);
+            int width = maxX - minX + 1;
+            int[] window = grazingWindows.get();
+            for (int Y = minY; Y <= maxY; Y++) {
+                if (vectorGrazing) {
+                    environment.scoreGrazingRowVector(minX, Y, width, attributes.getSize(), kernel.getBias(0), kernel.getWeight(0),
+                            attributes.getEatAmount(), window, (Y - minY) * width);
+                }
+                else {
+                    environment.scoreGrazingRow(minX, Y, width, attributes.getSize(), kernel.getBias(0), kernel.getWeight(0),
+                            attributes.getEatAmount(), window, (Y - minY) * width);
+                }
+            }
+            window[(agentY - minY) * width + agentX - minX] = 0; // The agent doesn't look at its own tile
+            int bestScore = 0;
+            int bestTies = 0;
+            int bestX = 0;
+            int bestY = 0;
+            for (int X = minX; X <= maxX; X++) {
+                for (int Y = minY, i = X - minX; Y <= maxY; Y++, i += width) {
+                    int tileScore = window[i];
+                    if (tileScore <= 0) {
+                        continue; // Terrain, a larger occupant, or a graze worth nothing
+                    }
+                    if (tileScore > bestScore) {
+                        bestScore = tileScore;
+                        bestTies = 1;
+                    }
+                    else if (tileScore < bestScore || random.nextInt(++bestTies) != 0) {
+                        continue;
+                    }
+                    bestX = X;
+                    bestY = Y;
+                }
+            }
+            if (bestTies == 0) {
+                return NO_DECISION;
+            }
+            AgentAction bestAction = environment.getEnergyLevel(bestX, bestY) > 0 ? AgentAction.GRAZE : AgentAction.MOVE;
+            return DecisionKernel.packDecision(bestAction, environment.getIndex(bestX, bestY));
+        }
+
+        /**
+         * Carries out the agents decision.
+         * <p>
+         * This method modifies the following Simulation parameters: environment, aliveAgentList, and diagnostics.
+         * @param agent the agent acting
+         * @param decision the decision to carry out, packed by DecisionKernel.packDecision()
+         */
+        public void applyDecision(Agent agent, long decision) {
+            AgentAction action = DecisionKernel.unpackAction(decision);
+            if (action == AgentAction.NONE) { // Do nothing
+                keepAlive(agent); // Agent is still alive
                 return;
             }
-            else if (agentDecision.agentAction().equals(AgentAction.MOVE)) { //Just Move
+            int tile = DecisionKernel.unpackTile(decision);
+            // The agent keeps the location it moves to, so it needs an object of its own
+            Location location = new Location(tile % environment.getSize(), tile / environment.getSize());
+            if (action == AgentAction.MOVE) { //Just Move
                 environment.setOccupant(agent.getLocation(), null); // Remove agent from old location
-                agent.move(agentDecision.location()); // Move to the new location
+                agent.move(location); // Move to the new location
                 environment.setOccupant(agent); // Set the agent to the new location
-                aliveAgentList.add(agent); // Agent is still alive
+                keepAlive(agent); // Agent is still alive
             }
-            else if (agentDecision.agentAction().equals(AgentAction.CREATE)) { // Create children
+            else if (action == AgentAction.CREATE) { // Create children
                 ArrayList<Agent> childAgents;
-                childAgents = placeAgents(agent.create(agentDecision.location(), environment));
-                aliveAgentList.addAll(childAgents); // Add new agents to the alive agents list
-                aliveAgentList.add(agent); // Agent is still alive
+                childAgents = placeAgents(agent.create(location, environment, random));
+                for (Agent child : childAgents) {
+                    keepAlive(child); // Add new agents to the alive agents list
+                }
+                keepAlive(agent); // Agent is still alive
             }
-            else if (agentDecision.agentAction().equals(AgentAction.GRAZE)) { // Take energy from the environment
+            else if (action == AgentAction.GRAZE) { // Take energy from the environment
                 environment.setOccupant(agent.getLocation(), null); // Remove agent from old location
-                agent.move(agentDecision.location()); // Move to chosen location
+                agent.move(location); // Move to chosen location
                 clearSpace(agent);
                 environment.setOccupant(agent); // Set the agent to the new location
-                int grazeAmount = -agent.graze(environment.getTile(agent.getLocation())); // Take energy, grazeAmount equals how much was successfully taken
+                int grazeAmount = -agent.graze(environment.getEnergyLevel(agent.getLocation().getX(), agent.getLocation().getY())); // Take energy, grazeAmount equals how much was successfully taken
                 environment.modifyTileEnergyLevel(agent.getLocation(), grazeAmount); // Update environment with grazeAmount
-                aliveAgentList.add(agent); // Agent is still alive
+                keepAlive(agent); // Agent is still alive
                 diagnostics.modifyCurrentEnvironmentEnergy(grazeAmount); // Track the energy change in the diagnostics class
             }
-            else if (agentDecision.agentAction().equals(AgentAction.PREDATE)) { // Take energy from another agent and take its place
-                environment.getTile(agentDecision.location()).getOccupant().setSpaceTaken(); // We set the preys hasBeenEaten flag to true
-                agent.predate(environment.getTile(agentDecision.location()).getOccupant().getScores()); // Predator gains energy from the prey
+            else if (action == AgentAction.PREDATE) { // Take energy from another agent and take its place
+                Agent prey = environment.getOccupant(tile);
+                prey.setSpaceTaken(); // We set the preys hasBeenEaten flag to true
+                agent.predate(prey.getScores()); // Predator gains energy from the prey
                 environment.setOccupant(agent.getLocation(), null); // Move to chosen location
-                agent.move(agentDecision.location()); // Predator now occupies preys location
+                agent.move(location); // Predator now occupies preys location
                 environment.setOccupant(agent); // Overwrite the occupant to the predator
-                aliveAgentList.add(agent); // Agent is still alive
+                keepAlive(agent); // Agent is still alive
             }
             if (agent.isDead()) { // Agent may have exhausted its energy so check again here
                 environment.setOccupant(agent.getLocation(), null); // If the agent is now dead, remove it from the board and don't add it to aliveAgentList
             }
         }
 
-        /** Checks if the agents location is occupied, if so it sets the occupants spaceTaken to true.
-         * @param agent The agent moving to a new space.
+        /**
+         * Runs the agent in the input agentStore slot for one day.
+         * <p>
+         * Follows the same steps as runAgent(Agent agent), but reads and writes the agents state through the agentStore.
+         * Slots are released back to the store as soon as their agent is eaten or dies at the start of its turn. An agent
+         * which dies while acting is taken off the environment but kept until its next turn, as runAgent(Agent agent) keeps
+         * it in aliveAgentList, so both engines shuffle the same run order and write the same state.
+         * @param slot the slot of the agent to be run
          */
-        private void clearSpace(Agent agent) {
-            if (environment.getTile(agent.getLocation()).isOccupied()) {
-                environment.getTile(agent.getLocation()).getOccupant().setSpaceTaken();
+        public void runAgent(int slot) {
+            if (agentStore.isSpaceTaken(slot)) {
+                agentStore.release(slot); // Agent has been eaten, its tile already belongs to another agent
+                return;
+            }
+            agentStore.liveDay(slot);
+            int x = agentStore.getX(slot);
+            int y = agentStore.getY(slot);
+            if (agentStore.isDead(slot)) {
+                environment.setOccupant(environment.getIndex(x, y), null);
+                agentStore.release(slot);
+                return;
+            }
+            Agent agent = agentStore.getHandle(slot);
+            long decision = decide(agent, x, y, random);
+            AgentAction action = DecisionKernel.unpackAction(decision);
+            int tile = DecisionKernel.unpackTile(decision);
+            int newX = tile % environment.getSize();
+            int newY = tile / environment.getSize();
+            if (action == AgentAction.MOVE) {
+                environment.setOccupant(environment.getIndex(x, y), null);
+                agentStore.move(slot, newX, newY);
+                environment.setOccupant(environment.getIndex(newX, newY), agent);
+            }
+            else if (action == AgentAction.CREATE) {
+                int children = agentStore.create(slot, environment.getOccupant(tile).getAttributes(), childSlots, random);
+                placeAgents(childSlots, children);
+            }
+            else if (action == AgentAction.GRAZE) {
+                environment.setOccupant(environment.getIndex(x, y), null);
+                agentStore.move(slot, newX, newY);
+                if (environment.isOccupied(tile)) {
+                    environment.getOccupant(tile).setSpaceTaken();
+                }
+                environment.setOccupant(tile, agent);
+                int grazeAmount = -agentStore.graze(slot, environment.getEnergyLevel(tile));
+                environment.modifyTileEnergyLevel(tile, grazeAmount);
+                diagnostics.modifyCurrentEnvironmentEnergy(grazeAmount);
+            }
+            else if (action == AgentAction.PREDATE) {
+                Agent prey = environment.getOccupant(tile);
+                prey.setSpaceTaken();
+                agentStore.setEnergy(slot, agentStore.getEnergy(slot) + prey.getScores().getEnergy());
+                environment.setOccupant(environment.getIndex(x, y), null);
+                agentStore.move(slot, newX, newY);
+                environment.setOccupant(tile, agent);
             }
+            if (agentStore.isDead(slot)) {
+                environment.setOccupant(agentStore.getLocationIndex(slot), null); // Off the board, but kept until its next turn like a BasicAgent
+            }
+            agentStore.keepAlive(slot);
         }
 
         /**
-         * Places agents on the environment.
+         * Places the agents in the input agentStore slots on the environment and keeps them for the next cycle.
          * <p>
-         * Additionally, checks if the child agents new location is
-         * occupied, if so it sets that agents spaceTaken flag to true.
-         * @param childAgents the collection of new agents
+         * Works the same as placeAgents(ArrayList<Agent> childAgents).
+         * @param slots the array holding the new slots
+         * @param count how many slots in the array are new
          */
-        private ArrayList<Agent> placeAgents(ArrayList<Agent> childAgents) {
-            for (Agent child : childAgents) {
-                diagnostics.addToAgentsBornLastStep(child.getAttributes().getID(), 1); // log that a new agents been born
+        private void placeAgents(int[] slots, int count) {
+            for (int i = 0; i < count; i++) {
+                Agent child = agentStore.getHandle(slots[i]);
+                diagnostics.addToAgentsBornLastStep(agentStore.getSpeciesID(slots[i]), 1);
                 if (diagnosticsVerbosity >= 1) {
                     diagnostics.addToLogQueue("[AGENT]: " + child.getAttributes().getName() + " born.");
                 }
-                agentLogic.clearSpace(child);
-                environment.setOccupant(child);
+                int tile = agentStore.getLocationIndex(slots[i]);
+                if (environment.isOccupied(tile)) {
+                    environment.getOccupant(tile).setSpaceTaken();
+                }
+                environment.setOccupant(tile, child);
+                agentStore.keepAlive(slots[i]);
             }
-            return childAgents;
         }
 
         /**
-         * Returns an AgentVision object of each tile within the agents range.
+         * Checks the agents decision is still possible and returns it, or returns a decision to do nothing if it isn't.
          * <p>
-         * Iterates in a square pattern centered on the agent. A range of 1 means only the 8 adjacent tiles
-         * will be looked at. A range of 2 means the surrounding 24 tiles are looked at and so on.
-         * @param agent the agent to look around
+         * Used by the TWO_PHASE cycle mode, where agents decide before any decisions are applied. MOVE needs its tile to
+         * still be empty, GRAZE needs it to be empty or occupied by a smaller agent, PREDATE needs the same kind of prey
+         * to still be there, and CREATE needs a mate of the same species. A tile can only be moved to, grazed or predated on
+         * by the first agent to reserve it in each cycle.
+         * @param agent the agent acting
+         * @param decision the decision made in the decision phase, packed by DecisionKernel.packDecision()
+         * @param reservationStamp the value reservations are marked with this cycle
          */
-        private ArrayList<AgentVision> lookAround(Agent agent) {
-            Location agentLocation = agent.getLocation();
-            int visionRange = agent.getAttributes().getRange();
-            ArrayList<AgentVision> agentViews = new ArrayList<>();
-            for (int i = -visionRange; i <= visionRange; i++) {
-                for (int j = -visionRange; j <= visionRange; j++) {
-                    int X = agentLocation.getX() + i;
-                    int Y = agentLocation.getY() + j;
-                    // Checks the agent isn't looking outside the grid, at its current tile or at terrain.
-                    if (((  X < environment.getSize())
-                            && (Y < environment.getSize()))
-                            && ((X >= 0) && (Y >= 0))
-                            && !(i == 0 && j == 0)
-                            && !environment.getTile(X, Y).isTerrain())
-                    {
-                        AgentVision av = environment.getTileView(new Location(X, Y));
-                        agentViews.add(av);
-                    }
-                }
+        private long resolveDecision(Agent agent, long decision, int reservationStamp) {
+            AgentAction action = DecisionKernel.unpackAction(decision);
+            if (action == AgentAction.NONE) {
+                return decision;
+            }
+            int targetIndex = DecisionKernel.unpackTile(decision);
+            Agent occupant = environment.getOccupant(targetIndex);
+            boolean possible;
+            if (action == AgentAction.CREATE) {
+                possible = occupant != null
+                        && !occupant.spaceTaken()
+                        && Objects.equals(occupant.getAttributes().getID(), agent.getAttributes().getID());
+            }
+            else if (reservations[targetIndex] == reservationStamp) {
+                possible = false;
+            }
+            else if (action == AgentAction.MOVE) {
+                possible = occupant == null;
+            }
+            else if (action == AgentAction.GRAZE) {
+                possible = occupant == null || occupant.getAttributes().getSize() < agent.getAttributes().getSize();
+            }
+            else {
+                possible = occupant != null
+                        && !occupant.spaceTaken()
+                        && occupant.getAttributes().getSize() < agent.getAttributes().getSize()
+                        && !Objects.equals(occupant.getAttributes().getID(), agent.getAttributes().getID());
             }
-            Collections.shuffle(agentViews);
-            return agentViews;
+            if (!possible) {
+                return NO_DECISION;
+            }
+            if (action != AgentAction.CREATE) {
+                reservations[targetIndex] = reservationStamp;
+            }
+            return decision;
         }
 
         /**
-         * Produces an AgentDecision from a collection of AgentVision objects and the agents motivations.
-         * <p>
-         * Iterates over each AgentVision object and produces a possible decision for each one. It then calls
-         * the getBestDecision() method to get the chosen AgentDecision.
-         * @param agent the agent to look around
-         * @param agentView the collection of AgentVision objects
+         * Keeps the agent for the next cycle, in this instances survivors or the simulations aliveAgentList.
+         * @param agent the agent that's still alive
+         */
+        private void keepAlive(Agent agent) {
+            if (survivors == null) {
+                aliveAgentList.add(agent);
+            }
+            else {
+                survivors.add(agent);
+            }
+        }
+
+        /** Checks if the agents location is occupied, if so it sets the occupants spaceTaken to true.
+         * @param agent The agent moving to a new space.
          */
-        private static AgentDecision reactToView(Agent agent, ArrayList<AgentVision> agentView) {
-            ArrayList<AgentDecision> possibleDecisions = new ArrayList<>();
-            for (AgentVision currentAV : agentView) {
-                possibleDecisions.add(reactToTile(agent, currentAV));
+        private void clearSpace(Agent agent) {
+            Agent occupant = environment.getOccupant(agent.getLocation());
+            if (occupant != null) {
+                occupant.setSpaceTaken();
             }
-            return getBestDecision(possibleDecisions);
         }
 
         /**
-         * Produces an AgentDecision from a single AgentVision object and the agents motivations.
+         * Places agents on the environment.
          * <p>
-         * Iterates over each of the agents motivations and produces a possible decision for each one. It then calls
-         * getBestDecision() to return the chosen decision.
-         * @param agent the agent to look around
-         * @param agentVision the AgentVision object to produce a decision for
+         * Additionally, checks if the child agents new location is
+         * occupied, if so it sets that agents spaceTaken flag to true.
+         * @param childAgents the collection of new agents
          */
-        private static AgentDecision reactToTile(Agent agent, AgentVision agentVision) {
-            ArrayList<AgentDecision> possibleDecisions = new ArrayList<>();
-            for (Motivation motivation : agent.getMotivations()) {
-                possibleDecisions.add(motivation.run(agentVision, agent.getAttributes(), agent.getScores()));
+        private ArrayList<Agent> placeAgents(ArrayList<Agent> childAgents) {
+            for (Agent child : childAgents) {
+                diagnostics.addToAgentsBornLastStep(child.getAttributes().getID(), 1); // log that a new agents been born
+                if (diagnosticsVerbosity >= 1) {
+                    diagnostics.addToLogQueue("[AGENT]: " + child.getAttributes().getName() + " born.");
+                }
+                clearSpace(child);
+                environment.setOccupant(child);
             }
-            return getBestDecision(possibleDecisions);
+            return childAgents;
         }
 
         /**
-         * Returns the AgentDecision with the highest score.
-         * <p>
-         * @param agentDecisions the agent to look around
+         * Returns the x and y offsets, one pair after the other, of every tile within the input range of an agent
+         * excluding its own tile. Offsets for ranges up to MAX_RANGE are only calculated once.
+         * @param range the agents range
          */
-        private static AgentDecision getBestDecision(ArrayList<AgentDecision> agentDecisions) {
-            AgentDecision finalDecision = new AgentDecision(null, AgentAction.NONE, 0);
-            Collections.shuffle(agentDecisions);
-            for (AgentDecision agentDecision : agentDecisions) {
-                if (agentDecision.decisionScore() > finalDecision.decisionScore()) {
-                    finalDecision = agentDecision;
+        private static int[] getNeighbourOffsets(int range) {
+            if (range <= MAX_RANGE) {
+                return NEIGHBOUR_OFFSETS[Math.max(range, 0)];
+            }
+            return calculateNeighbourOffsets(range);
+        }
+
+        private static int[] calculateNeighbourOffsets(int range) {
+            int[] offsets = new int[((2 * range + 1) * (2 * range + 1) - 1) * 2];
+            int n = 0;
+            for (int i = -range; i <= range; i++) {
+                for (int j = -range; j <= range; j++) {
+                    if (!(i == 0 && j == 0)) {
+                        offsets[n++] = i;
+                        offsets[n++] = j;
+                    }
                 }
             }
-            return finalDecision;
+            return offsets;
         }
 
         /**
          * Returns a copy of the agent from the agentEditor at the specified index
          * <p>
+         * The copies attributes are interned, so every agent copied from the same editor agent shares one set.
          * @param index the index of the agent to copy
          */
         public BasicAgent getAgentFromEditor(int index) {
-            return (BasicAgent) agentEditor.getAgent(index).copy();
+            BasicAgent agent = (BasicAgent) agentEditor.getAgent(index).copy();
+            agent.setAttributes(GenotypeCache.intern(agent.getAttributes()));
+            return agent;
         }
     }
 
@@ -379,7 +1277,7 @@ public class Simulation {
      * <p>
      * Whether a tile is terrain or not is defined by a boolean value. This class contains methods that sets environment tiles
      * terrain flags to true in varying patterns. At the lowest level a circle is generated with a specified size, then using the
-     * same algorithm and a Random object, a cluster of circles is generated. A cluster size and density is specified. Then a line
+     * same algorithm and a random generator, a cluster of circles is generated. A cluster size and density is specified. Then a line
      * of clusters is generated with a line size and  density specified. Finally, a number of lines generated at random positions
      * with random directions are generated. Here only a density is specified. By changing the values, fairly different forms of terrain
      * can be generated.
@@ -391,39 +1289,34 @@ public class Simulation {
 
         // The TerrainSettings object that stores the initial and current terrain settings
         private TerrainSettings terrainSettings;
-        private final Random random;
+        // The generator shapes are drawn with, each cave generator takes the next TERRAIN stream when it starts
+        private RandomGenerator random;
 
         public TerrainGenerator() {
             terrainSettings = new TerrainSettings(2, 5, 5000, 500, 400, 10000, 15,2, 2, 4, 1, true);
-            random = new Random();
+            random = randomSource.next(RandomStream.TERRAIN);
         }
 
-        public void paintTerrainMask(Boolean[] terrainMask) {
-            for (int i = 0; i < terrainMask.length; i++) {
-                environment.getGrid()[i].setTerrain(terrainMask[i]);
-            }
+        public void paintTerrainMask(BitSet terrain) {
+            environment.setAllTerrain(terrain);
         }
 
         /**
          * Sets all tiles in the environment to terrain.
          */
         public void fillTerrain() {
-            for (EnvironmentTile environmentTile:
-                    environment.getGrid()) {
-                environmentTile.setTerrain(true);
-            }
+            environment.setAllTerrain(true);
         }
 
         /**
          * Sets all tiles in the environment to not terrain.
          */
         public void clearTerrain() {
-            IntStream.range(0, environment.getSize() * environment.getSize()).sequential().forEach(i->{
-                environment.getGrid()[i].setTerrain(false);
-            });
+            environment.setAllTerrain(false);
         }
 
         public void generateCave() {
+            random = randomSource.next(RandomStream.TERRAIN);
             for (int j = 0; j < terrainSettings.getTerrainAmount(); j++) {
                 int dx = 0;
                 int dy = 0;
@@ -451,6 +1344,7 @@ public class Simulation {
         }
 
         public void generateVariableCave() {
+            random = randomSource.next(RandomStream.TERRAIN);
             for (int j = 0; j < terrainSettings.getTerrainAmount(); j++) {
                 int dx = 0;
                 int dy = 0;
@@ -540,6 +1434,7 @@ public class Simulation {
         }
 
         public void generateGraphCave() {
+            random = randomSource.next(RandomStream.TERRAIN);
             Location seedLocation = new Location(environment.getSize()/2, environment.getSize()/2);
             generateCircleRockCluster(terrainSettings.getRockSize(), terrainSettings.getCavernSize(), terrainSettings.getCaveDensity(), seedLocation);
             int bx = 1;
@@ -566,7 +1461,7 @@ public class Simulation {
         /**
          * Paints a circle pattern of terrain flags centered at the specified location.
          * <p>
-         * Iterates in a square pattern centered on the location specified. Works similarly to AgentLogic.lookAround(Agent agent).
+         * Iterates in a square pattern centered on the location specified. Works similarly to AgentLogic.decide().
          * If a tile satisfies the formula: (x-x1)^2 + (y-x1)^2 = r^2 then set its terrain flag to true, where (x, y) are the center
          * coordinates and (x1, y1) are the subject coordinates.
          * @param rockSize the circles radius
@@ -638,6 +1533,94 @@ public class Simulation {
             return random.nextInt(bound);
         }}
 
+    /**
+     * Chooses how agents are stored.
+     * <p>
+     * If true agents are kept as slots in the agentStore, otherwise they're kept as BasicAgent objects in agentList. Changing
+     * this removes every agent from the environment.
+     * @param useAgentStore true to use the agentStore
+     */
+    public void setUseAgentStore(boolean useAgentStore) {
+        if (this.useAgentStore != useAgentStore) {
+            clearAgents();
+            this.useAgentStore = useAgentStore;
+        }
+    }
+
+    public boolean isUsingAgentStore() {
+        return useAgentStore;
+    }
+
+    /**
+     * Chooses whether agents whose only motivation is grazing score their vision window a row at a time, or a tile at a
+     * time like every other agent. Both make the same decisions, so this only changes how fast they're made.
+     * @param batchedGrazing true to score grazers a row at a time
+     */
+    public void setBatchedGrazing(boolean batchedGrazing) {
+        this.batchedGrazing = batchedGrazing;
+    }
+
+    public boolean isBatchedGrazing() {
+        return batchedGrazing;
+    }
+
+    /**
+     * Chooses whether grazers scored a row at a time use the Vector API or scalar loops. The Vector API is used by default
+     * when the JVM was started with {@code --add-modules jdk.incubator.vector}, and can't be chosen when it wasn't. Both
+     * give the same scores, so this only changes how fast they're made.
+     * @param vectorGrazing true to score rows with the Vector API
+     */
+    public void setVectorGrazing(boolean vectorGrazing) {
+        this.vectorGrazing = vectorGrazing && Environment.VECTOR_GRAZING_AVAILABLE;
+    }
+
+    public boolean isVectorGrazing() {
+        return vectorGrazing;
+    }
+
+    /**
+     * Chooses how agents are run each cycle. The TWO_PHASE and STRIPED modes only apply to agents kept in agentList, agents
+     * kept in the agentStore are always run sequentially. Leaving the STRIPED mode moves the agents in each stripe back
+     * into agentList.
+     * @param cycleMode the new cycle mode
+     */
+    public void setCycleMode(CycleMode cycleMode) {
+        if (cycleMode != CycleMode.STRIPED) {
+            agentList.addAll(flattenStripes());
+        }
+        this.cycleMode = cycleMode;
+    }
+
+    public CycleMode getCycleMode() {
+        return cycleMode;
+    }
+
+    /**
+     * Sets how many threads decisions are made on in the TWO_PHASE cycle mode, and stripes are run on in the STRIPED cycle mode.
+     * The number of threads never changes the outcome of a run.
+     * @param parallelism the number of threads
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism != this.parallelism && decisionPool != null) {
+            decisionPool.shutdown();
+            decisionPool = null;
+        }
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * Sets the seed the simulations random numbers are drawn from, so runs can be repeated and compared.
+     * @param seed the new seed
+     */
+    public void setSeed(long seed) {
+        randomSource.setSeed(seed);
+        this.cycleCount = 0;
+    }
+
+    public long getSeed() {
+        return randomSource.getSeed();
+    }
+
     public void setDiagnosticsVerbosity(int diagnosticsVerbosity) {
         this.diagnosticsVerbosity = diagnosticsVerbosity;
     }
@@ -650,12 +1633,12 @@ public class Simulation {
                 name,
                 agentEditor.getActiveAgentsSettings(),
                 environment.getEnvironmentSettings(),
-                environment.getTerrainMask());
+                environment.getTerrain());
     }
     public void setSimulationSettings(SimulationSettings simulationSettings) {
         environment.setEnvironmentSettings(simulationSettings.getEnvironmentSettings());
         agentEditor.setActiveAgentsSettings(simulationSettings.getAgentSettings());
-        terrainGenerator.paintTerrainMask(simulationSettings.getTerrainMask());
+        terrainGenerator.paintTerrainMask(simulationSettings.getTerrain());
     }
     public Environment getEnvironment() {
         return environment;
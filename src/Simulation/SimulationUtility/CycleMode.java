@@ -0,0 +1,15 @@
+package Simulation.SimulationUtility;
+
+/** This enum contains the ways the Simulation class can run agents each cycle.
+ * SEQUENTIAL = agents are run one at a time, each seeing the changes made by those run before it
+ * TWO_PHASE = every agent decides in parallel against the state at the start of the cycle, then decisions are applied one at a time
+ * STRIPED = the grid is split into horizontal stripes, alternate stripes are run in parallel with agents run one at a time within each stripe
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public enum CycleMode {
+    SEQUENTIAL,
+    TWO_PHASE,
+    STRIPED
+}
@@ -0,0 +1,123 @@
+package Simulation.SimulationUtility;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/** Derives every random number used by a simulation from one seed.
+ * <p>
+ * Numbers are drawn from generators split off the seed by a RandomStream, a step and an index. The same seed, stream,
+ * step and index always give the same generator, so work can be split across any number of threads and still draw the
+ * same numbers, as long as each piece of work is given its own index. Streams which aren't tied to a cycle can use next(),
+ * which counts its own steps.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class RandomSource {
+
+    // The seed every generator is derived from
+    private long seed;
+    // How many times next() has been called for each stream since the seed was set
+    private final long[] streamSteps = new long[RandomStream.values().length];
+
+    public RandomSource(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Returns the generator for the input stream, step and index.
+     * @param stream the stream to draw from
+     * @param step the step of the stream, such as the current cycle
+     * @param index the piece of work within the step, such as an agent or a stripe
+     */
+    public SplittableRandom getStream(RandomStream stream, long step, long index) {
+        return new SplittableRandom(mix(mix(mix(seed, stream.ordinal()), step), index));
+    }
+
+    public SplittableRandom getStream(RandomStream stream, long step) {
+        return getStream(stream, step, 0);
+    }
+
+    /**
+     * Returns the generator for the next step of the input stream.
+     * @param stream the stream to draw from
+     */
+    public SplittableRandom next(RandomStream stream) {
+        return getStream(stream, streamSteps[stream.ordinal()]++);
+    }
+
+    /**
+     * Shuffles the input list with the input generator.
+     * <p>
+     * Works the same as Collections.shuffle(), which only accepts a java.util.Random.
+     * @param list the list to shuffle
+     * @param random the generator to shuffle with
+     */
+    public static <T> void shuffle(List<T> list, RandomGenerator random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    /**
+     * Mixes a value into a seed, so that seeds derived from consecutive values are unrelated.
+     * <p>
+     * Uses the 64-bit finalizer from MurmurHash3.
+     * @param seed the seed to derive from
+     * @param value the value to mix in
+     */
+    public static long mix(long seed, long value) {
+        long z = seed + value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Writes the seed and how far each stream has been drawn from, so readState() can carry on from the same point.
+     * @param out the stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        StateCodec.writeLongs(out, streamSteps);
+    }
+
+    /**
+     * Reads state written by writeState(). Streams added since the state was written restart from 0.
+     * @param in the stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        seed = in.readLong();
+        long[] steps = StateCodec.readLongs(in);
+        Arrays.fill(streamSteps, 0);
+        System.arraycopy(steps, 0, streamSteps, 0, Math.min(steps.length, streamSteps.length));
+    }
+
+    /**
+     * Sets the seed and every streams step to those of the input source, such as one state was read into.
+     * @param source the source to copy
+     */
+    public void restoreState(RandomSource source) {
+        seed = source.seed;
+        System.arraycopy(source.streamSteps, 0, streamSteps, 0, streamSteps.length);
+    }
+
+    /**
+     * Sets the seed and restarts every stream.
+     * @param seed the new seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        Arrays.fill(streamSteps, 0);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
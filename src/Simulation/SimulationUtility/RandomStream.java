@@ -0,0 +1,21 @@
+package Simulation.SimulationUtility;
+
+/** This enum contains the independent streams of random numbers a RandomSource provides.
+ * POPULATION = used when the environment is populated with agents
+ * AGENTS = used by agents run one at a time, and to shuffle the order agents are run in
+ * DECISIONS = used by agents deciding in parallel in the TWO_PHASE cycle mode, one stream per agent
+ * STRIPES = used by the stripes run in parallel in the STRIPED cycle mode, one stream per stripe
+ * ENERGY_REGENERATION = used to choose which tiles regenerate energy
+ * TERRAIN = used by the terrain generator
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public enum RandomStream {
+    POPULATION,
+    AGENTS,
+    DECISIONS,
+    STRIPES,
+    ENERGY_REGENERATION,
+    TERRAIN
+}
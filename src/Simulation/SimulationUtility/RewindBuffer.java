@@ -0,0 +1,102 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Simulation;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/** Keeps recent SimulationSnapshots in a ring, so a run can be stepped back to an earlier step and resumed from there.
+ * <p>
+ * A snapshot is taken every stepInterval steps. The ring is bounded by a memory budget rather than a number of snapshots,
+ * once the snapshots held take up more than the budget the oldest are dropped, so how far back a run can be rewound
+ * depends on how well its state compresses. Rewinding restores the newest snapshot at or before the target step, and
+ * drops every snapshot after it, as they belong to the future the simulation has just left.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class RewindBuffer {
+
+    // The snapshots held, oldest first
+    private final ArrayDeque<SimulationSnapshot> snapshots = new ArrayDeque<>();
+    // The most bytes the snapshots held can take up
+    private final long byteBudget;
+    // A snapshot is taken every stepInterval steps
+    private final int stepInterval;
+    // How many bytes the snapshots held take up
+    private long bytesHeld;
+
+    /**
+     * @param byteBudget the most bytes the snapshots held can take up, the newest snapshot is always kept
+     * @param stepInterval a snapshot is taken every stepInterval steps, values below 1 are treated as 1
+     */
+    public RewindBuffer(long byteBudget, int stepInterval) {
+        this.byteBudget = byteBudget;
+        this.stepInterval = Math.max(stepInterval, 1);
+    }
+
+    /**
+     * Takes a snapshot of the input simulation if its current step is a multiple of the step interval, dropping the oldest
+     * snapshots if that takes the buffer over budget. Snapshots of this step or later are dropped first, as the step count
+     * only goes back when the run has been reset or rewound, so they belong to a run which has been left. Can only be
+     * called between cycles.
+     * @param simulation the simulation
+     */
+    public synchronized void offerStep(Simulation simulation) throws IOException {
+        long step = simulation.getDiagnostics().getStep();
+        if (step % stepInterval != 0) {
+            return;
+        }
+        while (!snapshots.isEmpty() && snapshots.peekLast().getStep() >= step) {
+            bytesHeld -= snapshots.removeLast().getByteSize();
+        }
+        SimulationSnapshot snapshot = SimulationSnapshot.take(simulation);
+        snapshots.addLast(snapshot);
+        bytesHeld += snapshot.getByteSize();
+        while (bytesHeld > byteBudget && snapshots.size() > 1) {
+            bytesHeld -= snapshots.removeFirst().getByteSize();
+        }
+    }
+
+    /**
+     * Restores the input simulation to the newest snapshot at or before the input step, and returns the step restored,
+     * or -1 if no snapshot is that old. Can only be called between cycles.
+     * @param simulation the simulation
+     * @param step the step to rewind to
+     */
+    public synchronized long rewind(Simulation simulation, long step) throws IOException {
+        Iterator<SimulationSnapshot> newestFirst = snapshots.descendingIterator();
+        while (newestFirst.hasNext()) {
+            SimulationSnapshot snapshot = newestFirst.next();
+            if (snapshot.getStep() <= step) {
+                snapshot.restore(simulation);
+                return snapshot.getStep();
+            }
+            newestFirst.remove();
+            bytesHeld -= snapshot.getByteSize();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the oldest step which can be rewound to, or -1 if no snapshots are held.
+     */
+    public synchronized long getOldestStep() {
+        return snapshots.isEmpty() ? -1 : snapshots.peekFirst().getStep();
+    }
+
+    /**
+     * Returns how many snapshots are held.
+     */
+    public synchronized int getSnapshotCount() {
+        return snapshots.size();
+    }
+
+    /**
+     * Returns how many bytes the snapshots held take up.
+     */
+    public synchronized long getBytesHeld() {
+        return bytesHeld;
+    }
+}
@@ -0,0 +1,160 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Simulation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/** Saves the full state of a running Simulation to a binary checkpoint file, and restores it, so long runs can carry on
+ * after the application is closed.
+ * <p>
+ * The file is a fixed length header followed by the state written by Simulation.writeState(), optionally Deflate
+ * compressed. The header holds the MAGIC and VERSION ints, flags, the step the checkpoint was taken after, the length of
+ * the payload and its CRC32. The header is written last, so a checkpoint cut short never looks complete, and the file is
+ * written beside the target then moved over it, so an existing checkpoint is only replaced by a complete one.
+ * <p>
+ * Restoring checks the payloads CRC32 before reading it, and Simulation.readState() reads and checks the whole state
+ * before any of it is applied, so a damaged file leaves the simulation as it was.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationCheckpoint {
+
+    // Identifies a checkpoint, the ASCII for "SIMC"
+    private static final int MAGIC = 0x53494D43;
+    // The version of the checkpoint format
+    private static final int VERSION = 1;
+    // Set in the flags if the payload is Deflate compressed
+    private static final int COMPRESSED_FLAG = 1;
+    // The length of the header, the magic, version, flags, step, payload length and CRC32
+    private static final int HEADER_LENGTH = 32;
+    // The size of the buffers the payload is written through
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes a checkpoint of the input simulation, replacing the file if it exists, and returns the checkpoints size in
+     * bytes. Can only be called between cycles.
+     * @param simulation the simulation
+     * @param file the file to write to
+     * @param compress true to Deflate compress the payload
+     */
+    public static long write(Simulation simulation, File file, boolean compress) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        CRC32 crc = new CRC32();
+        long payloadLength;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            channel.position(HEADER_LENGTH);
+            // The channel stream isn't closed here, as closing it would close the channel before the header is written
+            OutputStream payload = new CheckedOutputStream(Channels.newOutputStream(channel), crc);
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                DeflaterOutputStream deflaterStream = compress ? new DeflaterOutputStream(payload, deflater, BUFFER_SIZE) : null;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(compress ? deflaterStream : payload, BUFFER_SIZE));
+                simulation.writeState(out);
+                out.flush();
+                if (compress) {
+                    deflaterStream.finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+            payloadLength = channel.position() - HEADER_LENGTH;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(compress ? COMPRESSED_FLAG : 0)
+                    .putLong(simulation.getDiagnostics().getStep())
+                    .putLong(payloadLength)
+                    .putInt((int) crc.getValue())
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        try {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HEADER_LENGTH + payloadLength;
+    }
+
+    /**
+     * Restores the input simulation from a checkpoint, and returns the step it was taken after. Can only be called
+     * between cycles.
+     * @param simulation the simulation
+     * @param file the checkpoint
+     */
+    public static long read(Simulation simulation, File file) throws IOException {
+        byte[] payload;
+        int flags;
+        long step;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " was written with an unsupported version " + version);
+            }
+            flags = header.getInt();
+            step = header.getLong();
+            long payloadLength = header.getLong();
+            int expectedCrc = header.getInt();
+            if (payloadLength < 0 || payloadLength > Integer.MAX_VALUE - 8 || HEADER_LENGTH + payloadLength > channel.size()) {
+                throw new IOException(file + " is incomplete");
+            }
+            payload = new byte[(int) payloadLength];
+            readFully(channel, ByteBuffer.wrap(payload), HEADER_LENGTH);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException(file + " is damaged, its checksum doesn't match");
+            }
+        }
+        Inflater inflater = (flags & COMPRESSED_FLAG) != 0 ? new Inflater() : null;
+        try {
+            InputStream in = new ByteArrayInputStream(payload);
+            if (inflater != null) {
+                in = new InflaterInputStream(in, inflater, BUFFER_SIZE);
+            }
+            simulation.readState(new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE)));
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Fills the input buffer from the channel, starting at the input position.
+     * @param channel the channel to read from
+     * @param buffer the buffer to fill up to its limit
+     * @param position the position in the file to read from
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Checkpoint ended early");
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Agent.AgentUtility.ActiveAgentsSettings;
+import Simulation.Agent.AgentUtility.AgentCodec;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.Environment.EnvironmentSettings;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/** Saves and loads SimulationSettings as compact, versioned preset files, and converts settings saved with Java
+ * serialization to them.
+ * <p>
+ * A preset is the MAGIC and VERSION ints followed by the preset name, the environment settings and every agents settings
+ * as plain fields, then the terrain. The terrain is written whichever way is smaller, either as the run lengths of
+ * alternating open and terrain tiles, starting with an open run, each as a variable length int, or bit-packed into longs.
+ * Caves are mostly long runs, so even a 2000x2000 terrain is usually a few kilobytes and is read straight into a BitSet.
+ * <p>
+ * Reading also accepts settings saved with Java serialization, recognised by their stream header, so existing .dat
+ * files keep working until they're converted. Running the class converts the input files, or every .dat file in the
+ * input folders, in place.
+ * <p>
+ * Usage: {@code SimulationPreset <file or folder>...}
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationPreset {
+
+    // Identifies a preset, the ASCII for "SIMP"
+    private static final int MAGIC = 0x53494D50;
+    // The version of the preset format
+    private static final int VERSION = 1;
+    // The first two bytes of anything written by an ObjectOutputStream
+    private static final int SERIALIZED_MAGIC = 0xACED;
+    // How the terrain is written
+    private static final byte PACKED_TERRAIN = 0;
+    private static final byte RUN_LENGTH_TERRAIN = 1;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: SimulationPreset <file or folder>...");
+            return;
+        }
+        for (String arg : args) {
+            File input = new File(arg);
+            File[] files = input.isDirectory() ? input.listFiles((dir, name) -> name.endsWith(".dat")) : new File[]{input};
+            if (files == null) {
+                System.out.println("[SYSTEM]: " + input + " could not be read.");
+                continue;
+            }
+            for (File file : files) {
+                if (convert(file)) {
+                    System.out.println("[SYSTEM]: Converted " + file + " to a preset, " + file.length() + " bytes.");
+                }
+                else {
+                    System.out.println("[SYSTEM]: " + file + " is already a preset.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the input settings as a preset, replacing the file if it exists. The preset is written beside the file then
+     * moved over it, so an existing file is only replaced by a complete preset.
+     * @param simulationSettings the settings to write
+     * @param file the file to write to
+     */
+    public static void write(SimulationSettings simulationSettings, File file) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(simulationSettings.getPresetName() == null ? "" : simulationSettings.getPresetName());
+            writeEnvironmentSettings(out, simulationSettings.getEnvironmentSettings());
+            ActiveAgentsSettings agentSettings = simulationSettings.getAgentSettings();
+            out.writeInt(agentSettings.getSavedSettingsCount());
+            for (int i = 0; i < agentSettings.getSavedSettingsCount(); i++) {
+                AgentCodec.writeAttributes(out, agentSettings.getSavedSettings(i).getAttributes());
+                AgentCodec.writeMotivations(out, agentSettings.getSavedSettings(i).getMotivations());
+            }
+            int size = simulationSettings.getEnvironmentSettings().getSize();
+            writeTerrain(out, simulationSettings.getTerrain(), size * size);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the settings from a preset, or from settings saved with Java serialization.
+     * @param file the file to read
+     */
+    public static SimulationSettings read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.mark(Integer.BYTES);
+            int magic = in.readInt();
+            if (magic == MAGIC) {
+                return readPreset(in);
+            }
+            if (magic >>> 16 != SERIALIZED_MAGIC) {
+                throw new IOException(file + " is not a preset");
+            }
+            in.reset();
+            try (ObjectInputStream objectInputStream = new ObjectInputStream(in)) {
+                return (SimulationSettings) objectInputStream.readObject();
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(file + " does not hold simulation settings", e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the input file is a preset, rather than settings saved with Java serialization.
+     * @param file the file to check
+     */
+    public static boolean isPreset(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites settings saved with Java serialization as a preset, and returns true if the file was converted or false if
+     * it was already a preset.
+     * @param file the file to convert
+     */
+    public static boolean convert(File file) throws IOException {
+        if (isPreset(file)) {
+            return false;
+        }
+        write(read(file), file);
+        return true;
+    }
+
+    /**
+     * Reads the rest of a preset, after its MAGIC.
+     * @param in the stream to read from
+     */
+    private static SimulationSettings readPreset(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Preset was written with an unsupported version " + version);
+        }
+        String presetName = in.readUTF();
+        EnvironmentSettings environmentSettings = readEnvironmentSettings(in);
+        int agentCount = in.readInt();
+        if (agentCount < 0) {
+            throw new IOException("Corrupt preset, negative agent count " + agentCount);
+        }
+        ArrayList<AgentSettings> savedAgentSettings = new ArrayList<>(agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            savedAgentSettings.add(new AgentSettings(AgentCodec.readAttributes(in), AgentCodec.readMotivations(in)));
+        }
+        int size = environmentSettings.getSize();
+        BitSet terrain = readTerrain(in, size * size);
+        return new SimulationSettings(presetName, new ActiveAgentsSettings(savedAgentSettings), environmentSettings, terrain);
+    }
+
+    /**
+     * Writes every field of the input environment settings.
+     * @param out the stream to write to
+     * @param environmentSettings the settings to write
+     */
+    private static void writeEnvironmentSettings(DataOutput out, EnvironmentSettings environmentSettings) throws IOException {
+        out.writeInt(environmentSettings.getSize());
+        out.writeInt(environmentSettings.getMaxEnergyLevel());
+        out.writeInt(environmentSettings.getMinEnergyLevel());
+        out.writeDouble(environmentSettings.getEnergyRegenChance());
+        out.writeInt(environmentSettings.getEnergyRegenAmount());
+        Color[] colors = environmentSettings.getEnvironmentColors();
+        out.writeInt(colors.length);
+        for (Color color : colors) {
+            out.writeInt(color.getRGB());
+        }
+    }
+
+    /**
+     * Reads environment settings written by writeEnvironmentSettings().
+     * @param in the stream to read from
+     */
+    private static EnvironmentSettings readEnvironmentSettings(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size <= 0 || (long) size * size > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt preset, invalid environment size " + size);
+        }
+        int maxEnergyLevel = in.readInt();
+        int minEnergyLevel = in.readInt();
+        double energyRegenChance = in.readDouble();
+        int energyRegenAmount = in.readInt();
+        int colorCount = in.readInt();
+        if (colorCount < 0) {
+            throw new IOException("Corrupt preset, negative color count " + colorCount);
+        }
+        Color[] colors = new Color[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            colors[i] = new Color(in.readInt(), true);
+        }
+        return new EnvironmentSettings(size, maxEnergyLevel, minEnergyLevel, energyRegenChance, energyRegenAmount, colors);
+    }
+
+    /**
+     * Writes the input terrain as run lengths, or bit-packed if that's smaller.
+     * @param out the stream to write to
+     * @param terrain the terrain flag of each tile
+     * @param tileCount how many tiles the terrain covers
+     */
+    private static void writeTerrain(DataOutput out, BitSet terrain, int tileCount) throws IOException {
+        ByteArrayOutputStream runs = new ByteArrayOutputStream();
+        int packedLength = ((tileCount + Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+        int index = 0;
+        boolean isTerrain = false;
+        while (index < tileCount && runs.size() < packedLength) {
+            int next = isTerrain ? terrain.nextClearBit(index) : terrain.nextSetBit(index);
+            int end = next < 0 ? tileCount : Math.min(next, tileCount);
+            writeVarInt(runs, end - index);
+            index = end;
+            isTerrain = !isTerrain;
+        }
+        out.writeInt(tileCount);
+        if (runs.size() < packedLength) {
+            out.writeByte(RUN_LENGTH_TERRAIN);
+            out.writeInt(runs.size());
+            out.write(runs.toByteArray());
+        }
+        else {
+            out.writeByte(PACKED_TERRAIN);
+            BitSet packed = terrain.get(0, tileCount);
+            StateCodec.writeLongs(out, packed.toLongArray());
+        }
+    }
+
+    /**
+     * Reads terrain written by writeTerrain(), checking it covers the expected number of tiles.
+     * @param in the stream to read from
+     * @param expectedTileCount how many tiles the terrain should cover
+     */
+    private static BitSet readTerrain(DataInput in, int expectedTileCount) throws IOException {
+        int tileCount = in.readInt();
+        if (tileCount != expectedTileCount) {
+            throw new IOException("Corrupt preset, terrain covers " + tileCount + " tiles not " + expectedTileCount);
+        }
+        byte encoding = in.readByte();
+        if (encoding == PACKED_TERRAIN) {
+            BitSet terrain = BitSet.valueOf(StateCodec.readLongs(in));
+            if (terrain.length() > tileCount) {
+                throw new IOException("Corrupt preset, terrain is longer than the environment");
+            }
+            return terrain;
+        }
+        if (encoding != RUN_LENGTH_TERRAIN) {
+            throw new IOException("Corrupt preset, unknown terrain encoding " + encoding);
+        }
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt preset, negative terrain length " + length);
+        }
+        byte[] runs = new byte[length];
+        in.readFully(runs);
+        BitSet terrain = new BitSet(tileCount);
+        int index = 0;
+        int position = 0;
+        boolean isTerrain = false;
+        while (position < runs.length) {
+            // Each run is 7 bits per byte, lowest first, with the top bit set on every byte but the last
+            int run = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position == runs.length || shift > 28) {
+                    throw new IOException("Corrupt preset, terrain run cut short");
+                }
+                b = runs[position++];
+                run |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (run < 0 || run > tileCount - index) {
+                throw new IOException("Corrupt preset, terrain runs past the environment");
+            }
+            if (isTerrain) {
+                terrain.set(index, index + run);
+            }
+            index += run;
+            isTerrain = !isTerrain;
+        }
+        if (index != tileCount) {
+            throw new IOException("Corrupt preset, terrain runs cover " + index + " tiles not " + tileCount);
+        }
+        return terrain;
+    }
+
+    /**
+     * Writes a non-negative int as 7 bits per byte, lowest first, with the top bit set on every byte but the last.
+     * @param out the stream to write to
+     * @param value the value to write
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -3,21 +3,75 @@ package Simulation.SimulationUtility;
 import Simulation.Agent.AgentUtility.ActiveAgentsSettings;
 import Simulation.Environment.EnvironmentSettings;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.BitSet;
 
+/** Groups the agent settings, environment settings and terrain of a simulation into one class, so they can be saved and
+ * loaded as a preset.
+ * <p>
+ * Presets are written and read by SimulationPreset. The class is only Serializable so settings saved with Java
+ * serialization, before the preset format, can still be read and converted.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
 public class SimulationSettings implements Serializable {
 
+    // The serialVersionUID of settings saved before the preset format, so they can still be converted
+    private static final long serialVersionUID = -8703409174618158650L;
+
     private String presetName;
 
+    // The terrain flag of each tile, indexed the same way as the environment
+    private transient BitSet terrain;
+    // Only set while settings saved with Java serialization are being read, then converted to the terrain BitSet
     private Boolean[] terrainMask;
     private ActiveAgentsSettings agentSettings;
     private EnvironmentSettings environmentSettings;
 
-    public SimulationSettings(String presetName, ActiveAgentsSettings agentSettings, EnvironmentSettings environmentSettings, Boolean[] terrainMask) {
+    public SimulationSettings(String presetName, ActiveAgentsSettings agentSettings, EnvironmentSettings environmentSettings, BitSet terrain) {
         this.presetName = presetName;
         this.agentSettings = agentSettings;
         this.environmentSettings = environmentSettings;
-        this.terrainMask = terrainMask;
+        this.terrain = terrain;
+    }
+
+    /**
+     * Converts the Boolean[] terrain mask of settings saved with Java serialization to a BitSet.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        terrain = new BitSet(terrainMask == null ? 0 : terrainMask.length);
+        if (terrainMask != null) {
+            for (int i = 0; i < terrainMask.length; i++) {
+                if (Boolean.TRUE.equals(terrainMask[i])) {
+                    terrain.set(i);
+                }
+            }
+        }
+        terrainMask = null;
+    }
+
+    /**
+     * Writes the terrain as the Boolean[] terrain mask settings saved with Java serialization had, one flag per tile,
+     * so the terrain isn't lost and the settings can be read back by readObject().
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (terrain != null) {
+            int tiles = environmentSettings == null ? terrain.length() : environmentSettings.getSize() * environmentSettings.getSize();
+            terrainMask = new Boolean[tiles];
+            for (int i = 0; i < tiles; i++) {
+                terrainMask[i] = terrain.get(i);
+            }
+        }
+        try {
+            out.defaultWriteObject();
+        } finally {
+            terrainMask = null;
+        }
     }
 
     public String getPresetName() {
@@ -32,12 +86,12 @@ public class SimulationSettings implements Serializable {
         return environmentSettings;
     }
 
-    public Boolean[] getTerrainMask() {
-        return terrainMask;
+    public BitSet getTerrain() {
+        return terrain;
     }
 
-    public void setTerrainMask(Boolean[] terrainMask) {
-        this.terrainMask = terrainMask;
+    public void setTerrain(BitSet terrain) {
+        this.terrain = terrain;
     }
 
 }
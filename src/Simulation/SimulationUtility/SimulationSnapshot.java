@@ -0,0 +1,69 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Simulation;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** A compressed copy of the full state of a Simulation at one step, which the Simulation can be restored to.
+ * <p>
+ * The state is written by Simulation.writeState() through a Deflater set to its fastest level. Most of the state is the
+ * energy level of each tile, which is highly repetitive, so a snapshot of a populated 1000 by 1000 world is usually a
+ * few hundred kilobytes.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationSnapshot {
+
+    // The step the snapshot was taken after
+    private final long step;
+    // The compressed state
+    private final byte[] state;
+
+    private SimulationSnapshot(long step, byte[] state) {
+        this.step = step;
+        this.state = state;
+    }
+
+    /**
+     * Takes a snapshot of the input simulation. Can only be called between cycles.
+     * @param simulation the simulation
+     */
+    public static SimulationSnapshot take(Simulation simulation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater, 1 << 16), 1 << 16))) {
+            simulation.writeState(out);
+        } finally {
+            deflater.end();
+        }
+        return new SimulationSnapshot(simulation.getDiagnostics().getStep(), bytes.toByteArray());
+    }
+
+    /**
+     * Restores the input simulation to this snapshot. Can only be called between cycles.
+     * @param simulation the simulation
+     */
+    public void restore(Simulation simulation) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(state)), 1 << 16))) {
+            simulation.readState(in);
+        }
+    }
+
+    /**
+     * Returns the step the snapshot was taken after.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Returns how many bytes the compressed state takes up.
+     */
+    public int getByteSize() {
+        return state.length;
+    }
+}
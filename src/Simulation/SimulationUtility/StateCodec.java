@@ -0,0 +1,102 @@
+package Simulation.SimulationUtility;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Writes and reads arrays of primitives in bulk, for the writeState() and readState() methods which save the state of a
+ * Simulation.
+ * <p>
+ * Each array is converted to bytes in one go and written with a single call, rather than one call per element, as the
+ * streams the state is written to may be buffered, compressed or synchronized. Arrays are written as their length
+ * followed by their elements, so they're read back without their length being known.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class StateCodec {
+
+    /**
+     * Writes the first count elements of the input array.
+     * @param out the stream to write to
+     * @param values the array to write
+     * @param count how many elements to write
+     */
+    public static void writeInts(DataOutput out, int[] values, int count) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(count * Integer.BYTES);
+        bytes.asIntBuffer().put(values, 0, count);
+        out.writeInt(count);
+        out.write(bytes.array());
+    }
+
+    /**
+     * Reads an array written by writeInts().
+     * @param in the stream to read from
+     */
+    public static int[] readInts(DataInput in) throws IOException {
+        int count = readLength(in);
+        byte[] bytes = new byte[count * Integer.BYTES];
+        in.readFully(bytes);
+        int[] values = new int[count];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Writes the input array.
+     * @param out the stream to write to
+     * @param values the array to write
+     */
+    public static void writeLongs(DataOutput out, long[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Long.BYTES);
+        bytes.asLongBuffer().put(values);
+        out.writeInt(values.length);
+        out.write(bytes.array());
+    }
+
+    /**
+     * Reads an array written by writeLongs().
+     * @param in the stream to read from
+     */
+    public static long[] readLongs(DataInput in) throws IOException {
+        int count = readLength(in);
+        byte[] bytes = new byte[count * Long.BYTES];
+        in.readFully(bytes);
+        long[] values = new long[count];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Writes the input array.
+     * @param out the stream to write to
+     * @param values the array to write
+     */
+    public static void writeBytes(DataOutput out, byte[] values) throws IOException {
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    /**
+     * Reads an array written by writeBytes().
+     * @param in the stream to read from
+     */
+    public static byte[] readBytes(DataInput in) throws IOException {
+        byte[] values = new byte[readLength(in)];
+        in.readFully(values);
+        return values;
+    }
+
+    /**
+     * Reads an array length, checking it isn't negative so corrupt state fails with an IOException.
+     * @param in the stream to read from
+     */
+    private static int readLength(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt state, negative array length " + length);
+        }
+        return length;
+    }
+}
@@ -22,6 +22,8 @@ public class UserInterface extends JFrame {
     private JButton loadAgentsMenuButton;
     private JButton saveEnvironmentSettingsMenuButton;
     private JButton loadEnvironmentSettingsMenuButton;
+    private JButton saveCheckpointMenuButton;
+    private JButton loadCheckpointMenuButton;
     private JButton saveSettingsMenuButton;
     private JButton loadSettingsMenuButton;
 
@@ -48,6 +50,17 @@ public class UserInterface extends JFrame {
     private JButton generateGraphCave;
     private JButton terrainSettings;
 
+
+    private JMenu recordMenu;
+    private JButton recordPngButton;
+    private JButton recordGifButton;
+    private JButton recordWorldButton;
+    private JButton stopRecordingButton;
+
+    private JMenu rewindMenu;
+    private JButton rewindToggleButton;
+    private JButton rewindButton;
+
     private EnvironmentSettingsPanel environmentSettingsPanel;
     private SimulationControlPanel simulationControlPanel;
     private AgentEditorPanel agentEditorPanel;
@@ -81,6 +94,8 @@ public class UserInterface extends JFrame {
         presetsMenu = new JMenu("Presets");
         toolSettingsMenu = new JMenu("Settings");
         terrainMenu = new JMenu("Terrain");
+        recordMenu = new JMenu("Record");
+        rewindMenu = new JMenu("Rewind");
 
         // Build the save menu
         saveSettingsMenuButton = new JButton("Save Settings");
@@ -89,6 +104,8 @@ public class UserInterface extends JFrame {
         saveEnvironmentSettingsMenuButton = new JButton("Save Environment");
         saveMenu.add(saveAgentsMenuButton);
         saveMenu.add(saveEnvironmentSettingsMenuButton);
+        saveCheckpointMenuButton = new JButton("Save Checkpoint");
+        saveMenu.add(saveCheckpointMenuButton);
 
         // Build the load menu
         loadSettingsMenuButton = new JButton("Load Settings");
@@ -97,6 +114,8 @@ public class UserInterface extends JFrame {
         loadEnvironmentSettingsMenuButton = new JButton("Load Environment");
         loadMenu.add(loadAgentsMenuButton);
         loadMenu.add(loadEnvironmentSettingsMenuButton);
+        loadCheckpointMenuButton = new JButton("Load Checkpoint");
+        loadMenu.add(loadCheckpointMenuButton);
 
         // Build the presets menu
         preset1Button = new JButton("Rainbow");
@@ -138,6 +157,24 @@ public class UserInterface extends JFrame {
         terrainSettings.setBackground(new Color(200, 200 , 200));
         terrainMenu.add(terrainSettings);
 
+        // Build the record menu
+        recordPngButton = new JButton("Record PNG Frames");
+        recordMenu.add(recordPngButton);
+        recordGifButton = new JButton("Record GIF");
+        recordMenu.add(recordGifButton);
+        recordWorldButton = new JButton("Record World State");
+        recordMenu.add(recordWorldButton);
+        stopRecordingButton = new JButton("Stop Recording");
+        stopRecordingButton.setEnabled(false);
+        recordMenu.add(stopRecordingButton);
+
+        // Build the rewind menu
+        rewindToggleButton = new JButton("Enable Rewind");
+        rewindMenu.add(rewindToggleButton);
+        rewindButton = new JButton("Rewind To Step");
+        rewindButton.setEnabled(false);
+        rewindMenu.add(rewindButton);
+
         menuBar.add(new JLabel("|"));
         menuBar.add(saveMenu);
         menuBar.add(new JLabel("|"));
@@ -149,6 +186,10 @@ public class UserInterface extends JFrame {
         menuBar.add(new JLabel("|"));
         menuBar.add(terrainMenu);
         menuBar.add(new JLabel("|"));
+        menuBar.add(recordMenu);
+        menuBar.add(new JLabel("|"));
+        menuBar.add(rewindMenu);
+        menuBar.add(new JLabel("|"));
         menuBar.setFont(new Font("Dialog", Font.BOLD, 12));
         setJMenuBar(menuBar);
 
@@ -225,6 +266,14 @@ public class UserInterface extends JFrame {
         return loadEnvironmentSettingsMenuButton;
     }
 
+    public JButton getSaveCheckpointMenuButton() {
+        return saveCheckpointMenuButton;
+    }
+
+    public JButton getLoadCheckpointMenuButton() {
+        return loadCheckpointMenuButton;
+    }
+
     public JFileChooser getFileChooser() {
         return fileChooser;
     }
@@ -272,6 +321,42 @@ public class UserInterface extends JFrame {
         return terrainSettingsDialog.getTerrainSettings();
     }
 
+    public JButton getRecordPngButton() {
+        return recordPngButton;
+    }
+
+    public JButton getRecordGifButton() {
+        return recordGifButton;
+    }
+
+    public JButton getRecordWorldButton() {
+        return recordWorldButton;
+    }
+
+    public JButton getStopRecordingButton() {
+        return stopRecordingButton;
+    }
+
+    public JButton getRewindToggleButton() {
+        return rewindToggleButton;
+    }
+
+    public JButton getRewindButton() {
+        return rewindButton;
+    }
+
+    public void setRewinding(boolean rewinding) {
+        rewindToggleButton.setText(rewinding ? "Disable Rewind" : "Enable Rewind");
+        rewindButton.setEnabled(rewinding);
+    }
+
+    public void setRecording(boolean recording) {
+        recordPngButton.setEnabled(!recording);
+        recordGifButton.setEnabled(!recording);
+        recordWorldButton.setEnabled(!recording);
+        stopRecordingButton.setEnabled(recording);
+    }
+
     public JButton getClearTerrain() {
         return clearTerrain;
     }
@@ -0,0 +1,84 @@
+package Controller;
+
+import Simulation.Agent.AgentInterfaces.Agent;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentUtility.AgentEditor;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.Simulation;
+import Simulation.SimulationUtility.CycleMode;
+import Simulation.SimulationUtility.SimulationSettings;
+import Simulation.TestWorlds;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a batch run of a preset places the agents the preset describes.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class BatchControllerTest {
+
+    // How densely the batch worlds are populated
+    private static final double DENSITY = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void agentsStartWithTheScoresOfTheirPresetAttributes() throws Exception {
+        for (boolean useAgentStore : new boolean[]{false, true}) {
+            BatchController batchController = new BatchController(largeAgentsPreset(), folder.newFile());
+            batchController.getSimulation().setUseAgentStore(useAgentStore);
+            batchController.getSimulation().setSeed(5);
+            batchController.run(DENSITY, 0);
+            Simulation simulation = batchController.getSimulation();
+            int placed = 0;
+            for (int i = 0; i < simulation.getEnvironment().getSize() * simulation.getEnvironment().getSize(); i++) {
+                Agent agent = simulation.getEnvironment().getOccupant(i);
+                if (agent != null) {
+                    assertEquals(agent.getAttributes().getEnergyCapacity(), agent.getScores().getEnergy());
+                    assertEquals(agent.getAttributes().getEnergyCapacity(), agent.getScores().getMaxEnergy());
+                    assertEquals(agent.getAttributes().getLifespan(), agent.getScores().getMaxAge());
+                    placed++;
+                }
+            }
+            assertTrue(placed > 0);
+        }
+    }
+
+    @Test
+    public void writesOneRowPerStep() throws Exception {
+        File output = folder.newFile();
+        BatchController batchController = new BatchController(largeAgentsPreset(), output);
+        batchController.getSimulation().setSeed(5);
+        batchController.getSimulation().setCycleMode(CycleMode.STRIPED);
+        batchController.run(DENSITY, 10);
+        List<String> rows = Files.readAllLines(output.toPath());
+        assertEquals(11, rows.size());
+        assertTrue(rows.get(0).startsWith("step,environment energy"));
+    }
+
+    /**
+     * Returns a preset whose agents are all larger than the editors defaults, so they have a different energyCapacity
+     * and lifespan.
+     */
+    private static SimulationSettings largeAgentsPreset() {
+        Simulation simulation = TestWorlds.newSimulation(0, CycleMode.SEQUENTIAL, false);
+        AgentEditor agentEditor = simulation.getAgentEditor();
+        for (int i = 0; i < agentEditor.getActiveAgents().size(); i++) {
+            Attributes attributes = agentEditor.getAgent(i).getAttributes().copy();
+            attributes.setSize(6);
+            attributes.calculateAttributes();
+            agentEditor.getAgent(i).setAttributes(attributes);
+        }
+        return simulation.getSimulationSettings("Large agents");
+    }
+}
@@ -0,0 +1,53 @@
+package Simulation.Agent.AgentUtility;
+
+import Simulation.Agent.AgentConcreteComponents.MutatingAttributes;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentStructs.ColorModel;
+import org.junit.Test;
+
+import java.awt.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that GenotypeCache shares one set of Attributes per genotype, and that a cache filled past its limit evicts
+ * genotypes no longer being born while keeping the ones that are.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class GenotypeCacheTest {
+
+    // The most genotypes the cache keeps, GenotypeCache.MAX_GENOTYPES
+    private static final int MAX_GENOTYPES = 1 << 16;
+
+    @Test
+    public void equalAttributesShareOneInstance() {
+        Attributes interned = GenotypeCache.intern(genotype(Color.blue, 1));
+        assertSame(interned, GenotypeCache.intern(genotype(Color.blue, 1)));
+        assertSame(interned, GenotypeCache.intern(interned));
+        assertNotSame(interned, GenotypeCache.intern(genotype(Color.blue, 2)));
+        assertThrows(UnsupportedOperationException.class, () -> interned.setSize(4));
+    }
+
+    @Test
+    public void fullCacheKeepsGenotypesStillBeingBorn() {
+        Attributes common = GenotypeCache.intern(genotype(Color.green, 3));
+        // Enough new genotypes to fill the cache twice over, as RANDOM color models produce
+        for (int i = 0; i < 2 * MAX_GENOTYPES; i++) {
+            GenotypeCache.intern(genotype(new Color(i), 2));
+            if (i % 1000 == 0) {
+                assertSame("common genotype evicted after " + i + " new ones", common, GenotypeCache.intern(genotype(Color.green, 3)));
+            }
+        }
+        assertTrue(GenotypeCache.getGenotypeCount() + " genotypes", GenotypeCache.getGenotypeCount() <= MAX_GENOTYPES);
+        assertSame(common, GenotypeCache.intern(genotype(Color.green, 3)));
+    }
+
+    /**
+     * Returns new, uninterned attributes with the input seed color and range.
+     */
+    private static Attributes genotype(Color seedColor, int range) {
+        return new MutatingAttributes(100, "Genotype", 1, seedColor, ColorModel.STATIC, 5, 0, range, 3, 4);
+    }
+}
@@ -0,0 +1,117 @@
+package Simulation;
+
+import Simulation.Agent.AgentConcreteComponents.GrazerMotivation;
+import Simulation.Agent.AgentConcreteComponents.PredatorMotivation;
+import Simulation.Agent.AgentInterfaces.Agent;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentStructs.ColorModel;
+import Simulation.Agent.AgentUtility.AgentEditor;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.SimulationUtility.CycleMode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that agents kept in the agentStore live the same lives as BasicAgents kept in agentList.
+ * <p>
+ * The same world is run with each engine and both must write the same state, apart from the flag saying which engine
+ * wrote it.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class AgentStoreEngineTest {
+
+    // How many cycles each world is run for
+    private static final int CYCLES = 40;
+    // The offset of the first byte written after the engine flag
+    private static final int AFTER_ENGINE_FLAG = Long.BYTES + 1;
+
+    @Test
+    public void defaultAgentsMatch() throws Exception {
+        assertArrayEquals(runWorld(false, false), runWorld(true, false));
+    }
+
+    @Test
+    public void mutatingAgentsMatch() throws Exception {
+        assertArrayEquals(runWorld(false, true), runWorld(true, true));
+    }
+
+    @Test
+    public void agentsGivenTheirOwnMotivationsMatch() throws Exception {
+        assertArrayEquals(runWorldWithOwnMotivations(false), runWorldWithOwnMotivations(true));
+    }
+
+    @Test
+    public void agentsKeepTheirOwnMotivationsThroughState() throws Exception {
+        for (boolean useAgentStore : new boolean[]{false, true}) {
+            Simulation simulation = TestWorlds.newSimulation(3, CycleMode.SEQUENTIAL, useAgentStore);
+            simulation.populate(TestWorlds.DENSITY);
+            TestWorlds.run(simulation, 5);
+            giveOwnMotivations(simulation);
+            byte[] state = TestWorlds.writeState(simulation);
+            Simulation restored = TestWorlds.newSimulation(0, CycleMode.SEQUENTIAL, !useAgentStore);
+            restored.readState(new DataInputStream(new ByteArrayInputStream(state)));
+            assertArrayEquals(state, TestWorlds.writeState(restored));
+            TestWorlds.run(simulation, CYCLES);
+            TestWorlds.run(restored, CYCLES);
+            assertArrayEquals(TestWorlds.writeState(simulation), TestWorlds.writeState(restored));
+        }
+    }
+
+    /**
+     * Returns the state of a world, without the engine flag, in which every third agent was given motivations of its
+     * own part way through.
+     */
+    private static byte[] runWorldWithOwnMotivations(boolean useAgentStore) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(3, CycleMode.SEQUENTIAL, useAgentStore);
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, 5);
+        giveOwnMotivations(simulation);
+        TestWorlds.run(simulation, CYCLES);
+        byte[] state = TestWorlds.writeState(simulation);
+        return Arrays.copyOfRange(state, AFTER_ENGINE_FLAG, state.length);
+    }
+
+    /**
+     * Gives the agent on every third tile its own motivations, leaving the rest of its species as they were.
+     */
+    private static void giveOwnMotivations(Simulation simulation) {
+        for (int i = 0; i < TestWorlds.SIZE * TestWorlds.SIZE; i += 3) {
+            Agent agent = simulation.getEnvironment().getOccupant(i);
+            if (agent != null) {
+                agent.setMotivations(List.of(new PredatorMotivation(7, 2), new GrazerMotivation(3, 1)));
+            }
+        }
+    }
+
+    /**
+     * Returns the state of a world after CYCLES cycles, without the engine flag.
+     * @param mutate true to give every species mutation, larger sizes and colors from their attributes or at random
+     */
+    private static byte[] runWorld(boolean useAgentStore, boolean mutate) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, useAgentStore);
+        if (mutate) {
+            AgentEditor agentEditor = simulation.getAgentEditor();
+            for (int i = 0; i < agentEditor.getActiveAgents().size(); i++) {
+                Attributes attributes = agentEditor.getAgent(i).getAttributes().copy();
+                attributes.setMutationChance(30);
+                attributes.setColorModel(i % 2 == 0 ? ColorModel.ATTRIBUTES : ColorModel.RANDOM);
+                attributes.setSize(3 + i % 3);
+                attributes.setRange(1 + i % 4);
+                attributes.calculateAttributes();
+                agentEditor.setAgentSettings(new AgentSettings(attributes, agentEditor.getAgent(i).getMotivations()), i);
+            }
+        }
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, CYCLES);
+        byte[] state = TestWorlds.writeState(simulation);
+        return Arrays.copyOfRange(state, AFTER_ENGINE_FLAG, state.length);
+    }
+}
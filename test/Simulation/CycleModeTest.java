@@ -0,0 +1,108 @@
+package Simulation;
+
+import Simulation.Agent.AgentConcreteComponents.MutatingAttributes;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentUtility.AgentEditor;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.SimulationUtility.CycleMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that every cycle mode is repeatable from a fixed seed.
+ * <p>
+ * Each mode is run twice from the same seed, the parallel modes once on one thread and once on several, and both runs
+ * must end in the same state. The modes don't make the same decisions as each other, so each is only compared with
+ * itself, except for STRIPED worlds with agents that see too far for the stripes, which are run as SEQUENTIAL worlds.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class CycleModeTest {
+
+    // How many cycles each world is run for
+    private static final int CYCLES = 30;
+    // The seed every world is run from, unless a test changes it
+    private static final long SEED = 42;
+
+    @Test
+    public void sequentialRepeatsFromSeed() throws Exception {
+        assertArrayEquals(runWorld(CycleMode.SEQUENTIAL, SEED, 1), runWorld(CycleMode.SEQUENTIAL, SEED, 1));
+    }
+
+    @Test
+    public void twoPhaseRepeatsOnAnyNumberOfThreads() throws Exception {
+        assertArrayEquals(runWorld(CycleMode.TWO_PHASE, SEED, 1), runWorld(CycleMode.TWO_PHASE, SEED, 4));
+    }
+
+    @Test
+    public void stripedRepeatsOnAnyNumberOfThreads() throws Exception {
+        assertArrayEquals(runWorld(CycleMode.STRIPED, SEED, 1), runWorld(CycleMode.STRIPED, SEED, 4));
+    }
+
+    @Test
+    public void seedChangesTheRun() throws Exception {
+        for (CycleMode cycleMode : CycleMode.values()) {
+            assertFalse(cycleMode.toString(), Arrays.equals(runWorld(cycleMode, SEED, 1), runWorld(cycleMode, SEED + 1, 1)));
+        }
+    }
+
+    @Test
+    public void stripedRunsFarSightedAgentsSequentially() throws Exception {
+        assertArrayEquals(runFarSightedWorld(CycleMode.SEQUENTIAL), runFarSightedWorld(CycleMode.STRIPED));
+    }
+
+    /**
+     * Returns the state of a world whose first generation can see further than Attributes.MAX_RANGE, after a few cycles.
+     * Their children can't, so the world is only run while most of the first generation is alive.
+     */
+    private static byte[] runFarSightedWorld(CycleMode cycleMode) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(SEED, cycleMode, false);
+        simulation.setParallelism(4);
+        AgentEditor agentEditor = simulation.getAgentEditor();
+        for (int i = 0; i < agentEditor.getActiveAgents().size(); i++) {
+            agentEditor.setAgentSettings(new AgentSettings(new FarSightedAttributes(agentEditor.getAgent(i).getAttributes()), agentEditor.getAgent(i).getMotivations()), i);
+        }
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, 5);
+        return TestWorlds.writeState(simulation);
+    }
+
+    /**
+     * Returns the state of a default world after CYCLES cycles.
+     * @param parallelism how many threads the parallel modes run on
+     */
+    private static byte[] runWorld(CycleMode cycleMode, long seed, int parallelism) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(seed, cycleMode, false);
+        simulation.setParallelism(parallelism);
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, CYCLES);
+        return TestWorlds.writeState(simulation);
+    }
+
+    /**
+     * Attributes which see further than any BaseAttributes can.
+     */
+    private static class FarSightedAttributes extends MutatingAttributes {
+
+        FarSightedAttributes(Attributes attributes) {
+            super(attributes.getSpawningWeight(), "Far sighted " + attributes.getName(), attributes.getID(), attributes.getSeedColor(),
+                    attributes.getColorModel(), attributes.getRandomColorModelMagnitude(), attributes.getMutationChance(),
+                    attributes.getRange(), attributes.getSize(), attributes.getCreationSize());
+        }
+
+        @Override
+        public int getRange() {
+            return Attributes.MAX_RANGE + 2;
+        }
+
+        @Override
+        public Attributes copy() {
+            return new FarSightedAttributes(this);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package Simulation.Environment;
+
+import Simulation.Agent.AgentConcreteComponents.BasicAgent;
+import Simulation.Agent.AgentConcreteComponents.MutatingAttributes;
+import Simulation.Agent.AgentStructs.ColorModel;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks Environment.regenerateEnergy() at the extremes of the regeneration chance, and that grazing rows scored with
+ * the Vector API match the scalar scores.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class EnvironmentTest {
+
+    // The side length of the test grids
+    private static final int SIZE = 300;
+
+    @Test
+    public void certainRegenerationReachesEveryTile() {
+        Environment environment = new Environment(SIZE, 0, 100, 0, 100, 1);
+        assertEquals(SIZE * SIZE, environment.regenerateEnergy(new Random(1)));
+    }
+
+    @Test
+    public void tinyRegenerationChanceDoesNotOverflow() {
+        Environment environment = new Environment(SIZE, 0, 100, 0, 1e-300, 1);
+        // The first draw regenerates the first tile, the second is as long a skip as the generator can give
+        RandomGenerator random = scripted(0.0, 0.9999999999999999);
+        assertEquals(1, environment.regenerateEnergy(random));
+    }
+
+    @Test
+    public void vectorGrazingRowsMatchScalarRows() {
+        if (!Environment.VECTOR_GRAZING_AVAILABLE) {
+            return;
+        }
+        int size = 40;
+        Environment environment = new Environment(size, 0, 100, 0, 0, 0);
+        Random random = new Random(3);
+        for (int i = 0; i < size * size; i++) {
+            environment.setEnergyLevel(i, random.nextInt(3) == 0 ? 0 : random.nextInt(100));
+            if (random.nextInt(5) == 0) {
+                environment.setTileTerrain(new Location(i % size, i / size), true);
+            } else if (random.nextInt(4) == 0) {
+                environment.setOccupant(i, occupant(1 + random.nextInt(5)));
+            }
+        }
+        // Rows shorter and longer than a vector, starting anywhere, and ending on the last tile of the grid
+        for (int length = 1; length <= size; length++) {
+            for (int x = 0; x + length <= size; x += 7) {
+                for (int y : new int[]{0, size / 2, size - 1}) {
+                    int[] scalar = new int[length + 2];
+                    int[] vector = new int[length + 2];
+                    environment.scoreGrazingRow(x, y, length, 3, 5, 2, 40, scalar, 1);
+                    environment.scoreGrazingRowVector(x, y, length, 3, 5, 2, 40, vector, 1);
+                    // The vector scorer may write past the row, but not before it
+                    assertArrayEquals("row at " + x + ", " + y + " of length " + length, Arrays.copyOf(scalar, length + 1), Arrays.copyOf(vector, length + 1));
+                }
+            }
+            int[] scalar = new int[length];
+            int[] vector = new int[length];
+            environment.scoreGrazingRow(size - length, size - 1, length, 3, 5, 2, 40, scalar, 0);
+            environment.scoreGrazingRowVector(size - length, size - 1, length, 3, 5, 2, 40, vector, 0);
+            assertArrayEquals("last row of length " + length, scalar, vector);
+        }
+    }
+
+    /**
+     * Returns an agent of the input size to occupy a tile.
+     */
+    private static BasicAgent occupant(int size) {
+        return new BasicAgent(new Location(-1, -1), new MutatingAttributes(100, "Occupant", 1, Color.red, ColorModel.STATIC, 5, 0, 1, size, 4), List.of());
+    }
+
+    /**
+     * Returns a generator whose nextDouble() returns the input draws in order, then 0.
+     */
+    private static RandomGenerator scripted(double... draws) {
+        return new RandomGenerator() {
+            // The index of the next draw
+            private int next = 0;
+
+            @Override
+            public long nextLong() {
+                return 0;
+            }
+
+            @Override
+            public double nextDouble() {
+                return next < draws.length ? draws[next++] : 0.0;
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package Simulation;
+
+import Simulation.Agent.AgentConcreteComponents.CreatorMotivation;
+import Simulation.Agent.AgentConcreteComponents.GrazerMotivation;
+import Simulation.Agent.AgentInterfaces.Attributes;
+import Simulation.Agent.AgentInterfaces.Motivation;
+import Simulation.Agent.AgentUtility.AgentEditor;
+import Simulation.Agent.AgentUtility.AgentSettings;
+import Simulation.Environment.Environment;
+import Simulation.SimulationUtility.CycleMode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that grazers scored a row at a time, by AgentLogic.decideGrazing(), make the same decisions as grazers scored a
+ * tile at a time, in every cycle mode and with both agent engines. Rows are scored both with scalar loops and, when the
+ * tests are run with {@code --add-modules jdk.incubator.vector}, with the Vector API.
+ * <p>
+ * The species cover grazers with a negative, zero and positive bias, a zero weight, every size, ranges from 0 past
+ * MAX_RANGE, and species which also create and so never take the batched path. The world has cave terrain and mutation
+ * is on, so the grazers see terrain, larger and smaller occupants and tiles with and without energy.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class GrazingDecisionTest {
+
+    // How many cycles each world is run for
+    private static final int CYCLES = 40;
+
+    @Test
+    public void batchedGrazingMatchesPerTileSequential() throws Exception {
+        assertSameDecisions(CycleMode.SEQUENTIAL, false);
+    }
+
+    @Test
+    public void batchedGrazingMatchesPerTileTwoPhase() throws Exception {
+        assertSameDecisions(CycleMode.TWO_PHASE, false);
+    }
+
+    @Test
+    public void batchedGrazingMatchesPerTileStriped() throws Exception {
+        assertSameDecisions(CycleMode.STRIPED, false);
+    }
+
+    @Test
+    public void batchedGrazingMatchesPerTileAgentStore() throws Exception {
+        assertSameDecisions(CycleMode.SEQUENTIAL, true);
+    }
+
+    @Test
+    public void vectorGrazingIsUsedWhenAvailable() {
+        Simulation simulation = TestWorlds.newSimulation(7, CycleMode.SEQUENTIAL, false);
+        assertEquals(Environment.VECTOR_GRAZING_AVAILABLE, simulation.isVectorGrazing());
+        simulation.setVectorGrazing(true);
+        assertEquals(Environment.VECTOR_GRAZING_AVAILABLE, simulation.isVectorGrazing());
+    }
+
+    /**
+     * Runs the same world with grazers scored a tile at a time, then a row at a time with scalar loops and with the
+     * Vector API, and fails unless all end in the same state.
+     */
+    private static void assertSameDecisions(CycleMode cycleMode, boolean useAgentStore) throws Exception {
+        for (int rangeOffset = 0; rangeOffset < 2; rangeOffset++) {
+            String world = (useAgentStore ? "agentStore" : cycleMode) + " with range offset " + rangeOffset;
+            byte[] perTile = runGrazers(cycleMode, useAgentStore, false, false, rangeOffset);
+            byte[] scalar = runGrazers(cycleMode, useAgentStore, true, false, rangeOffset);
+            assertArrayEquals(world, perTile, scalar);
+            if (Environment.VECTOR_GRAZING_AVAILABLE) {
+                byte[] vector = runGrazers(cycleMode, useAgentStore, true, true, rangeOffset);
+                assertArrayEquals(world + " scored with the Vector API", perTile, vector);
+            }
+        }
+    }
+
+    /**
+     * Returns the state of a world of mostly grazers after CYCLES cycles.
+     * @param rangeOffset added to each species range, so both even and odd ranges are covered
+     */
+    private static byte[] runGrazers(CycleMode cycleMode, boolean useAgentStore, boolean batchedGrazing, boolean vectorGrazing, int rangeOffset) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(7, cycleMode, useAgentStore);
+        simulation.setBatchedGrazing(batchedGrazing);
+        simulation.setVectorGrazing(vectorGrazing);
+        AgentEditor agentEditor = simulation.getAgentEditor();
+        for (int i = 0; i < agentEditor.getActiveAgents().size(); i++) {
+            ArrayList<Motivation> motivations = new ArrayList<>();
+            if (i % 4 == 0) {
+                motivations.add(new CreatorMotivation(20, 1));
+            }
+            motivations.add(new GrazerMotivation(i == 3 ? -4 : (i == 5 ? 0 : 10), i == 7 ? 0 : 1 + i % 3));
+            Attributes attributes = agentEditor.getAgent(i).getAttributes().copy();
+            attributes.setMutationChance(30);
+            attributes.setSize(2 + i % 4);
+            attributes.setRange((rangeOffset + i) % 8);
+            attributes.calculateAttributes();
+            agentEditor.setAgentSettings(new AgentSettings(attributes, motivations), i);
+        }
+        simulation.getTerrainGenerator().generateCave();
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, CYCLES);
+        return TestWorlds.writeState(simulation);
+    }
+}
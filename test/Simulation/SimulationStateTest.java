@@ -0,0 +1,75 @@
+package Simulation;
+
+import Simulation.SimulationUtility.CycleMode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that state written by Simulation.writeState() and read back by readState() carries on the same run.
+ * <p>
+ * A world is run half way, its state is written, then it's run to the end. The state is read into a different
+ * simulation, of another size and using the other agent engine, which is run to the end as well. Both must end in the
+ * same state, in every cycle mode and with both engines.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationStateTest {
+
+    // How many cycles are run before and after the state is written
+    private static final int CYCLES = 15;
+
+    @Test
+    public void readStateGivesBackTheSameBytes() throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, false);
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, CYCLES);
+        byte[] state = TestWorlds.writeState(simulation);
+        Simulation restored = new Simulation(10, 8, 0, 8, 1.5, 8);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(state)));
+        assertArrayEquals(state, TestWorlds.writeState(restored));
+    }
+
+    @Test
+    public void resumesSequential() throws Exception {
+        assertResumes(CycleMode.SEQUENTIAL, false);
+    }
+
+    @Test
+    public void resumesTwoPhase() throws Exception {
+        assertResumes(CycleMode.TWO_PHASE, false);
+    }
+
+    @Test
+    public void resumesStriped() throws Exception {
+        assertResumes(CycleMode.STRIPED, false);
+    }
+
+    @Test
+    public void resumesAgentStore() throws Exception {
+        assertResumes(CycleMode.SEQUENTIAL, true);
+    }
+
+    /**
+     * Fails unless a world restored half way through ends in the same state as the world it was written from.
+     */
+    private static void assertResumes(CycleMode cycleMode, boolean useAgentStore) throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(42, cycleMode, useAgentStore);
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, CYCLES);
+        byte[] halfWay = TestWorlds.writeState(simulation);
+        TestWorlds.run(simulation, CYCLES);
+
+        Simulation restored = new Simulation(10, 8, 0, 8, 1.5, 8);
+        restored.setUseAgentStore(!useAgentStore);
+        restored.setCycleMode(cycleMode);
+        restored.setDiagnosticsVerbosity(0);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(halfWay)));
+        TestWorlds.run(restored, CYCLES);
+        assertArrayEquals(TestWorlds.writeState(simulation), TestWorlds.writeState(restored));
+    }
+}
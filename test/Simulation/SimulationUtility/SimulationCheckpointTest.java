@@ -0,0 +1,120 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Simulation;
+import Simulation.TestWorlds;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that checkpoints restore the state they were written from, and that a damaged checkpoint is rejected without
+ * changing the simulation it was read into.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationCheckpointTest {
+
+    // The offsets of the payload length and CRC32 in the header, and the headers length
+    private static final int LENGTH_OFFSET = 20;
+    private static final int CRC_OFFSET = 28;
+    private static final int HEADER_LENGTH = 32;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // The simulation checkpoints are written from
+    private Simulation simulation;
+    // The simulation checkpoints are read into, already part way through a run of its own
+    private Simulation target;
+
+    @Before
+    public void setUp() {
+        simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, false);
+        simulation.populate(TestWorlds.DENSITY);
+        TestWorlds.run(simulation, 10);
+        target = TestWorlds.newSimulation(7, CycleMode.SEQUENTIAL, true);
+        target.populate(TestWorlds.DENSITY);
+        TestWorlds.run(target, 5);
+    }
+
+    @Test
+    public void restoresCompressed() throws Exception {
+        assertRestores(true);
+    }
+
+    @Test
+    public void restoresUncompressed() throws Exception {
+        assertRestores(false);
+    }
+
+    @Test
+    public void rejectsDamagedPayload() throws Exception {
+        File file = folder.newFile("damaged.ckpt");
+        SimulationCheckpoint.write(simulation, file, true);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[HEADER_LENGTH + (bytes.length - HEADER_LENGTH) / 2] ^= 1;
+        Files.write(file.toPath(), bytes);
+        IOException exception = assertRejected(file);
+        assertTrue(exception.getMessage(), exception.getMessage().contains("checksum"));
+    }
+
+    @Test
+    public void rejectsIncompleteFile() throws Exception {
+        File file = folder.newFile("incomplete.ckpt");
+        SimulationCheckpoint.write(simulation, file, true);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+        IOException exception = assertRejected(file);
+        assertTrue(exception.getMessage(), exception.getMessage().contains("incomplete"));
+    }
+
+    @Test
+    public void rejectsStateCutShortWithAValidChecksum() throws Exception {
+        File file = folder.newFile("short.ckpt");
+        SimulationCheckpoint.write(simulation, file, false);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // Keep most of the state, so the environment and diagnostics can be read but the agents can't
+        byte[] payload = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length - 100);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer shortened = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        shortened.put(bytes, 0, HEADER_LENGTH).put(payload);
+        shortened.putLong(LENGTH_OFFSET, payload.length).putInt(CRC_OFFSET, (int) crc.getValue());
+        Files.write(file.toPath(), shortened.array());
+        assertRejected(file);
+    }
+
+    /**
+     * Writes and reads back a checkpoint, and fails unless the target ends up in the same state as the simulation.
+     * @param compress true to compress the checkpoint
+     */
+    private void assertRestores(boolean compress) throws Exception {
+        File file = folder.newFile(compress ? "compressed.ckpt" : "uncompressed.ckpt");
+        long length = SimulationCheckpoint.write(simulation, file, compress);
+        assertEquals(file.length(), length);
+        assertEquals(simulation.getDiagnostics().getStep(), SimulationCheckpoint.read(target, file));
+        assertArrayEquals(TestWorlds.writeState(simulation), TestWorlds.writeState(target));
+    }
+
+    /**
+     * Reads the input checkpoint into the target, and fails unless it throws and leaves the target as it was.
+     * @param file the damaged checkpoint
+     */
+    private IOException assertRejected(File file) throws Exception {
+        byte[] before = TestWorlds.writeState(target);
+        IOException exception = assertThrows(IOException.class, () -> SimulationCheckpoint.read(target, file));
+        assertArrayEquals(before, TestWorlds.writeState(target));
+        return exception;
+    }
+}
@@ -0,0 +1,131 @@
+package Simulation.SimulationUtility;
+
+import Simulation.Agent.AgentUtility.ActiveAgentsSettings;
+import Simulation.Environment.EnvironmentSettings;
+import Simulation.Simulation;
+import Simulation.TestWorlds;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that presets give back the settings and terrain they were written with, whichever way the terrain is written,
+ * and that settings saved with Java serialization are converted without losing anything.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class SimulationPresetTest {
+
+    // The number of tiles in the test worlds
+    private static final int TILES = TestWorlds.SIZE * TestWorlds.SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void caveTerrainIsWrittenAsRuns() throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, false);
+        simulation.getTerrainGenerator().generateCave();
+        File file = assertRoundTrip(simulation.getSimulationSettings("cave"));
+        // Bit-packed, the terrain alone would take TILES / 8 bytes
+        assertTrue(file.length() + " bytes", file.length() < TILES / 8);
+    }
+
+    @Test
+    public void noisyTerrainRoundTrips() throws Exception {
+        BitSet terrain = new BitSet(TILES);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < TILES; i++) {
+            if (random.nextBoolean()) {
+                terrain.set(i);
+            }
+        }
+        assertRoundTrip(settingsWithTerrain(terrain));
+    }
+
+    @Test
+    public void edgeTerrainRoundTrips() throws Exception {
+        assertRoundTrip(settingsWithTerrain(new BitSet()));
+        BitSet full = new BitSet(TILES);
+        full.set(0, TILES);
+        assertRoundTrip(settingsWithTerrain(full));
+        // Runs starting and ending on terrain, which begin with an empty open run and finish on the last tile
+        BitSet ends = new BitSet(TILES);
+        ends.set(0);
+        ends.set(TILES / 2, TILES / 2 + 3);
+        ends.set(TILES - 1);
+        assertRoundTrip(settingsWithTerrain(ends));
+    }
+
+    @Test
+    public void convertsSerializedSettings() throws Exception {
+        Simulation simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, false);
+        simulation.getTerrainGenerator().generateCave();
+        SimulationSettings settings = simulation.getSimulationSettings("serialized");
+        File file = folder.newFile("serialized.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(settings);
+        }
+        assertFalse(SimulationPreset.isPreset(file));
+        assertTrue(SimulationPreset.convert(file));
+        assertTrue(SimulationPreset.isPreset(file));
+        assertFalse(SimulationPreset.convert(file));
+        assertSameSettings(settings, SimulationPreset.read(file));
+    }
+
+    /**
+     * Returns the settings of a default world with the input terrain.
+     * @param terrain the terrain
+     */
+    private static SimulationSettings settingsWithTerrain(BitSet terrain) {
+        Simulation simulation = TestWorlds.newSimulation(42, CycleMode.SEQUENTIAL, false);
+        simulation.getEnvironment().setAllTerrain(terrain);
+        return simulation.getSimulationSettings("terrain");
+    }
+
+    /**
+     * Writes the input settings as a preset and fails unless reading it gives the same settings back. Returns the preset.
+     * @param settings the settings to write
+     */
+    private File assertRoundTrip(SimulationSettings settings) throws Exception {
+        File file = folder.newFile();
+        SimulationPreset.write(settings, file);
+        assertTrue(SimulationPreset.isPreset(file));
+        assertSameSettings(settings, SimulationPreset.read(file));
+        return file;
+    }
+
+    /**
+     * Fails unless the two settings hold the same name, environment settings, agents and terrain.
+     */
+    private static void assertSameSettings(SimulationSettings expected, SimulationSettings actual) {
+        assertEquals(expected.getPresetName(), actual.getPresetName());
+        assertEquals(expected.getTerrain(), actual.getTerrain());
+        EnvironmentSettings expectedEnvironment = expected.getEnvironmentSettings();
+        EnvironmentSettings actualEnvironment = actual.getEnvironmentSettings();
+        assertEquals(expectedEnvironment.getSize(), actualEnvironment.getSize());
+        assertEquals(expectedEnvironment.getMaxEnergyLevel(), actualEnvironment.getMaxEnergyLevel());
+        assertEquals(expectedEnvironment.getMinEnergyLevel(), actualEnvironment.getMinEnergyLevel());
+        assertEquals(expectedEnvironment.getEnergyRegenAmount(), actualEnvironment.getEnergyRegenAmount());
+        assertEquals(expectedEnvironment.getEnergyRegenChance(), actualEnvironment.getEnergyRegenChance(), 0);
+        assertArrayEquals(expectedEnvironment.getEnvironmentColors(), actualEnvironment.getEnvironmentColors());
+        ActiveAgentsSettings expectedAgents = expected.getAgentSettings();
+        ActiveAgentsSettings actualAgents = actual.getAgentSettings();
+        assertEquals(expectedAgents.getSavedSettingsCount(), actualAgents.getSavedSettingsCount());
+        for (int i = 0; i < expectedAgents.getSavedSettingsCount(); i++) {
+            assertEquals(expectedAgents.getSavedSettings(i).getName(), actualAgents.getSavedSettings(i).getName());
+            assertEquals(expectedAgents.getSavedSettings(i).getSize(), actualAgents.getSavedSettings(i).getSize());
+            assertEquals(expectedAgents.getSavedSettings(i).getSeedColor(), actualAgents.getSavedSettings(i).getSeedColor());
+            assertEquals(expectedAgents.getSavedSettings(i).getMotivations().size(), actualAgents.getSavedSettings(i).getMotivations().size());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package Simulation;
+
+import Simulation.SimulationUtility.CycleMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Builds the small seeded simulations the tests are run against, and reads back their state to compare runs with.
+ * <p>
+ * Two simulations are only considered the same if Simulation.writeState() writes the same bytes for both, which covers
+ * the environment, diagnostics, random streams and every agent.
+ * @author Sam Burchmore
+ * @version 1.0a
+ * @since 1.0a
+ */
+public class TestWorlds {
+
+    // The length of the grids sides, big enough for several stripes
+    public static final int SIZE = 100;
+    // How densely the worlds are populated
+    public static final double DENSITY = 40;
+
+    private TestWorlds() {
+    }
+
+    /**
+     * Returns a new simulation with the default agents and environment settings, seeded but not yet populated.
+     * @param seed the seed the simulation draws from
+     * @param cycleMode how agents are run each cycle
+     * @param useAgentStore true to keep agents in the agentStore
+     */
+    public static Simulation newSimulation(long seed, CycleMode cycleMode, boolean useAgentStore) {
+        Simulation simulation = new Simulation(SIZE, 60, 0, 100, 1.5, 8);
+        simulation.setUseAgentStore(useAgentStore);
+        simulation.setCycleMode(cycleMode);
+        simulation.setDiagnosticsVerbosity(0);
+        simulation.setSeed(seed);
+        return simulation;
+    }
+
+    /**
+     * Runs the input simulation for the input number of cycles, moving its diagnostics on each step as the controllers do.
+     * @param simulation the simulation to run
+     * @param cycles how many cycles to run
+     */
+    public static void run(Simulation simulation, int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            simulation.cycle();
+            simulation.getDiagnostics().iterateStep();
+        }
+    }
+
+    /**
+     * Returns the bytes Simulation.writeState() writes for the input simulation.
+     * @param simulation the simulation
+     */
+    public static byte[] writeState(Simulation simulation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        simulation.writeState(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}